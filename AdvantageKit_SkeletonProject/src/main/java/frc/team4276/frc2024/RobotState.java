@@ -12,8 +12,6 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Twist2d;
-import edu.wpi.first.math.interpolation.InterpolatingDoubleTreeMap;
-import edu.wpi.first.math.interpolation.TimeInterpolatableBuffer;
 import edu.wpi.first.math.kinematics.SwerveDriveWheelPositions;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.numbers.N1;
@@ -21,6 +19,8 @@ import edu.wpi.first.math.numbers.N2;
 import frc.team4276.frc2024.field.Field;
 import frc.team4276.frc2024.subsystems.drive.DriveConstants;
 import frc.team4276.lib.MovingAverage;
+import frc.team4276.lib.util.InterpolatingLookupTable;
+import frc.team4276.lib.util.PoseHistory;
 
 public class RobotState {
     private boolean kVisionResetsHeading = false; //TODO: impl auto heading reset with reliable reads
@@ -34,10 +34,14 @@ public class RobotState {
     private boolean mHasUpdated = false;
 
     private static final double kObservationBufferTime = 1.0;
+    // Every odometry sample over the whole buffer time, with room for timing jitter
+    private static final int kOdomHistoryCapacity = (int) Math.ceil(
+            DriveConstants.kOdometryFrequency * kObservationBufferTime) + 50;
     
     private Pose2d mEstimatedPose = new Pose2d();
 
-    private final TimeInterpolatableBuffer<Pose2d> mOdomPoseBuffer;
+    private final PoseHistory mOdomPoseHistory;
+    private final PoseHistory.Sample mOdomAtVision = new PoseHistory.Sample();
     private Pose2d mOdomPose = new Pose2d();
     private SwerveDriveWheelPositions mPrevWheelPositions = new SwerveDriveWheelPositions(
         new SwerveModulePosition[]{
@@ -47,13 +51,61 @@ public class RobotState {
             new SwerveModulePosition()
         });
     private Rotation2d mPrevGyroHeading = new Rotation2d();
+    private double mPrevOdomTimestamp = Double.NaN;
 
     private Field.POIs mPOIs = Field.Red.kPOIs;
 
-    private InterpolatingDoubleTreeMap kSpeakerFourbarAngles = new InterpolatingDoubleTreeMap();
-    private InterpolatingDoubleTreeMap kSpeakerFlywheelRPMs = new InterpolatingDoubleTreeMap();
-    private InterpolatingDoubleTreeMap kFerryFourbarAngles = new InterpolatingDoubleTreeMap();
-    private InterpolatingDoubleTreeMap kFerryFlywheelRPMs = new InterpolatingDoubleTreeMap();
+    private static final InterpolatingLookupTable kSpeakerFourbarAngles = new InterpolatingLookupTable.Builder()
+        .put(1.0, 135.0)
+        .put(1.5, 130.0)
+        .put(2.0, 120.0)
+        .put(2.25, 125.0)
+        .put(2.5, 110.0)
+        // .put(2.75, 110.0)
+        .put(3.0, 106.5)
+        // .put(3.25, 106.5)
+        .put(3.5, 105.0)
+        // .put(3.75, 105.0)
+        .put(4.0, 104.0)
+        // .put(4.25, 104.0)
+        .put(4.5, 103.0)
+        // .put(4.75, 102.0)
+        .put(5.0, 102.0)
+        .put(5.5, 101.0)
+        .put(6.0, 100.0)
+        .put(6.5, 95.0)
+        .put(7.0, 90.0)
+        .build();
+
+    private static final InterpolatingLookupTable kSpeakerFlywheelRPMs = new InterpolatingLookupTable.Builder()
+        .put(1.0, 3500.0)
+        .put(1.5, 4000.0)
+        .put(2.0, 4000.0)
+        .put(2.5, 4500.0)
+        .put(3.0, 5000.0)
+        .put(3.5, 5000.0)
+        .put(4.0, 5000.0)
+        .put(4.5, 5000.0)
+        .put(5.0, 5000.0)
+        .put(5.5, 5000.0)
+        .put(6.0, 5000.0)
+        .put(6.5, 5000.0)
+        .put(7.0, 5000.0)
+        .build();
+
+    private static final InterpolatingLookupTable kFerryFourbarAngles = new InterpolatingLookupTable.Builder()
+        .put(5.3, 130.0)
+        .put(7.9, 130.0)
+        .put(9.3, 130.0)
+        .put(12.3, 135.0)
+        .build();
+
+    private static final InterpolatingLookupTable kFerryFlywheelRPMs = new InterpolatingLookupTable.Builder()
+        .put(5.3, 3500.0)
+        .put(7.9, 4000.0)
+        .put(9.3, 4500.0)
+        .put(12.3, 5000.0)
+        .build();
 
     public record AimingParameters(
             Rotation2d driveHeading,
@@ -91,62 +143,19 @@ public class RobotState {
     }
 
     private RobotState() {
-        mOdomPoseBuffer = TimeInterpolatableBuffer.createBuffer(kObservationBufferTime);
+        mOdomPoseHistory = new PoseHistory(kOdomHistoryCapacity, kObservationBufferTime);
 
         reset(0.0, new Pose2d());
         
-        kSpeakerFourbarAngles.put(1.0, 135.0);
-        kSpeakerFourbarAngles.put(1.5, 130.0);
-        kSpeakerFourbarAngles.put(2.0, 120.0);
-        kSpeakerFourbarAngles.put(2.25, 125.0);
-        kSpeakerFourbarAngles.put(2.5, 110.0);
-        // kSpeakerFourbarAngles.put(2.75, 110.0);
-        kSpeakerFourbarAngles.put(3.0, 106.5);
-        // kSpeakerFourbarAngles.put(3.25, 106.5);
-        kSpeakerFourbarAngles.put(3.5, 105.0);
-        // kSpeakerFourbarAngles.put(3.75, 105.0);
-        kSpeakerFourbarAngles.put(4.0, 104.0);
-        // kSpeakerFourbarAngles.put(4.25, 104.0);
-        kSpeakerFourbarAngles.put(4.5, 103.0);
-        // kSpeakerFourbarAngles.put(4.75, 102.0);
-        kSpeakerFourbarAngles.put(5.0, 102.0);
-        kSpeakerFourbarAngles.put(5.5, 101.0);
-        kSpeakerFourbarAngles.put(6.0, 100.0);
-        kSpeakerFourbarAngles.put(6.5, 95.0);
-        kSpeakerFourbarAngles.put(7.0, 90.0);
-
-        kSpeakerFlywheelRPMs.put(1.0, 3500.0);
-        kSpeakerFlywheelRPMs.put(1.5, 4000.0);
-        kSpeakerFlywheelRPMs.put(2.0, 4000.0);
-        kSpeakerFlywheelRPMs.put(2.5, 4500.0);
-        kSpeakerFlywheelRPMs.put(3.0, 5000.0);
-        kSpeakerFlywheelRPMs.put(3.5, 5000.0);
-        kSpeakerFlywheelRPMs.put(4.0, 5000.0);
-        kSpeakerFlywheelRPMs.put(4.5, 5000.0);
-        kSpeakerFlywheelRPMs.put(5.0, 5000.0);
-        kSpeakerFlywheelRPMs.put(5.5, 5000.0);
-        kSpeakerFlywheelRPMs.put(6.0, 5000.0);
-        kSpeakerFlywheelRPMs.put(6.5, 5000.0);
-        kSpeakerFlywheelRPMs.put(7.0, 5000.0);
-
-        kFerryFourbarAngles.put(5.3, 130.0);
-        kFerryFourbarAngles.put(7.9, 130.0);
-        kFerryFourbarAngles.put(9.3, 130.0);
-        kFerryFourbarAngles.put(12.3, 135.0);
-
-        kFerryFlywheelRPMs.put(5.3, 3500.0);
-        kFerryFlywheelRPMs.put(7.9, 4000.0);
-        kFerryFlywheelRPMs.put(9.3, 4500.0);
-        kFerryFlywheelRPMs.put(12.3, 5000.0);
-
         resetKalmanFilters();
     }
 
     public synchronized void reset(double start_time, Pose2d initial_pose) { //TODO: check if need to reset prev heading
         mOdomPose = initial_pose;
         mEstimatedPose = initial_pose;
-        mOdomPoseBuffer.clear();
-        mOdomPoseBuffer.addSample(start_time, initial_pose);
+        mOdomPoseHistory.clear();
+        mOdomPoseHistory.addSample(start_time, initial_pose);
+        mPrevOdomTimestamp = start_time;
     }
 
     public synchronized void resetHeading(double start_time, Rotation2d currentHeading) {
@@ -180,23 +189,36 @@ public class RobotState {
         mPOIs = Field.Red.kPOIs;
     }
 
+    /**
+     * Called once per odometry sample, which can be several times per loop.
+     *
+     * @param heading gyro yaw, null to take the heading change from the wheels
+     */
     public synchronized void addOdomObservations(double timestamp, SwerveDriveWheelPositions positions,
             Rotation2d heading) {
         latestSpeakerParams = null;
         latestFerryParams = null;
 
         Twist2d twist = DriveConstants.kKinematics.toTwist2d(mPrevWheelPositions, positions);
-        twist.dtheta = heading.minus(mPrevGyroHeading).getRadians();
+        if (heading != null) {
+            twist.dtheta = heading.minus(mPrevGyroHeading).getRadians();
+            mPrevGyroHeading = heading;
+        }
 
         mOdomPose = mOdomPose.exp(twist);
-        mOdomPoseBuffer.addSample(timestamp, mOdomPose);
+        mOdomPoseHistory.addSample(timestamp, mOdomPose);
 
         mEstimatedPose = mEstimatedPose.exp(twist);
         
         mPrevWheelPositions = positions;
-        mPrevGyroHeading = heading;
 
-        mKalmanFilter.predict(VecBuilder.fill(0.0, 0.0), Constants.kLooperDt);
+        // Samples come in faster than the loop, predict over the real time between them
+        double dt = timestamp - mPrevOdomTimestamp;
+        mPrevOdomTimestamp = timestamp;
+        if (!(dt > 0.0) || dt > kObservationBufferTime) {
+            dt = Constants.kLooperDt;
+        }
+        mKalmanFilter.predict(VecBuilder.fill(0.0, 0.0), dt);
     }
 
     public static class VisionUpdate {
@@ -214,16 +236,19 @@ public class RobotState {
     public synchronized void visionUpdate(VisionUpdate update) {
         double visionTimestamp = update.timestamp;
 
-        if (mOdomPoseBuffer.getInternalBuffer().lastKey() - kObservationBufferTime > visionTimestamp)
+        // Sampling clamps to the oldest sample, which would give older vision the wrong latency compensation
+        if (mOdomPoseHistory.getNewestTimestamp() - kObservationBufferTime > visionTimestamp
+                || mOdomPoseHistory.getOldestTimestamp() > visionTimestamp)
             return;
 
         mEstimatedVisionHeading.addNumber(update.fieldToVis.getRotation().getRadians());
 
         new Transform2d(mOdomPose, mEstimatedPose);
         
-        mEstimatedPose = new Pose2d(update.fieldToVis.getTranslation().plus(
-            mOdomPoseBuffer.getInternalBuffer().lastEntry().getValue().getTranslation()).
-            minus(mOdomPoseBuffer.getSample(visionTimestamp).get().getTranslation()), 
+        mOdomPoseHistory.getSample(visionTimestamp, mOdomAtVision);
+        mEstimatedPose = new Pose2d(
+            update.fieldToVis.getX() + mOdomPoseHistory.getNewestX() - mOdomAtVision.x,
+            update.fieldToVis.getY() + mOdomPoseHistory.getNewestY() - mOdomAtVision.y,
             new Rotation2d());
 
         if (!mHasUpdated) {
@@ -1,6 +1,7 @@
 package frc.team4276.frc2024.subsystems.drive;
 
-import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.DoubleSupplier;
 
 import org.littletonrobotics.junction.Logger;
@@ -20,7 +21,10 @@ import frc.team4276.frc2024.Constants;
 import frc.team4276.frc2024.RobotState;
 import frc.team4276.frc2024.subsystems.drive.controllers.*;
 
-public class Drive extends SubsystemBase { //TODO: impl high freq odom reading
+public class Drive extends SubsystemBase {
+    /** Held by {@link SparkOdometryThread} while sampling and by {@link #periodic()} while reading the samples */
+    public static final Lock odometryLock = new ReentrantLock();
+
     public enum DriveMode {
         /** Driving with input from driver joysticks. (Default) */
         TELEOP,
@@ -47,6 +51,12 @@ public class Drive extends SubsystemBase { //TODO: impl high freq odom reading
 
     private boolean isHeadingControlled = false;
 
+    // Sim only, the same odometry integrated from one sample per loop to compare against
+    private Pose2d mSimSampleRatePose = new Pose2d();
+    private Pose2d mSimLoopRatePose = new Pose2d();
+    private SwerveDriveWheelPositions mSimPrevSamplePositions = null;
+    private SwerveDriveWheelPositions mSimPrevLoopPositions = null;
+
     public Drive(GyroIO gyroIO, ModuleIO fl, ModuleIO fr, ModuleIO bl, ModuleIO br) {
         mGyroIO = gyroIO;
         mModules[0] = new Module(fl, 0);
@@ -57,21 +67,68 @@ public class Drive extends SubsystemBase { //TODO: impl high freq odom reading
         mTeleopDriveController = new TeleopDriveController();
         mHeadingController = new HeadingController();
         mTrajectoryController = new TrajectoryController();
+
+        SparkOdometryThread.getInstance().start();
     }
 
     @Override
     public void periodic() {
-        mGyroIO.updateInputs(mGyroInputs);
-        Logger.processInputs("Drive/Gyro", mGyroInputs);
+        odometryLock.lock(); // Keeps the odometry thread from adding samples halfway through the read
+        try {
+            mGyroIO.updateInputs(mGyroInputs);
+            Logger.processInputs("Drive/Gyro", mGyroInputs);
+
+            for(Module module : mModules){
+                module.updateInputs();
+            }
+        } finally {
+            odometryLock.unlock();
+        }
+
+        // Every sample comes from the logged inputs, so replay integrates exactly the same odometry
+        double[] sampleTimestamps = mModules[0].getOdometryTimestamps();
+        SwerveModulePosition[][] modulePositions = new SwerveModulePosition[4][];
+        int sampleCount = sampleTimestamps.length;
+        for (int i = 0; i < mModules.length; i++) {
+            modulePositions[i] = mModules[i].getModulePositions();
+            sampleCount = Math.min(sampleCount, modulePositions[i].length);
+        }
+        if (mGyroInputs.connected) {
+            sampleCount = Math.min(sampleCount, mGyroInputs.odometryYawPositions.length);
+        }
+
+        SwerveDriveWheelPositions wheelPositions = null;
+        for (int i = 0; i < sampleCount; i++) {
+            wheelPositions = new SwerveDriveWheelPositions(new SwerveModulePosition[] {
+                    modulePositions[0][i], modulePositions[1][i], modulePositions[2][i], modulePositions[3][i] });
+
+            // Without a gyro RobotState takes the heading change from the wheels
+            RobotState.getInstance().addOdomObservations(sampleTimestamps[i], wheelPositions,
+                    mGyroInputs.connected ? mGyroInputs.odometryYawPositions[i] : null);
 
-        for(Module module : mModules){
-            module.updateInputs();
+            if (Constants.getMode() == Constants.Mode.SIM) {
+                if (mSimPrevSamplePositions != null) {
+                    mSimSampleRatePose = mSimSampleRatePose.exp(
+                            DriveConstants.kKinematics.toTwist2d(mSimPrevSamplePositions, wheelPositions));
+                }
+                mSimPrevSamplePositions = wheelPositions;
+            }
         }
 
-        SwerveDriveWheelPositions wheelPositions = new SwerveDriveWheelPositions(
-            Arrays.stream(mModules).map(module -> module.getPosition()).toArray(SwerveModulePosition[]::new));
+        Logger.recordOutput("Drive/Odometry/Samples Per Cycle", sampleCount);
+
+        if (Constants.getMode() == Constants.Mode.SIM && wheelPositions != null) {
+            if (mSimPrevLoopPositions != null) {
+                mSimLoopRatePose = mSimLoopRatePose.exp(
+                        DriveConstants.kKinematics.toTwist2d(mSimPrevLoopPositions, wheelPositions));
+            }
+            mSimPrevLoopPositions = wheelPositions;
 
-        RobotState.getInstance().addOdomObservations(Timer.getFPGATimestamp(), wheelPositions, mGyroInputs.yawPosition);
+            Logger.recordOutput("Drive/Odometry/Sim/Sample Rate Pose", mSimSampleRatePose);
+            Logger.recordOutput("Drive/Odometry/Sim/Loop Rate Pose", mSimLoopRatePose);
+            Logger.recordOutput("Drive/Odometry/Sim/Loop Rate Error Metres",
+                    mSimLoopRatePose.getTranslation().getDistance(mSimSampleRatePose.getTranslation()));
+        }
 
         Pose2d latestFieldToVehicle = RobotState.getInstance().getEstimatedPose();
 
@@ -32,6 +32,8 @@ public class DriveConstants {
         kTurningPIDFConfig.kP = 1.0;
     } 
 
+    public static final double kOdometryFrequency = 250.0; // Hz
+
     public static final int kDrivingMotorCurrentLimit = 50; // amps
     public static final int kTurningMotorCurrentLimit = 20; // amps
 
@@ -6,7 +6,9 @@ import org.littletonrobotics.junction.AutoLog;
 public interface GyroIO {
     @AutoLog
     class GyroIOInputs {
+        public boolean connected = false;
         public Rotation2d yawPosition = new Rotation2d();
+        public double[] odometryYawTimestamps = new double[] {};
         public Rotation2d[] odometryYawPositions = new Rotation2d[] {};
         public double yawVelocityRadPerSec = 0.0;
     }
@@ -1,5 +1,7 @@
 package frc.team4276.frc2024.subsystems.drive;
 
+import java.util.Queue;
+
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.ADIS16470_IMU;
 
@@ -7,15 +9,27 @@ public class GyroIOADIS implements GyroIO {
     // Actual pigeon object
     private final ADIS16470_IMU mGyro;
 
+    private final Queue<Double> mYawTimestampQueue;
+    private final Queue<Double> mYawPositionQueue;
+
     public GyroIOADIS(){
         mGyro = new ADIS16470_IMU();
 
+        mYawTimestampQueue = SparkOdometryThread.getInstance().makeTimestampQueue();
+        mYawPositionQueue = SparkOdometryThread.getInstance().registerSignal(() -> getYaw().getRadians());
     }
 
+    /** Called while holding {@link Drive#odometryLock} */
     @Override
     public void updateInputs(GyroIOInputs inputs) {
+        inputs.connected = true;
         inputs.yawPosition = getYaw();
-        
+
+        inputs.odometryYawTimestamps = mYawTimestampQueue.stream().mapToDouble(Double::doubleValue).toArray();
+        inputs.odometryYawPositions = mYawPositionQueue.stream().map(Rotation2d::fromRadians)
+                .toArray(Rotation2d[]::new);
+        mYawTimestampQueue.clear();
+        mYawPositionQueue.clear();
     }
 
     // Configs
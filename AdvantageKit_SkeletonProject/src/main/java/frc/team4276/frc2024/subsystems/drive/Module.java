@@ -66,6 +66,11 @@ public class Module {
         return positions;
     }
 
+    /** Get the timestamps of {@link #getModulePositions()} in seconds. */
+    public double[] getOdometryTimestamps() {
+        return inputs.odometryTimestamps;
+    }
+
     /** Get turn angle of module in {@link Rotation2d} */
     public Rotation2d getAngle() {
         return Rotation2d.fromRadians(inputs.turnPositionRads);
@@ -18,6 +18,7 @@ public interface ModuleIO {
         public double turnSupplyCurrentAmps = 0.0;
         public double turnTorqueCurrentAmps = 0.0;
 
+        public double[] odometryTimestamps = new double[] {};
         public double[] odometryDrivePositionsMeters = new double[] {};
         public Rotation2d[] odometryTurnPositions = new Rotation2d[] {};
     }
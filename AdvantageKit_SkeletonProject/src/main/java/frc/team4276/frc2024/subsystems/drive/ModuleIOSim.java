@@ -1,5 +1,7 @@
 package frc.team4276.frc2024.subsystems.drive;
 
+import org.littletonrobotics.junction.Logger;
+
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.filter.SlewRateLimiter;
@@ -11,6 +13,11 @@ import frc.team4276.frc2024.Constants;
 import frc.team4276.frc2024.subsystems.drive.ModuleIOSparkMax.ModuleConfig;
 
 public class ModuleIOSim implements ModuleIO {
+  // Steps the sim at the odometry thread rate so the sim sees the same sample pattern as the robot
+  private static final int kOdometrySubsteps =
+      (int) Math.round(DriveConstants.kOdometryFrequency * Constants.kLooperDt);
+  private static final double kOdometryDt = Constants.kLooperDt / kOdometrySubsteps;
+
   private final DCMotorSim driveSim =
       new DCMotorSim(DCMotor.getNEO(1), DriveConstants.kDrivingMotorReduction, 0.025);
   private final DCMotorSim turnSim =
@@ -43,8 +50,18 @@ public class ModuleIOSim implements ModuleIO {
       driveVoltsLimiter.reset(driveAppliedVolts);
     }
 
-    driveSim.update(Constants.kLooperDt);
-    turnSim.update(Constants.kLooperDt);
+    double timestamp = Logger.getTimestamp() / 1e6;
+    inputs.odometryTimestamps = new double[kOdometrySubsteps];
+    inputs.odometryDrivePositionsMeters = new double[kOdometrySubsteps];
+    inputs.odometryTurnPositions = new Rotation2d[kOdometrySubsteps];
+    for (int i = 0; i < kOdometrySubsteps; i++) {
+      driveSim.update(kOdometryDt);
+      turnSim.update(kOdometryDt);
+
+      inputs.odometryTimestamps[i] = timestamp - (kOdometrySubsteps - 1 - i) * kOdometryDt;
+      inputs.odometryDrivePositionsMeters[i] = driveSim.getAngularPositionRad() * 1.5;
+      inputs.odometryTurnPositions[i] = Rotation2d.fromRadians(turnSim.getAngularPositionRad());
+    }
 
     inputs.drivePositionMetres = driveSim.getAngularPositionRad() * 1.5;
     inputs.driveVelocityMetresPerSec = driveSim.getAngularVelocityRadPerSec() * 1.5;
@@ -55,11 +72,6 @@ public class ModuleIOSim implements ModuleIO {
     inputs.turnVelocityRadsPerSec = turnSim.getAngularVelocityRadPerSec();
     inputs.turnAppliedVolts = turnAppliedVolts;
     inputs.turnSupplyCurrentAmps = Math.abs(turnSim.getCurrentDrawAmps());
-
-    inputs.odometryDrivePositionsMeters =
-        new double[] {driveSim.getAngularPositionRad() * 1.5};
-    inputs.odometryTurnPositions =
-        new Rotation2d[] {Rotation2d.fromRadians(turnSim.getAngularPositionRad())};
   }
 
   public void runDriveVolts(double volts) {
@@ -1,9 +1,12 @@
 package frc.team4276.frc2024.subsystems.drive;
 
+import java.util.Queue;
+
 import com.revrobotics.AbsoluteEncoder;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkPIDController;
 import com.revrobotics.CANSparkBase.ControlType;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.SparkPIDController.ArbFFUnits;
 
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -29,6 +32,10 @@ public class ModuleIOSparkMax implements ModuleIO {
     private SparkPIDController drivePid;
     private SparkPIDController turnPid;
 
+    private final Queue<Double> timestampQueue;
+    private final Queue<Double> drivePositionQueue;
+    private final Queue<Double> turnPositionQueue;
+
     public ModuleIOSparkMax(ModuleConfig config) {
         // Init motor & encoder objects
         driveMotor = SparkMaxFactory.createDefault(config.kDriveId);
@@ -69,14 +76,24 @@ public class ModuleIOSparkMax implements ModuleIO {
         turnPid.setFeedbackDevice(turnAbsoluteEncoder);
         turnPid.setP(DriveConstants.kTurningPIDFConfig.kP);
 
+        // Drive position (status 2) and absolute encoder position (status 5) need to arrive at least as fast as
+        // the odometry thread samples them
+        driveMotor.setPeriodicFramePeriodSec(PeriodicFrame.kStatus2, 1.0 / DriveConstants.kOdometryFrequency);
+        turnMotor.setPeriodicFramePeriodSec(PeriodicFrame.kStatus5, 1.0 / DriveConstants.kOdometryFrequency);
+
         driveMotor.burnFlash();
         turnMotor.burnFlash();
 
         driveMotor.setCANTimeout(0);
         turnMotor.setCANTimeout(0);
+
+        timestampQueue = SparkOdometryThread.getInstance().makeTimestampQueue();
+        drivePositionQueue = SparkOdometryThread.getInstance().registerSignal(driveEncoder::getPosition);
+        turnPositionQueue = SparkOdometryThread.getInstance()
+                .registerSignal(() -> turnAbsoluteEncoder.getPosition() - absoluteEncoderOffset);
     }
 
-    /** Updates the set of loggable inputs. */
+    /** Updates the set of loggable inputs. Called while holding {@link Drive#odometryLock} */
     public void updateInputs(ModuleIOInputs inputs) {
         inputs.drivePositionMetres = driveEncoder.getPosition();
         inputs.driveVelocityMetresPerSec = driveEncoder.getVelocity();
@@ -88,8 +105,13 @@ public class ModuleIOSparkMax implements ModuleIO {
         inputs.turnAppliedVolts = turnMotor.getAppliedVoltage();
         inputs.turnSupplyCurrentAmps = turnMotor.getOutputCurrent();
 
-        inputs.odometryDrivePositionsMeters = new double[] {};
-        inputs.odometryTurnPositions = new Rotation2d[] {};
+        inputs.odometryTimestamps = timestampQueue.stream().mapToDouble(Double::doubleValue).toArray();
+        inputs.odometryDrivePositionsMeters = drivePositionQueue.stream().mapToDouble(Double::doubleValue).toArray();
+        inputs.odometryTurnPositions = turnPositionQueue.stream().map(Rotation2d::fromRadians)
+                .toArray(Rotation2d[]::new);
+        timestampQueue.clear();
+        drivePositionQueue.clear();
+        turnPositionQueue.clear();
     }
 
     /** Run drive motor at volts */
@@ -0,0 +1,93 @@
+package frc.team4276.frc2024.subsystems.drive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.DoubleSupplier;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Samples the registered odometry signals (SPARK MAX encoders, gyro yaw) at
+ * {@link DriveConstants#kOdometryFrequency}, faster than the main loop.
+ * Every sample is pushed into a queue per signal together with a timestamp
+ * queue, all under {@link Drive#odometryLock}, so draining the queues while
+ * holding the lock always gives the same number of samples per signal.
+ *
+ * <p>
+ * The IO layers drain the queues into their inputs, so the samples are logged
+ * and replay never touches this thread.
+ */
+public class SparkOdometryThread {
+    private static final int kQueueCapacity = 20;
+
+    private final List<DoubleSupplier> mSignals = new ArrayList<>();
+    private final List<Queue<Double>> mQueues = new ArrayList<>();
+    private final List<Queue<Double>> mTimestampQueues = new ArrayList<>();
+
+    private final Notifier mNotifier;
+
+    private static SparkOdometryThread mInstance;
+
+    public static SparkOdometryThread getInstance() {
+        if (mInstance == null) {
+            mInstance = new SparkOdometryThread();
+        }
+        return mInstance;
+    }
+
+    private SparkOdometryThread() {
+        mNotifier = new Notifier(this::periodic);
+        mNotifier.setName("SparkOdometryThread");
+    }
+
+    /** Only runs if something registered, so sim and replay never start it */
+    public void start() {
+        if (mTimestampQueues.size() > 0) {
+            mNotifier.startPeriodic(1.0 / DriveConstants.kOdometryFrequency);
+        }
+    }
+
+    public Queue<Double> registerSignal(DoubleSupplier signal) {
+        Queue<Double> queue = new ArrayBlockingQueue<>(kQueueCapacity);
+        Drive.odometryLock.lock();
+        try {
+            mSignals.add(signal);
+            mQueues.add(queue);
+        } finally {
+            Drive.odometryLock.unlock();
+        }
+        return queue;
+    }
+
+    public Queue<Double> makeTimestampQueue() {
+        Queue<Double> queue = new ArrayBlockingQueue<>(kQueueCapacity);
+        Drive.odometryLock.lock();
+        try {
+            mTimestampQueues.add(queue);
+        } finally {
+            Drive.odometryLock.unlock();
+        }
+        return queue;
+    }
+
+    private void periodic() {
+        Drive.odometryLock.lock();
+        try {
+            // Real time, the sample is taken now and not at the start of the main loop cycle
+            double timestamp = Logger.getRealTimestamp() / 1e6;
+
+            for (int i = 0; i < mSignals.size(); i++) {
+                mQueues.get(i).offer(mSignals.get(i).getAsDouble());
+            }
+            for (int i = 0; i < mTimestampQueues.size(); i++) {
+                mTimestampQueues.get(i).offer(timestamp);
+            }
+        } finally {
+            Drive.odometryLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package frc.team4276.lib.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A 1D regression table compiled into a uniformly spaced array when it's built, so a lookup is one multiply, two
+ * clamps and a lerp between neighbouring entries instead of a TreeMap floor/ceiling search on boxed keys.
+ *
+ * <p>
+ * In linear mode the spacing is picked so every point lands on the grid when it can be, and lookups give the same
+ * results as InterpolatingDoubleTreeMap (to rounding). Monotone cubic mode fits a Fritsch-Carlson spline through
+ * the points, which doesn't overshoot between them, and samples it finely. Both clamp to the end values outside
+ * the points like InterpolatingDoubleTreeMap.
+ */
+public class InterpolatingLookupTable {
+    public enum Mode {
+        LINEAR,
+        MONOTONE_CUBIC
+    }
+
+    private static final int kMaxSize = 4096;
+    private static final int kMaxSubdivisions = 64;
+    private static final int kCubicSubdivisions = 16;
+    private static final double kGridTolerance = 1e-6;
+
+    public static class Builder {
+        private final TreeMap<Double, Double> mPoints = new TreeMap<>();
+
+        /** A later point at the same key replaces the earlier one */
+        public Builder put(double key, double value) {
+            mPoints.put(key, value);
+            return this;
+        }
+
+        public InterpolatingLookupTable build() {
+            return build(Mode.LINEAR);
+        }
+
+        public InterpolatingLookupTable build(Mode mode) {
+            if (mPoints.isEmpty()) {
+                throw new IllegalStateException("Lookup table needs at least one point");
+            }
+
+            double[] keys = new double[mPoints.size()];
+            double[] values = new double[mPoints.size()];
+            int i = 0;
+            for (Map.Entry<Double, Double> point : mPoints.entrySet()) {
+                keys[i] = point.getKey();
+                values[i] = point.getValue();
+                i++;
+            }
+
+            return new InterpolatingLookupTable(keys, values, mode);
+        }
+    }
+
+    private final double mMin;
+    private final double mInvStep;
+    private final double mLastIndex;
+    // One extra copy of the last value at the end so the top of the range doesn't need a branch
+    private final double[] mTable;
+
+    private InterpolatingLookupTable(double[] keys, double[] values, Mode mode) {
+        int n = keys.length;
+        mMin = keys[0];
+
+        if (n == 1) {
+            mInvStep = 0.0;
+            mLastIndex = 0.0;
+            mTable = new double[] { values[0], values[0] };
+            return;
+        }
+
+        double range = keys[n - 1] - keys[0];
+        double step = findGridStep(keys);
+        if (mode == Mode.MONOTONE_CUBIC) {
+            step /= kCubicSubdivisions;
+        }
+        if (step <= 0.0 || range / step > kMaxSize - 1) {
+            step = range / (kMaxSize - 1);
+        }
+
+        int size = (int) Math.round(range / step) + 1;
+        step = range / (size - 1);
+
+        double[] tangents = mode == Mode.MONOTONE_CUBIC ? monotoneTangents(keys, values) : null;
+
+        mInvStep = 1.0 / step;
+        mLastIndex = size - 1;
+        mTable = new double[size + 1];
+
+        int segment = 0;
+        for (int i = 0; i < size; i++) {
+            double key = i == size - 1 ? keys[n - 1] : keys[0] + i * step;
+            while (segment < n - 2 && key >= keys[segment + 1]) {
+                segment++;
+            }
+
+            mTable[i] = tangents == null
+                    ? linear(keys, values, segment, key)
+                    : hermite(keys, values, tangents, segment, key);
+        }
+        mTable[size] = mTable[size - 1];
+    }
+
+    public double get(double key) {
+        double u = Math.min(Math.max((key - mMin) * mInvStep, 0.0), mLastIndex);
+        int i = (int) u;
+        double t = u - i;
+        return mTable[i] + (mTable[i + 1] - mTable[i]) * t;
+    }
+
+    public int size() {
+        return mTable.length - 1;
+    }
+
+    /**
+     * Largest spacing that has every key on the grid, up to kMaxSubdivisions of the smallest gap between keys, or
+     * 0 if there isn't one
+     */
+    private static double findGridStep(double[] keys) {
+        double min_gap = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < keys.length; i++) {
+            min_gap = Math.min(min_gap, keys[i] - keys[i - 1]);
+        }
+
+        for (int subdivisions = 1; subdivisions <= kMaxSubdivisions; subdivisions++) {
+            double step = min_gap / subdivisions;
+            boolean on_grid = true;
+            for (int i = 1; i < keys.length && on_grid; i++) {
+                double steps = (keys[i] - keys[0]) / step;
+                on_grid = Math.abs(steps - Math.rint(steps)) < kGridTolerance;
+            }
+
+            if (on_grid) {
+                return step;
+            }
+        }
+
+        return 0.0;
+    }
+
+    // InterpolatingDoubleTreeMap
+    private static double linear(double[] keys, double[] values, int segment, double key) {
+        if (key == keys[segment + 1]) {
+            return values[segment + 1];
+        }
+
+        double t = (key - keys[segment]) / (keys[segment + 1] - keys[segment]);
+        return values[segment] + (values[segment + 1] - values[segment]) * t;
+    }
+
+    private static double hermite(double[] keys, double[] values, double[] tangents, int segment, double key) {
+        double h = keys[segment + 1] - keys[segment];
+        double t = (key - keys[segment]) / h;
+        double t2 = t * t;
+        double t3 = t2 * t;
+
+        return (2 * t3 - 3 * t2 + 1) * values[segment]
+                + (t3 - 2 * t2 + t) * h * tangents[segment]
+                + (-2 * t3 + 3 * t2) * values[segment + 1]
+                + (t3 - t2) * h * tangents[segment + 1];
+    }
+
+    // Fritsch-Carlson
+    private static double[] monotoneTangents(double[] keys, double[] values) {
+        int n = keys.length;
+        double[] secants = new double[n - 1];
+        for (int i = 0; i < n - 1; i++) {
+            secants[i] = (values[i + 1] - values[i]) / (keys[i + 1] - keys[i]);
+        }
+
+        double[] tangents = new double[n];
+        tangents[0] = secants[0];
+        tangents[n - 1] = secants[n - 2];
+        for (int i = 1; i < n - 1; i++) {
+            tangents[i] = secants[i - 1] * secants[i] <= 0.0 ? 0.0 : 0.5 * (secants[i - 1] + secants[i]);
+        }
+
+        for (int i = 0; i < n - 1; i++) {
+            if (secants[i] == 0.0) {
+                tangents[i] = 0.0;
+                tangents[i + 1] = 0.0;
+                continue;
+            }
+
+            double alpha = tangents[i] / secants[i];
+            double beta = tangents[i + 1] / secants[i];
+            double magnitude = alpha * alpha + beta * beta;
+            if (magnitude > 9.0) {
+                double tau = 3.0 / Math.sqrt(magnitude);
+                tangents[i] = tau * alpha * secants[i];
+                tangents[i + 1] = tau * beta * secants[i];
+            }
+        }
+
+        return tangents;
+    }
+}
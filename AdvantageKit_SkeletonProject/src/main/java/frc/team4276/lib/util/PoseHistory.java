@@ -0,0 +1,216 @@
+package frc.team4276.lib.util;
+
+import java.util.Optional;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/*
+ * Time stamped pose history for latency compensation, replaces TimeInterpolatableBuffer<Pose2d>.
+ * Samples live in parallel primitive arrays (t, x, y, theta) used as a ring, so adding and sampling never
+ * allocate or box, and a lookup is a binary search plus one constant curvature interpolation.
+ * Samples are expected in time order, like the odometry loop produces them.
+ */
+public class PoseHistory {
+    private static final double kEps = 1E-9;
+
+    public static class Sample {
+        public double x;
+        public double y;
+        public double theta;
+    }
+
+    private final double mHistorySeconds;
+    private final int mCapacity;
+    private final double[] mT;
+    private final double[] mX;
+    private final double[] mY;
+    private final double[] mTheta;
+
+    private int mOldest = 0;
+    private int mSize = 0;
+
+    private final Sample mScratch = new Sample();
+
+    /**
+     * @param capacity max number of samples held, the oldest is overwritten when full
+     * @param historySeconds samples older than this (relative to the newest) are dropped
+     */
+    public PoseHistory(int capacity, double historySeconds) {
+        mHistorySeconds = historySeconds;
+        mCapacity = capacity;
+        mT = new double[capacity];
+        mX = new double[capacity];
+        mY = new double[capacity];
+        mTheta = new double[capacity];
+    }
+
+    public void addSample(double timestamp, double x, double y, double theta) {
+        // Time went backwards (e.g. a reset), anything newer than this sample is no longer valid
+        while (mSize > 0 && timestamp < mT[index(mSize - 1)]) {
+            mSize--;
+        }
+
+        int slot;
+        if (mSize > 0 && timestamp == mT[index(mSize - 1)]) {
+            slot = index(mSize - 1);
+        } else if (mSize == mCapacity) {
+            slot = mOldest;
+            mOldest = index(1);
+        } else {
+            slot = index(mSize);
+            mSize++;
+        }
+
+        mT[slot] = timestamp;
+        mX[slot] = x;
+        mY[slot] = y;
+        mTheta[slot] = theta;
+
+        while (mSize > 1 && mT[mOldest] < timestamp - mHistorySeconds) {
+            mOldest = index(1);
+            mSize--;
+        }
+    }
+
+    public void addSample(double timestamp, Pose2d pose) {
+        addSample(timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+    }
+
+    public void clear() {
+        mOldest = 0;
+        mSize = 0;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public double getOldestTimestamp() {
+        return mSize == 0 ? Double.NaN : mT[mOldest];
+    }
+
+    public double getNewestTimestamp() {
+        return mSize == 0 ? Double.NaN : mT[index(mSize - 1)];
+    }
+
+    public double getNewestX() {
+        return mSize == 0 ? Double.NaN : mX[index(mSize - 1)];
+    }
+
+    public double getNewestY() {
+        return mSize == 0 ? Double.NaN : mY[index(mSize - 1)];
+    }
+
+    public double getNewestTheta() {
+        return mSize == 0 ? Double.NaN : mTheta[index(mSize - 1)];
+    }
+
+    /**
+     * Writes the pose at the timestamp into out, interpolating (constant curvature, same as Pose2d.interpolate)
+     * between the samples either side of it. Timestamps outside the history are clamped to the oldest or newest
+     * sample.
+     *
+     * @return false if there are no samples
+     */
+    public boolean getSample(double timestamp, Sample out) {
+        if (mSize == 0) {
+            return false;
+        }
+
+        int newest = index(mSize - 1);
+        if (timestamp >= mT[newest]) {
+            copy(newest, out);
+            return true;
+        }
+        if (timestamp <= mT[mOldest]) {
+            copy(mOldest, out);
+            return true;
+        }
+
+        // Binary search (in ring order) for the first sample after the timestamp
+        int lo = 0;
+        int hi = mSize - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mT[index(mid)] > timestamp) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+
+        int after = index(lo);
+        int before = index(lo - 1);
+        interpolate(mX[before], mY[before], mTheta[before], mX[after], mY[after], mTheta[after],
+                (timestamp - mT[before]) / (mT[after] - mT[before]), out);
+        return true;
+    }
+
+    /**
+     * Same as TimeInterpolatableBuffer.getSample, allocates the returned pose.
+     */
+    public Optional<Pose2d> getSample(double timestamp) {
+        if (!getSample(timestamp, mScratch)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Pose2d(mScratch.x, mScratch.y, new Rotation2d(mScratch.theta)));
+    }
+
+    private void copy(int i, Sample out) {
+        out.x = mX[i];
+        out.y = mY[i];
+        out.theta = mTheta[i];
+    }
+
+    // a * exp(log(a^-1 * b) * t), written out on primitives
+    private static void interpolate(double x0, double y0, double theta0, double x1, double y1, double theta1,
+            double t, Sample out) {
+        double cos0 = Math.cos(theta0);
+        double sin0 = Math.sin(theta0);
+
+        // a^-1 * b
+        double dx = cos0 * (x1 - x0) + sin0 * (y1 - y0);
+        double dy = -sin0 * (x1 - x0) + cos0 * (y1 - y0);
+        double dtheta = Math.IEEEremainder(theta1 - theta0, 2.0 * Math.PI);
+
+        // log
+        double half_dtheta = 0.5 * dtheta;
+        double cos_minus_one = Math.cos(dtheta) - 1.0;
+        double halftheta_by_tan_of_halfdtheta;
+        if (Math.abs(cos_minus_one) < kEps) {
+            halftheta_by_tan_of_halfdtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halftheta_by_tan_of_halfdtheta = -(half_dtheta * Math.sin(dtheta)) / cos_minus_one;
+        }
+        double twist_dx = (dx * halftheta_by_tan_of_halfdtheta + dy * half_dtheta) * t;
+        double twist_dy = (-dx * half_dtheta + dy * halftheta_by_tan_of_halfdtheta) * t;
+        double twist_dtheta = dtheta * t;
+
+        // exp
+        double s, c;
+        if (Math.abs(twist_dtheta) < kEps) {
+            s = 1.0 - 1.0 / 6.0 * twist_dtheta * twist_dtheta;
+            c = .5 * twist_dtheta;
+        } else {
+            s = Math.sin(twist_dtheta) / twist_dtheta;
+            c = (1.0 - Math.cos(twist_dtheta)) / twist_dtheta;
+        }
+        double ex = twist_dx * s - twist_dy * c;
+        double ey = twist_dx * c + twist_dy * s;
+
+        out.x = x0 + cos0 * ex - sin0 * ey;
+        out.y = y0 + sin0 * ex + cos0 * ey;
+        out.theta = Math.IEEEremainder(theta0 + twist_dtheta, 2.0 * Math.PI);
+    }
+
+    // i-th sample counting from the oldest
+    private int index(int i) {
+        int j = mOldest + i;
+        return j >= mCapacity ? j - mCapacity : j;
+    }
+}
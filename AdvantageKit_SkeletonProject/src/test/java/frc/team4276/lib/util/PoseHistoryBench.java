@@ -0,0 +1,87 @@
+package frc.team4276.lib.util;
+
+import java.lang.management.ManagementFactory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.interpolation.TimeInterpolatableBuffer;
+
+/*
+ * Desktop tool comparing PoseHistory with the TimeInterpolatableBuffer it replaced, using the odometry
+ * pattern from RobotState: one insert per 250 Hz odometry sample and a sample at a vision timestamp ~50ms in the
+ * past. Prints ns/op and bytes/op after a warmup pass:
+ *
+ *   gradlew runBench -Pbench=frc.team4276.lib.util.PoseHistoryBench -PbenchArgs="[iterations]"
+ */
+public class PoseHistoryBench {
+    private static final double kDt = 1.0 / 250.0;
+    private static final double kHistorySeconds = 1.0;
+    private static final int kCapacity = 300;
+    private static final double kVisionLatency = 0.05;
+
+    private static double sink = 0.0;
+
+    public static void main(String[] args) {
+        int iterations = args.length >= 1 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        System.out.println("op                                  ns/op    bytes/op");
+
+        for (int pass = 0; pass < 2; pass++) {
+            boolean print = pass == 1;
+
+            TimeInterpolatableBuffer<Pose2d> buffer = TimeInterpolatableBuffer.createBuffer(kHistorySeconds);
+            PoseHistory history = new PoseHistory(kCapacity, kHistorySeconds);
+            PoseHistory.Sample sample = new PoseHistory.Sample();
+
+            long[] stats = start();
+            for (int i = 0; i < iterations; i++) {
+                buffer.addSample(i * kDt, new Pose2d(i * 0.01, i * 0.002, new Rotation2d(i * 0.001)));
+            }
+            report("insert, TimeInterpolatableBuffer", stats, iterations, print);
+
+            stats = start();
+            for (int i = 0; i < iterations; i++) {
+                history.addSample(i * kDt, i * 0.01, i * 0.002, i * 0.001);
+            }
+            report("insert, PoseHistory", stats, iterations, print);
+
+            double newest = (iterations - 1) * kDt;
+            stats = start();
+            for (int i = 0; i < iterations; i++) {
+                sink += buffer.getSample(newest - kVisionLatency - (i % 37) * 1e-3).get().getX();
+            }
+            report("sample, TimeInterpolatableBuffer", stats, iterations, print);
+
+            stats = start();
+            for (int i = 0; i < iterations; i++) {
+                history.getSample(newest - kVisionLatency - (i % 37) * 1e-3, sample);
+                sink += sample.x;
+            }
+            report("sample, PoseHistory", stats, iterations, print);
+        }
+
+        if (Double.isNaN(sink)) {
+            System.out.println("NaN");
+        }
+    }
+
+    private static long[] start() {
+        return new long[] { allocatedBytes(), System.nanoTime() };
+    }
+
+    private static void report(String name, long[] start, int iterations, boolean print) {
+        long nanos = System.nanoTime() - start[1];
+        long bytes = allocatedBytes() - start[0];
+        if (print) {
+            System.out.printf("%-34s %8.1f %11.1f%n", name, (double) nanos / iterations, (double) bytes / iterations);
+        }
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,123 @@
+package frc.team4276.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Sampling has to follow the constant curvature path between neighbouring samples, keep working once the ring has
+ * wrapped, and clamp to the ends outside the history.
+ */
+public class PoseHistoryTest {
+    private static final double kEpsilon = 1e-9;
+
+    private static void assertSample(double x, double y, double theta, PoseHistory.Sample actual) {
+        assertEquals(x, actual.x, kEpsilon, "x");
+        assertEquals(y, actual.y, kEpsilon, "y");
+        assertEquals(0.0, Math.IEEEremainder(theta - actual.theta, 2.0 * Math.PI), kEpsilon, "theta");
+    }
+
+    @Test
+    public void emptyHistoryHasNoSample() {
+        PoseHistory history = new PoseHistory(8, 1.0);
+        assertFalse(history.getSample(0.0, new PoseHistory.Sample()));
+        assertTrue(history.isEmpty());
+    }
+
+    @Test
+    public void interpolatesStraightLines() {
+        PoseHistory history = new PoseHistory(8, 1.0);
+        PoseHistory.Sample sample = new PoseHistory.Sample();
+        history.addSample(0.0, 0.0, 0.0, 0.5);
+        history.addSample(1.0, 2.0, 1.0, 0.5);
+
+        history.getSample(0.25, sample);
+        assertSample(0.5, 0.25, 0.5, sample);
+    }
+
+    @Test
+    public void interpolatesAlongTheArc() {
+        // Quarter turn left on a unit circle centred at (0, 1)
+        PoseHistory history = new PoseHistory(8, 1.0);
+        PoseHistory.Sample sample = new PoseHistory.Sample();
+        history.addSample(0.0, 0.0, 0.0, 0.0);
+        history.addSample(1.0, 1.0, 1.0, 0.5 * Math.PI);
+
+        for (double t = 0.0; t <= 1.0; t += 0.125) {
+            double angle = 0.5 * Math.PI * t;
+            history.getSample(t, sample);
+            assertSample(Math.sin(angle), 1.0 - Math.cos(angle), angle, sample);
+        }
+    }
+
+    @Test
+    public void interpolatesHeadingAcrossPi() {
+        PoseHistory history = new PoseHistory(8, 1.0);
+        PoseHistory.Sample sample = new PoseHistory.Sample();
+        history.addSample(0.0, 1.0, 2.0, Math.PI - 0.1);
+        history.addSample(1.0, 1.0, 2.0, -Math.PI + 0.1);
+
+        history.getSample(0.5, sample);
+        assertSample(1.0, 2.0, Math.PI, sample);
+    }
+
+    @Test
+    public void keepsNewestSamplesOnceWrapped() {
+        PoseHistory history = new PoseHistory(4, 10.0);
+        PoseHistory.Sample sample = new PoseHistory.Sample();
+        for (int i = 0; i < 11; i++) {
+            history.addSample(i * 0.1, i, -i, 0.0);
+        }
+
+        assertEquals(4, history.size());
+        assertEquals(0.7, history.getOldestTimestamp(), kEpsilon);
+        assertEquals(1.0, history.getNewestTimestamp(), kEpsilon);
+
+        history.getSample(0.75, sample);
+        assertSample(7.5, -7.5, 0.0, sample);
+        history.getSample(0.95, sample);
+        assertSample(9.5, -9.5, 0.0, sample);
+    }
+
+    @Test
+    public void clampsOutsideTheHistory() {
+        PoseHistory history = new PoseHistory(4, 10.0);
+        PoseHistory.Sample sample = new PoseHistory.Sample();
+        for (int i = 0; i < 11; i++) {
+            history.addSample(i * 0.1, i, -i, 0.1 * i);
+        }
+
+        history.getSample(0.2, sample);
+        assertSample(7.0, -7.0, 0.7, sample);
+        history.getSample(5.0, sample);
+        assertSample(10.0, -10.0, 1.0, sample);
+    }
+
+    @Test
+    public void dropsSamplesOlderThanTheHistoryTime() {
+        PoseHistory history = new PoseHistory(100, 0.25);
+        for (int i = 0; i <= 10; i++) {
+            history.addSample(i * 0.1, i, 0.0, 0.0);
+        }
+
+        assertEquals(0.8, history.getOldestTimestamp(), kEpsilon);
+        assertEquals(3, history.size());
+    }
+
+    @Test
+    public void timeGoingBackwardsDropsNewerSamples() {
+        PoseHistory history = new PoseHistory(8, 10.0);
+        PoseHistory.Sample sample = new PoseHistory.Sample();
+        for (int i = 0; i < 5; i++) {
+            history.addSample(i * 0.1, i, 0.0, 0.0);
+        }
+        history.addSample(0.25, 100.0, 0.0, 0.0);
+
+        assertEquals(4, history.size());
+        assertEquals(0.25, history.getNewestTimestamp(), kEpsilon);
+        history.getSample(0.3, sample);
+        assertSample(100.0, 0.0, 0.0, sample);
+    }
+}
@@ -1,8 +1,22 @@
 package frc.team1678.lib.drivers;
 
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
 import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import frc.team4276.lib.util.RollingStats;
 
+/**
+ * Polled once per loop by default. With edge capture on, a DIO interrupt timestamps every edge on the FPGA and
+ * queues it for the next {@link #update()}, so edges between loops aren't missed, the edge counts move as soon as
+ * the edge happens, and a trip callback can act on it from the interrupt thread without waiting for the loop.
+ */
 public class BeamBreak {
+	private static final int kEdgeQueueCapacity = 32;
+	private static final int kStatsWindow = 100;
 
 	private boolean lastStatus;
 
@@ -11,17 +25,138 @@ public class BeamBreak {
 
 	private final DigitalInput mBreak;
 
+	// Edge capture, null when polled
+	private final AsynchronousInterrupt mInterrupt;
+
+	// Single producer (interrupt thread), single consumer (update) ring of edges
+	private final double[] mEdgeTimestamps = new double[kEdgeQueueCapacity];
+	private final boolean[] mEdgeBroken = new boolean[kEdgeQueueCapacity];
+	private volatile int mEdgeWriteIndex = 0;
+	private volatile int mEdgeReadIndex = 0;
+	private volatile long mDroppedEdges = 0;
+
+	// Only written by the interrupt thread with edge capture, by update otherwise
+	private volatile long mTripCount = 0;
+	private volatile long mClearCount = 0;
+	private double mLastTripTimestamp = Double.NaN;
+
+	// Broken before the interrupt was enabled, there's no edge for it but polling reports it on the first update
+	private boolean mStartupTrip = false;
+
+	private final AtomicReference<Runnable> mTripCallback = new AtomicReference<>();
+
+	// From the edge on the FPGA to the interrupt thread (and trip callback) running, and to the loop seeing it,
+	// which is what polling would react with
+	private final RollingStats mInterruptLatency = new RollingStats(kStatsWindow);
+	private final RollingStats mLoopLatency = new RollingStats(kStatsWindow);
+
 	public BeamBreak(int channel) {
+		this(channel, false);
+	}
+
+	public BeamBreak(int channel, boolean edge_capture) {
 		mBreak = new DigitalInput(channel);
+
+		if (edge_capture) {
+			mInterrupt = new AsynchronousInterrupt(mBreak, this::onInterrupt);
+			mInterrupt.setInterruptEdges(true, true);
+			if (get()) {
+				mStartupTrip = true;
+				mTripCount = 1;
+			}
+			mInterrupt.enable();
+		} else {
+			mInterrupt = null;
+		}
 	}
 
 	public void update() {
 		boolean value = get();
-		tripped = value && !lastStatus;
-		cleared = !value && lastStatus;
+
+		if (mInterrupt == null) {
+			tripped = value && !lastStatus;
+			cleared = !value && lastStatus;
+			if (tripped) {
+				mTripCount++;
+			}
+			if (cleared) {
+				mClearCount++;
+			}
+
+		} else {
+			// Any edge since the last loop counts, even if the beam has gone back since
+			tripped = mStartupTrip;
+			cleared = false;
+			mStartupTrip = false;
+			double now = Timer.getFPGATimestamp();
+
+			int read = mEdgeReadIndex;
+			int write = mEdgeWriteIndex;
+			while (read != write) {
+				int i = read % kEdgeQueueCapacity;
+				if (mEdgeBroken[i]) {
+					tripped = true;
+					mLastTripTimestamp = mEdgeTimestamps[i];
+					mLoopLatency.addValue(now - mEdgeTimestamps[i]);
+				} else {
+					cleared = true;
+				}
+				read++;
+			}
+			mEdgeReadIndex = read;
+		}
+
 		lastStatus = value;
 	}
 
+	// Interrupt thread. The DIO reads high with the beam intact, so a falling edge is a trip.
+	private void onInterrupt(Boolean rising, Boolean falling) {
+		double now = Timer.getFPGATimestamp();
+
+		if (rising && falling) {
+			// Both since the last wake up, queue them in the order they happened
+			double rising_timestamp = mInterrupt.getRisingTimestamp();
+			double falling_timestamp = mInterrupt.getFallingTimestamp();
+			if (falling_timestamp <= rising_timestamp) {
+				onEdge(true, falling_timestamp, now);
+				onEdge(false, rising_timestamp, now);
+			} else {
+				onEdge(false, rising_timestamp, now);
+				onEdge(true, falling_timestamp, now);
+			}
+
+		} else if (falling) {
+			onEdge(true, mInterrupt.getFallingTimestamp(), now);
+
+		} else if (rising) {
+			onEdge(false, mInterrupt.getRisingTimestamp(), now);
+		}
+	}
+
+	private void onEdge(boolean broken, double timestamp, double now) {
+		int write = mEdgeWriteIndex;
+		if (write - mEdgeReadIndex < kEdgeQueueCapacity) {
+			int i = write % kEdgeQueueCapacity;
+			mEdgeTimestamps[i] = timestamp;
+			mEdgeBroken[i] = broken;
+			mEdgeWriteIndex = write + 1;
+		} else {
+			mDroppedEdges++;
+		}
+
+		if (broken) {
+			mTripCount++;
+			mInterruptLatency.addValue(now - timestamp);
+
+			Runnable callback = mTripCallback.getAndSet(null);
+			if (callback != null) {
+				callback.run();
+			}
+		} else {
+			mClearCount++;
+		}
+	}
+
 	public boolean get() {
 		return !mBreak.get();
 	}
@@ -33,4 +168,56 @@ public class BeamBreak {
 	public boolean wasCleared() {
 		return cleared;
 	}
-}
\ No newline at end of file
+
+	public boolean isEdgeCapture() {
+		return mInterrupt != null;
+	}
+
+	/**
+	 * Moves as soon as the beam is broken with edge capture, so comparing it with an earlier value catches a trip
+	 * even if the beam has already cleared again. With polling it only moves in {@link #update()}.
+	 */
+	public long getTripCount() {
+		return mTripCount;
+	}
+
+	/** @see #getTripCount() */
+	public long getClearCount() {
+		return mClearCount;
+	}
+
+	/** FPGA time of the last trip edge seen by {@link #update()}, NaN if none or polled */
+	public double getLastTripTimestamp() {
+		return mLastTripTimestamp;
+	}
+
+	/**
+	 * Runs the callback once, on the interrupt thread, the next time the beam is broken. Keep it short and don't take
+	 * locks the loop holds. Replaces a callback that hasn't run yet. Does nothing when polled.
+	 */
+	public void armTripCallback(Runnable callback) {
+		if (mInterrupt != null) {
+			mTripCallback.set(callback);
+		}
+	}
+
+	public void disarmTripCallback() {
+		mTripCallback.set(null);
+	}
+
+	public void outputTelemetry(String name) {
+		if (mInterrupt == null) {
+			return;
+		}
+
+		String prefix = "Debug/BeamBreak/" + name + "/";
+		SmartDashboard.putNumber(prefix + "Interrupt Latency p50 (ms)", mInterruptLatency.getPercentile(0.5) * 1e3);
+		SmartDashboard.putNumber(prefix + "Interrupt Latency p99 (ms)", mInterruptLatency.getPercentile(0.99) * 1e3);
+		SmartDashboard.putNumber(prefix + "Interrupt Latency Max (ms)", mInterruptLatency.getMax() * 1e3);
+		SmartDashboard.putNumber(prefix + "Polled Latency p50 (ms)", mLoopLatency.getPercentile(0.5) * 1e3);
+		SmartDashboard.putNumber(prefix + "Polled Latency p99 (ms)", mLoopLatency.getPercentile(0.99) * 1e3);
+		SmartDashboard.putNumber(prefix + "Polled Latency Max (ms)", mLoopLatency.getMax() * 1e3);
+		SmartDashboard.putNumber(prefix + "Trips", mTripCount);
+		SmartDashboard.putNumber(prefix + "Dropped Edges", mDroppedEdges);
+	}
+}
@@ -0,0 +1,69 @@
+package frc.team1678.lib.loops;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Register last on a looper to let other threads wait for the end of each cycle, after every other loop's onLoop has
+ * returned, instead of sleeping on their own clock.
+ */
+public class LoopBarrier implements Loop {
+    private final Object mLock = new Object();
+
+    private volatile long mCycle = 0;
+    private volatile double mCycleTimestamp = Double.NaN;
+    private volatile boolean mRunning = false;
+
+    @Override
+    public void onStart(double timestamp) {
+        mRunning = true;
+    }
+
+    @Override
+    public void onLoop(double timestamp) {
+        synchronized (mLock) {
+            mCycleTimestamp = Timer.getFPGATimestamp();
+            mCycle++;
+            mLock.notifyAll();
+        }
+    }
+
+    @Override
+    public void onStop(double timestamp) {
+        synchronized (mLock) {
+            mRunning = false;
+            mLock.notifyAll();
+        }
+    }
+
+    public long getCycle() {
+        return mCycle;
+    }
+
+    /** FPGA time the last cycle finished at, NaN before the first one */
+    public double getCycleTimestamp() {
+        return mCycleTimestamp;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Blocks until a cycle after {@code seen} has finished, the looper stops, or the timeout runs out.
+     *
+     * @return the latest cycle
+     */
+    public long awaitCycleAfter(long seen, double timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + (long) (timeout * 1e9);
+        synchronized (mLock) {
+            while (mCycle <= seen && mRunning) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                mLock.wait(remaining / 1000000, (int) (remaining % 1000000));
+            }
+            return mCycle;
+        }
+    }
+}
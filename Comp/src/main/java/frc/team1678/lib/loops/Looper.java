@@ -8,6 +8,7 @@ import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.team4276.frc2024.Constants;
 import frc.team4276.lib.Threading.ThreadWait;
+import frc.team4276.lib.util.RollingStats;
 
 /**
  * This code runs all of the robot's loops. Loop objects are stored in a List object. They are started when the robot
@@ -16,8 +17,20 @@ import frc.team4276.lib.Threading.ThreadWait;
 public class Looper implements ILooper {
     public final double kPeriod;
 
+    public enum SchedulerMode {
+        // Periodic notifier plus a ThreadWait spin to the end of the period
+        BUSY_WAIT,
+        // Notifier is re-armed for the next absolute deadline, missed periods are skipped instead of bursted
+        DEADLINE
+    }
+
+    private static final int kStatsWindow = 250;
+    private static final int kPublishDivider = 25;
+
     private boolean running_;
 
+    private final String name_;
+    private final SchedulerMode mode_;
     private final Notifier notifier_;
     private final List<Loop> loops_;
     private final Object taskRunningLock_ = new Object();
@@ -25,6 +38,15 @@ public class Looper implements ILooper {
     private double dt_ = 0;
     public double dt(){ return dt_; }
 
+    private double next_deadline_ = 0;
+    private double last_loop_start_ = Double.NaN;
+    private volatile long overruns_ = 0;
+
+    private final RollingStats period_stats_ = new RollingStats(kStatsWindow);
+    private final RollingStats exec_stats_ = new RollingStats(kStatsWindow);
+    private final RollingStats phase_stats_ = new RollingStats(kStatsWindow);
+    private int publish_counter_ = 0;
+
     private final CrashTrackingRunnable runnable_ = new CrashTrackingRunnable() {
         @Override
         public void runCrashTracked() {
@@ -35,27 +57,76 @@ public class Looper implements ILooper {
                     for (Loop loop : loops_) {
                         loop.onLoop(now);
                     }
-                    ThreadWait.threadWait(0.02, timestamp_, now);
-                    now = Timer.getFPGATimestamp();
-                    dt_ = now - timestamp_;
-                    timestamp_ = now;
+
+                    recordTiming(now, Timer.getFPGATimestamp());
+
+                    if (mode_ == SchedulerMode.DEADLINE) {
+                        now = Timer.getFPGATimestamp();
+                        notifier_.startSingle(Math.max(next_deadline_ - now, 0.0));
+                        dt_ = now - timestamp_;
+                        timestamp_ = now;
+
+                    } else {
+                        ThreadWait.threadWait(0.02, timestamp_, now);
+                        now = Timer.getFPGATimestamp();
+                        dt_ = now - timestamp_;
+                        timestamp_ = now;
+                    }
                     // System.out.println(dt_);
                 }
             }
         }
     };
 
-    public Looper(double loop_time) {
+    public Looper(String name, double loop_time, SchedulerMode mode) {
         notifier_ = new Notifier(runnable_);
+        notifier_.setName(name);
         running_ = false;
         loops_ = new ArrayList<>();
         kPeriod = loop_time;
+        name_ = name;
+        mode_ = mode;
+    }
+
+    public Looper(String name, SchedulerMode mode) {
+        this(name, Constants.kLooperDt, mode);
+    }
+
+    public Looper(double loop_time) {
+        this("Looper", loop_time, SchedulerMode.BUSY_WAIT);
     }
 
     public Looper() {
         this(Constants.kLooperDt);
     }
 
+    /**
+     * Must be called with taskRunningLock_ held
+     *
+     * @param loop_start timestamp the loops were started at
+     * @param loop_end timestamp the last loop returned at
+     */
+    private void recordTiming(double loop_start, double loop_end) {
+        // Positive when the loop woke up after its scheduled deadline
+        phase_stats_.addValue(loop_start - next_deadline_);
+        exec_stats_.addValue(loop_end - loop_start);
+        if (!Double.isNaN(last_loop_start_)) {
+            period_stats_.addValue(loop_start - last_loop_start_);
+        }
+        last_loop_start_ = loop_start;
+
+        next_deadline_ += kPeriod;
+        if (loop_end >= next_deadline_) {
+            long missed = (long) Math.floor((loop_end - next_deadline_) / kPeriod) + 1;
+            overruns_ += missed;
+
+            // A periodic notifier catches up on its own; a deadline scheduler skips to the next whole period
+            if (mode_ == SchedulerMode.DEADLINE) {
+                next_deadline_ += missed * kPeriod;
+            }
+        }
+    }
+
     @Override
     public synchronized void register(Loop loop) {
         synchronized (taskRunningLock_) {
@@ -72,9 +143,16 @@ public class Looper implements ILooper {
                     loop.onStart(timestamp_);
                 }
                 //ThreadWait.threadWait(0.02, timestamp_);
+                next_deadline_ = timestamp_ + kPeriod;
+                last_loop_start_ = Double.NaN;
                 running_ = true;
             }
-            notifier_.startPeriodic(kPeriod);
+
+            if (mode_ == SchedulerMode.DEADLINE) {
+                notifier_.startSingle(kPeriod);
+            } else {
+                notifier_.startPeriodic(kPeriod);
+            }
         }
     }
 
@@ -93,7 +171,29 @@ public class Looper implements ILooper {
         }
     }
 
+    public SchedulerMode getSchedulerMode() {
+        return mode_;
+    }
+
+    public long getOverrunCount() {
+        return overruns_;
+    }
+
     public void outputToSmartDashboard() {
-        SmartDashboard.putNumber("Debug/looper_dt", dt_);
+        SmartDashboard.putNumber("Debug/" + name_ + "/looper_dt", dt_);
+
+        // Percentiles sort the whole window so only publish a few times a second
+        if (++publish_counter_ < kPublishDivider) return;
+        publish_counter_ = 0;
+
+        String prefix = "Debug/" + name_ + "/";
+        SmartDashboard.putString(prefix + "Scheduler Mode", mode_.name());
+        SmartDashboard.putNumber(prefix + "Overruns", getOverrunCount());
+        SmartDashboard.putNumber(prefix + "Period p50 (ms)", period_stats_.getPercentile(0.5) * 1000.0);
+        SmartDashboard.putNumber(prefix + "Period p99 (ms)", period_stats_.getPercentile(0.99) * 1000.0);
+        SmartDashboard.putNumber(prefix + "Exec p50 (ms)", exec_stats_.getPercentile(0.5) * 1000.0);
+        SmartDashboard.putNumber(prefix + "Exec p99 (ms)", exec_stats_.getPercentile(0.99) * 1000.0);
+        SmartDashboard.putNumber(prefix + "Phase Drift Mean (ms)", phase_stats_.getMean() * 1000.0);
+        SmartDashboard.putNumber(prefix + "Phase Drift p99 (ms)", phase_stats_.getPercentile(0.99) * 1000.0);
     }
 }
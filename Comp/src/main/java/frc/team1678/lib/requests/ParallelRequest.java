@@ -1,37 +1,45 @@
 package frc.team1678.lib.requests;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * A request type that runs all passed in requests at the same time.
+ *
+ * <p>
+ * Which requests have finished is kept in a bitmask rather than by removing them from the list, so the same
+ * ParallelRequest can be acted again to run it over.
  */
 public class ParallelRequest extends Request {
+    private static final int kMaxRequests = Long.SIZE;
+
+    private final Request[] requests;
+    private final long allFinished;
+    private long finished = 0L;
 
-    List<Request> requests = new ArrayList<>();
-    
     /**
      * Adds any length of requests to the list of requests using variable args.
-     * @param requests Can be any amount of requests from 0 - inf. Requests can be passed in with a separation of commas.
+     * @param requests Can be any amount of requests from 0 - 64. Requests can be passed in with a separation of commas.
      */
     public ParallelRequest(Request... reqs) {
-        for (Request request : reqs) {
-            this.requests.add(request);
+        if (reqs.length > kMaxRequests) {
+            throw new IllegalArgumentException("ParallelRequest takes at most " + kMaxRequests + " requests");
         }
+
+        requests = reqs.clone();
+        allFinished = reqs.length == kMaxRequests ? -1L : (1L << reqs.length) - 1;
     }
 
     /**
      * Appends a list of requests to the empty parallel request list.
-     * @param requests List of requests.
+     * @param requests List of requests, at most 64.
      */
     public ParallelRequest(List<Request> reqs) {
-        for (Request request : reqs) {
-            this.requests.add(request);
-        }
+        this(reqs.toArray(new Request[0]));
     }
 
     @Override
     public void act() {
+        finished = 0L;
         for (Request request : requests) {
             request.act();
         }        
@@ -39,8 +47,13 @@ public class ParallelRequest extends Request {
 
     @Override
     public boolean isFinished() {
-        requests.removeIf((r) -> r.isFinished());
-        return requests.isEmpty();  
+        for (int i = 0; i < requests.length; i++) {
+            long bit = 1L << i;
+            if ((finished & bit) == 0 && requests[i].isFinished()) {
+                finished |= bit;
+            }
+        }
+        return finished == allFinished;
     }
     
 }
@@ -9,7 +9,8 @@ import java.util.List;
 public abstract class Request {
 
     /**
-     * Empty method that will be filled with all of the executable(s) for the given request.
+     * Empty method that will be filled with all of the executable(s) for the given request. Should also reset
+     * whatever isFinished() tracks, so a request can be built once and acted again every time it's needed.
      */
     public abstract void act();
 
@@ -0,0 +1,127 @@
+package frc.team1678.lib.requests;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import frc.team4276.lib.util.RollingStats;
+
+/**
+ * Runs the active request and then the queued ones. Every update keeps going until it gets to a request that isn't
+ * finished yet, so a chain of requests that are already satisfied completes in one loop instead of one per loop.
+ * Records how long each request took from act() to finished, by name.
+ *
+ * <p>
+ * Not thread safe, update it from the loop that owns it.
+ */
+public class RequestExecutor {
+    // Guards against a request that never stops handing out finished steps
+    private static final int kMaxStepsPerUpdate = 64;
+    private static final int kStatsWindow = 50;
+
+    private final String mName;
+
+    private final ArrayList<Request> mQueuedRequests = new ArrayList<>();
+    private final ArrayList<String> mQueuedNames = new ArrayList<>();
+    private Request mActiveRequest = null;
+    private String mActiveName = null;
+    private boolean mHasNewRequest = false;
+    private boolean mAllRequestsComplete = true;
+
+    private long mActStartNanos = 0;
+    private int mActiveUpdates = 0;
+
+    private final Map<String, RollingStats> mLatencies = new HashMap<>();
+    private final Map<String, RollingStats> mUpdates = new HashMap<>();
+
+    public RequestExecutor(String name) {
+        mName = name;
+    }
+
+    /** Replaces the active request and drops the queued ones */
+    public void request(String name, Request r) {
+        mQueuedRequests.clear();
+        mQueuedNames.clear();
+        setActiveRequest(name, r);
+    }
+
+    /** Runs after the active request and the ones queued before it */
+    public void queue(String name, Request r) {
+        mQueuedRequests.add(r);
+        mQueuedNames.add(name);
+        mAllRequestsComplete = false;
+    }
+
+    public void clear() {
+        mQueuedRequests.clear();
+        mQueuedNames.clear();
+        mActiveRequest = null;
+        mActiveName = null;
+        mHasNewRequest = false;
+        mAllRequestsComplete = true;
+    }
+
+    public boolean allRequestsComplete() {
+        return mAllRequestsComplete;
+    }
+
+    public void update() {
+        for (int i = 0; i < kMaxStepsPerUpdate; i++) {
+            if (mActiveRequest == null) {
+                if (mQueuedRequests.isEmpty()) {
+                    mAllRequestsComplete = true;
+                    return;
+                }
+
+                setActiveRequest(mQueuedNames.remove(0), mQueuedRequests.remove(0));
+            }
+
+            if (mHasNewRequest) {
+                mActStartNanos = System.nanoTime();
+                mActiveUpdates = 0;
+                mActiveRequest.act();
+                mHasNewRequest = false;
+            }
+
+            mActiveUpdates++;
+            if (!mActiveRequest.isFinished()) {
+                return;
+            }
+
+            stats(mLatencies, mActiveName).addValue(System.nanoTime() - mActStartNanos);
+            stats(mUpdates, mActiveName).addValue(mActiveUpdates);
+            mActiveRequest = null;
+            mActiveName = null;
+        }
+    }
+
+    private void setActiveRequest(String name, Request r) {
+        mActiveRequest = r;
+        mActiveName = name;
+        mHasNewRequest = true;
+        mAllRequestsComplete = false;
+    }
+
+    private static RollingStats stats(Map<String, RollingStats> map, String name) {
+        RollingStats stats = map.get(name);
+        if (stats == null) {
+            stats = new RollingStats(kStatsWindow);
+            map.put(name, stats);
+        }
+        return stats;
+    }
+
+    public void outputTelemetry() {
+        SmartDashboard.putString("Debug/" + mName + "/Active Request", mActiveName == null ? "None" : mActiveName);
+        SmartDashboard.putNumber("Debug/" + mName + "/Queued Requests", mQueuedRequests.size());
+
+        for (Map.Entry<String, RollingStats> entry : mLatencies.entrySet()) {
+            String prefix = "Debug/" + mName + "/" + entry.getKey();
+            SmartDashboard.putNumber(prefix + " Latency p50 (ms)", entry.getValue().getPercentile(0.5) * 1e-6);
+            SmartDashboard.putNumber(prefix + " Latency p99 (ms)", entry.getValue().getPercentile(0.99) * 1e-6);
+            SmartDashboard.putNumber(prefix + " Loops Mean", mUpdates.get(entry.getKey()).getMean());
+        }
+    }
+}
@@ -1,22 +1,23 @@
 package frc.team1678.lib.requests;
 
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Runs the passed in requests one after the other. Steps are tracked by index instead of being removed, so the same
+ * SequentialRequest can be acted again to run it over from the first step.
+ */
 public class SequentialRequest extends Request {
 
-    List<Request> requests;
-    Request currentRequest = null;
+    private final Request[] requests;
+    // Step being run, -1 before act() and requests.length once every step is done
+    private int currentIndex = -1;
 
     /**
      * Adds in a list of requests into the local requests list using variable arguments.
      * @param reqs List of Request type arguments delineated by a comma. Can range from 0 - inf.
      */
     public SequentialRequest(Request... reqs) {
-        this.requests = new ArrayList<>();
-        for (Request req : reqs) {
-            this.requests.add(req);
-        }
+        requests = reqs.clone();
     }
 
     /**
@@ -24,51 +25,46 @@ public class SequentialRequest extends Request {
      * @param reqs List of Request type arguments.
      */
     public SequentialRequest(List<Request> reqs) {
-        this.requests = new ArrayList<>();
-        for (Request req : reqs) {
-            this.requests.add(req);
-        }
+        requests = reqs.toArray(new Request[0]);
     }
 
     @Override
     public void act() {
-        currentRequest = requests.remove(0);
-        currentRequest.act();        
+        currentIndex = 0;
+        if (requests.length > 0) {
+            requests[0].act();
+        }
     }
 
+    /**
+     * Moves through every step that's already finished, so a run of instant steps takes one call instead of one
+     * call each.
+     */
     @Override
     public boolean isFinished() {
-        if (currentRequest == null) {
-            if (requests.isEmpty()) {
-                currentRequest = null;
-                return true;
-            } else {
-                currentRequest = requests.remove(0);
-                currentRequest.act();
-            }
+        if (currentIndex < 0) {
+            act();
         }
 
-        if (currentRequest.isFinished()) {
-            if (requests.isEmpty()) {
-                currentRequest = null;
-                return true;
-            } else {
-                currentRequest = requests.remove(0);
-                currentRequest.act();
+        while (currentIndex < requests.length && requests[currentIndex].isFinished()) {
+            currentIndex++;
+            if (currentIndex < requests.length) {
+                requests[currentIndex].act();
             }
         }
-        return false;
+        return currentIndex >= requests.length;
     }
 
+    /** Steps after the current one */
     public int getListLength() {
-        return requests.size();
+        return Math.max(requests.length - Math.max(currentIndex, 0) - 1, 0);
     }
 
     public String getActiveRequest() {
-        if (currentRequest == null) {
+        if (currentIndex < 0 || currentIndex >= requests.length) {
             return "null";
         } else {
-            return currentRequest.toString();
+            return requests[currentIndex].toString();
         }
     }
     
@@ -0,0 +1,208 @@
+package frc.team1678.lib.swerve;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * SwerveDriveKinematics for exactly four modules with the center of rotation at
+ * the robot center, written out on doubles and writing into caller owned
+ * objects instead of going through SimpleMatrix every call.
+ *
+ * <p>
+ * The results are bit for bit the same as SwerveDriveKinematics: the forward
+ * coefficients are the same EJML pseudo inverse (computed once here), and
+ * every row is summed in the same order EJML's matrix-vector multiply uses,
+ * including the 1 and 0 entries of the inverse kinematics matrix so signed
+ * zeros and NaNs come out the same.
+ */
+public class FourModuleSwerveKinematics {
+    public static final int kNumModules = 4;
+
+    // Inverse kinematics rows are [1, 0, -y] and [0, 1, x] per module
+    private final double[] mModuleX = new double[kNumModules];
+    private final double[] mModuleNegY = new double[kNumModules];
+
+    // 3x8 pseudo inverse, row major
+    private final double[] mForward = new double[3 * 2 * kNumModules];
+
+    /**
+     * @param wheelsMeters module locations relative to the robot center, same
+     *                     order as the module state arrays
+     */
+    public FourModuleSwerveKinematics(Translation2d... wheelsMeters) {
+        if (wheelsMeters.length != kNumModules) {
+            throw new IllegalArgumentException("FourModuleSwerveKinematics requires exactly four modules");
+        }
+
+        SimpleMatrix inverseKinematics = new SimpleMatrix(kNumModules * 2, 3);
+        for (int i = 0; i < kNumModules; i++) {
+            mModuleX[i] = +wheelsMeters[i].getX();
+            mModuleNegY[i] = -wheelsMeters[i].getY();
+            inverseKinematics.setRow(i * 2 + 0, 0, 1, 0, mModuleNegY[i]);
+            inverseKinematics.setRow(i * 2 + 1, 0, 0, 1, mModuleX[i]);
+        }
+
+        SimpleMatrix forwardKinematics = inverseKinematics.pseudoInverse();
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < kNumModules * 2; c++) {
+                mForward[r * kNumModules * 2 + c] = forwardKinematics.get(r, c);
+            }
+        }
+    }
+
+    /**
+     * Module velocity components in the robot frame, the raw inverse
+     * kinematics before they're turned into speed and angle.
+     */
+    public void toModuleVelocities(double vx, double vy, double omega, double[] vxOut, double[] vyOut) {
+        for (int i = 0; i < kNumModules; i++) {
+            vxOut[i] = 1.0 * vx + 0.0 * vy + mModuleNegY[i] * omega;
+            vyOut[i] = 0.0 * vx + 1.0 * vy + mModuleX[i] * omega;
+        }
+    }
+
+    /**
+     * Same as {@link SwerveDriveKinematics#toModuleStates(ChassisSpeeds)}, with
+     * the states written into out. The only allocation left is the Rotation2d
+     * each state holds.
+     *
+     * <p>
+     * If the chassis speeds are zero only the speeds are zeroed, so the angles
+     * already in out are held like SwerveDriveKinematics holds its previous
+     * ones. Pass the same array every call for that to work.
+     *
+     * @return out
+     */
+    public ModuleState[] toModuleStates(ChassisSpeeds chassisSpeeds, ModuleState[] out) {
+        prepare(out);
+
+        if (chassisSpeeds.vxMetersPerSecond == 0.0
+                && chassisSpeeds.vyMetersPerSecond == 0.0
+                && chassisSpeeds.omegaRadiansPerSecond == 0.0) {
+            for (int i = 0; i < kNumModules; i++) {
+                out[i].speedMetersPerSecond = 0.0;
+            }
+            return out;
+        }
+
+        double vx = chassisSpeeds.vxMetersPerSecond;
+        double vy = chassisSpeeds.vyMetersPerSecond;
+        double omega = chassisSpeeds.omegaRadiansPerSecond;
+        for (int i = 0; i < kNumModules; i++) {
+            double x = 1.0 * vx + 0.0 * vy + mModuleNegY[i] * omega;
+            double y = 0.0 * vx + 1.0 * vy + mModuleX[i] * omega;
+
+            out[i].distanceMeters = Double.NaN;
+            out[i].speedMetersPerSecond = Math.hypot(x, y);
+            out[i].angle = new Rotation2d(x, y);
+        }
+
+        return out;
+    }
+
+    /**
+     * Same as {@link SwerveDriveKinematics#toChassisSpeeds(ModuleState...)},
+     * written into out.
+     *
+     * @return out
+     */
+    public ChassisSpeeds toChassisSpeeds(ModuleState[] wheelStates, ChassisSpeeds out) {
+        checkLength(wheelStates);
+
+        ModuleState s0 = wheelStates[0], s1 = wheelStates[1], s2 = wheelStates[2], s3 = wheelStates[3];
+        double m0 = s0.speedMetersPerSecond * s0.angle.getCos();
+        double m1 = s0.speedMetersPerSecond * s0.angle.getSin();
+        double m2 = s1.speedMetersPerSecond * s1.angle.getCos();
+        double m3 = s1.speedMetersPerSecond * s1.angle.getSin();
+        double m4 = s2.speedMetersPerSecond * s2.angle.getCos();
+        double m5 = s2.speedMetersPerSecond * s2.angle.getSin();
+        double m6 = s3.speedMetersPerSecond * s3.angle.getCos();
+        double m7 = s3.speedMetersPerSecond * s3.angle.getSin();
+
+        out.vxMetersPerSecond = forwardRow(0, m0, m1, m2, m3, m4, m5, m6, m7);
+        out.vyMetersPerSecond = forwardRow(1, m0, m1, m2, m3, m4, m5, m6, m7);
+        out.omegaRadiansPerSecond = forwardRow(2, m0, m1, m2, m3, m4, m5, m6, m7);
+        return out;
+    }
+
+    /**
+     * Same as {@link SwerveDriveKinematics#toTwist2d(SwerveModulePosition...)},
+     * written into out.
+     *
+     * @return out
+     */
+    public Twist2d toTwist2d(SwerveModulePosition[] wheelDeltas, Twist2d out) {
+        checkLength(wheelDeltas);
+
+        SwerveModulePosition d0 = wheelDeltas[0], d1 = wheelDeltas[1], d2 = wheelDeltas[2], d3 = wheelDeltas[3];
+        return toTwist2d(
+                d0.distanceMeters, d0.angle.getCos(), d0.angle.getSin(),
+                d1.distanceMeters, d1.angle.getCos(), d1.angle.getSin(),
+                d2.distanceMeters, d2.angle.getCos(), d2.angle.getSin(),
+                d3.distanceMeters, d3.angle.getCos(), d3.angle.getSin(),
+                out);
+    }
+
+    /**
+     * Forward kinematics for odometry on primitives: each module's distance
+     * travelled and the cos and sin of its angle.
+     *
+     * @return out
+     */
+    public Twist2d toTwist2d(
+            double distance0, double cos0, double sin0,
+            double distance1, double cos1, double sin1,
+            double distance2, double cos2, double sin2,
+            double distance3, double cos3, double sin3,
+            Twist2d out) {
+        double m0 = distance0 * cos0;
+        double m1 = distance0 * sin0;
+        double m2 = distance1 * cos1;
+        double m3 = distance1 * sin1;
+        double m4 = distance2 * cos2;
+        double m5 = distance2 * sin2;
+        double m6 = distance3 * cos3;
+        double m7 = distance3 * sin3;
+
+        out.dx = forwardRow(0, m0, m1, m2, m3, m4, m5, m6, m7);
+        out.dy = forwardRow(1, m0, m1, m2, m3, m4, m5, m6, m7);
+        out.dtheta = forwardRow(2, m0, m1, m2, m3, m4, m5, m6, m7);
+        return out;
+    }
+
+    // Left to right, same as EJML's MatrixVectorMult
+    private double forwardRow(int row, double m0, double m1, double m2, double m3, double m4, double m5,
+            double m6, double m7) {
+        int k = row * kNumModules * 2;
+        return mForward[k] * m0
+                + mForward[k + 1] * m1
+                + mForward[k + 2] * m2
+                + mForward[k + 3] * m3
+                + mForward[k + 4] * m4
+                + mForward[k + 5] * m5
+                + mForward[k + 6] * m6
+                + mForward[k + 7] * m7;
+    }
+
+    // Never write into the shared identity state
+    private static void prepare(ModuleState[] out) {
+        checkLength(out);
+        for (int i = 0; i < kNumModules; i++) {
+            if (out[i] == null || out[i] == ModuleState.kIdentity) {
+                out[i] = new ModuleState();
+            }
+        }
+    }
+
+    private static void checkLength(Object[] array) {
+        if (array.length != kNumModules) {
+            throw new IllegalArgumentException(
+                    "Number of modules is not consistent with number of wheel locations provided in "
+                            + "constructor");
+        }
+    }
+}
@@ -22,6 +22,13 @@ public class ModuleState extends SwerveModulePosition {
         this.speedMetersPerSecond = speedMetersPerSecond;
     }
 
+    public ModuleState set(ModuleState other) {
+        distanceMeters = other.distanceMeters;
+        angle = other.angle;
+        speedMetersPerSecond = other.speedMetersPerSecond;
+        return this;
+    }
+
     public static ModuleState fromSpeeds(Rotation2d angle, double speedMetersPerSecond) {
         return new ModuleState(Double.NaN, angle, speedMetersPerSecond);
     }
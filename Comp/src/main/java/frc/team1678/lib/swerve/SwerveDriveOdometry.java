@@ -6,8 +6,10 @@ package frc.team1678.lib.swerve;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.team254.lib.geometry.IPoseView;
+import frc.team254.lib.geometry.MutablePose2d;
 
 /**
  * Class for swerve drive odometry. Odometry allows you to track the robot's
@@ -21,14 +23,28 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  * path following.
  * Furthermore, odometry can be used for latency compensation when using
  * computer-vision systems.
+ *
+ * <p>
+ * The previous module distances and gyro angle are kept as primitives and the
+ * pose is integrated in place, so update() doesn't allocate and can be called
+ * at a higher rate than the main loop. The pose is exposed through a reused
+ * view, copy it if it needs to outlive the next update.
  */
 public class SwerveDriveOdometry {
-	private final SwerveDriveKinematics m_kinematics;
-	private Pose2d m_poseMeters;
-	private Rotation2d m_prevRotation;
+	private final FourModuleSwerveKinematics m_kinematics;
+	private final MutablePose2d m_pose = new MutablePose2d();
+	private double m_prevCos;
+	private double m_prevSin;
 
-	private final int m_numModules;
-	private SwerveModulePosition[] m_previousModulePositions;
+	private final int m_numModules = FourModuleSwerveKinematics.kNumModules;
+	private final double[] m_previousDistances = new double[m_numModules];
+
+	// Scratch, reused every update
+	private final double[] m_distances = new double[m_numModules];
+	private final double[] m_cos = new double[m_numModules];
+	private final double[] m_sin = new double[m_numModules];
+	private final Twist2d m_twist = new Twist2d();
+	private final MutablePose2d m_delta = new MutablePose2d();
 
 	/**
 	 * Constructs a SwerveDriveOdometry object.
@@ -38,23 +54,19 @@ public class SwerveDriveOdometry {
 	 * @param initialPose     The starting position of the robot on the field.
 	 */
 	public SwerveDriveOdometry(
-		SwerveDriveKinematics kinematics, SwerveModulePosition[] modulePositions, Pose2d initialPose) {
+		FourModuleSwerveKinematics kinematics, SwerveModulePosition[] modulePositions, Pose2d initialPose) {
 		m_kinematics = kinematics;
-		m_poseMeters = initialPose;
-		m_prevRotation = initialPose.getRotation();
-		m_numModules = modulePositions.length;
-		m_previousModulePositions = modulePositions;
+		resetPosition(modulePositions, initialPose);
 	}
 
 	/**
 	 * Constructs a SwerveDriveOdometry object with the default pose at the origin.
 	 *
 	 * @param kinematics      The swerve drive kinematics for your drivetrain.
-	 * @param gyroAngle       The angle reported by the gyroscope.
 	 * @param modulePositions The wheel positions reported by each module.
 	 */
 	public SwerveDriveOdometry(
-			SwerveDriveKinematics kinematics,
+			FourModuleSwerveKinematics kinematics,
 			SwerveModulePosition[] modulePositions) {
 		this(kinematics, modulePositions, new Pose2d());
 	}
@@ -69,37 +81,49 @@ public class SwerveDriveOdometry {
 	 * @param pose            The position on the field that your robot is at.
 	 */
 	public void resetPosition(SwerveModulePosition[] modulePositions, Pose2d pose) {
-		m_poseMeters = pose;
-		m_prevRotation = pose.getRotation();
-		m_previousModulePositions = modulePositions;
+		checkLength(modulePositions.length);
+
+		m_pose.setFromWPI(pose);
+		m_prevCos = m_pose.cos();
+		m_prevSin = m_pose.sin();
+		for (int i = 0; i < m_numModules; i++) {
+			m_previousDistances[i] = modulePositions[i].distanceMeters;
+		}
 	}
 
 	/**
 	 * Use when reseting gyro. Prevents inaccurate deltas for pose estimation.
 	 * If the gyro was at 15 deg then was reset to 0, the offset is -15.
-	 * @param gyroAngle Gyro offset
+	 * @param offset Gyro offset
 	 */
 	public void offsetGyro(Rotation2d offset) {
-		m_prevRotation = m_prevRotation.plus(offset);
+		double cos = m_prevCos * offset.getCos() - m_prevSin * offset.getSin();
+		double sin = m_prevCos * offset.getSin() + m_prevSin * offset.getCos();
+		m_prevCos = cos;
+		m_prevSin = sin;
 	}
 
 	/**
-	 * Returns the position of the robot on the field.
+	 * Returns the position of the robot on the field. Allocates, prefer
+	 * {@link #getPose()} in the loop.
 	 *
 	 * @return The pose of the robot (x and y are in meters).
 	 */
 	public Pose2d getPoseMeters() {
-		return m_poseMeters;
+		return m_pose.toWPI();
+	}
+
+	/**
+	 * The pose of the robot, updated in place by every update.
+	 */
+	public IPoseView getPose() {
+		return m_pose;
 	}
 
 	/**
 	 * Updates the robot's position on the field using forward kinematics and
 	 * integration of the pose
-	 * over time. This method automatically calculates the current time to calculate
-	 * period
-	 * (difference between two timestamps). The period is used to calculate the
-	 * change in distance
-	 * from a velocity. This also takes in an angle parameter which is used instead
+	 * over time. This also takes in an angle parameter which is used instead
 	 * of the angular
 	 * rate that is calculated from forward kinematics.
 	 *
@@ -107,44 +131,69 @@ public class SwerveDriveOdometry {
 	 * @param modulePositions The current position of all swerve modules. Please
 	 *                        provide the positions
 	 *                        in the same order in which you instantiated your
-	 *                        SwerveDriveKinematics.
-	 * @return The new pose of the robot.
+	 *                        kinematics.
+	 * @return The new pose of the robot, see {@link #getPose()}.
 	 */
-	public Pose2d update(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions) {
-		if (modulePositions.length != m_numModules) {
-			throw new IllegalArgumentException(
-					"Number of modules is not consistent with number of wheel locations provided in "
-							+ "constructor");
-		}
+	public IPoseView update(Rotation2d gyroAngle, SwerveModulePosition[] modulePositions) {
+		return update(gyroAngle.getCos(), gyroAngle.getSin(), modulePositions);
+	}
 
-		var moduleDeltas = new SwerveModulePosition[m_numModules];
-		for (int index = 0; index < m_numModules; index++) {
-			var current = modulePositions[index];
-			var previous = m_previousModulePositions[index];
+	/**
+	 * Same as {@link #update(Rotation2d, SwerveModulePosition[])} with the gyro
+	 * angle as cos and sin.
+	 */
+	public IPoseView update(double gyroCos, double gyroSin, SwerveModulePosition[] modulePositions) {
+		checkLength(modulePositions.length);
 
-			moduleDeltas[index] = new SwerveModulePosition(current.distanceMeters - previous.distanceMeters,
-					current.angle);
-			previous.distanceMeters = current.distanceMeters;
+		for (int i = 0; i < m_numModules; i++) {
+			m_distances[i] = modulePositions[i].distanceMeters;
+			m_cos[i] = modulePositions[i].angle.getCos();
+			m_sin[i] = modulePositions[i].angle.getSin();
 		}
 
-		
-		SmartDashboard.putNumber("Module 1 Delta Distance", moduleDeltas[0].distanceMeters);
-
-		var twist = m_kinematics.toTwist2d(moduleDeltas);
-		twist.dtheta = gyroAngle.minus(m_prevRotation).getRadians();
+		return update(gyroCos, gyroSin, m_distances, m_cos, m_sin);
+	}
 
-		var newPose = m_poseMeters.exp(twist);
+	/**
+	 * Same as {@link #update(Rotation2d, SwerveModulePosition[])} on primitives,
+	 * for odometry sources that don't produce Rotation2d / SwerveModulePosition.
+	 *
+	 * @param gyroCos   cos of the gyro angle
+	 * @param gyroSin   sin of the gyro angle
+	 * @param distances total distance of each module
+	 * @param moduleCos cos of each module angle
+	 * @param moduleSin sin of each module angle
+	 */
+	public IPoseView update(double gyroCos, double gyroSin, double[] distances, double[] moduleCos,
+			double[] moduleSin) {
+		m_kinematics.toTwist2d(
+				distances[0] - m_previousDistances[0], moduleCos[0], moduleSin[0],
+				distances[1] - m_previousDistances[1], moduleCos[1], moduleSin[1],
+				distances[2] - m_previousDistances[2], moduleCos[2], moduleSin[2],
+				distances[3] - m_previousDistances[3], moduleCos[3], moduleSin[3],
+				m_twist);
+		for (int i = 0; i < m_numModules; i++) {
+			m_previousDistances[i] = distances[i];
+		}
 
-		SwerveModulePosition[] positions = new SwerveModulePosition[4];
+		// gyro - previous gyro
+		double dtheta = Math.atan2(gyroSin * m_prevCos - gyroCos * m_prevSin,
+				gyroCos * m_prevCos + gyroSin * m_prevSin);
+		m_prevCos = gyroCos;
+		m_prevSin = gyroSin;
 
-		for (int i = 0; i < modulePositions.length; i++) {
-			positions[i] = modulePositions[i].copy();
-		}
+		MutablePose2d.expInto(m_twist.dx, m_twist.dy, dtheta, m_delta);
+		MutablePose2d.transformByInto(m_pose, m_delta, m_pose);
+		m_pose.set(m_pose.x(), m_pose.y(), gyroCos, gyroSin);
 
-		m_previousModulePositions =	positions;
-		m_prevRotation = gyroAngle;
-		m_poseMeters = new Pose2d(newPose.getTranslation(), gyroAngle);
+		return m_pose;
+	}
 
-		return m_poseMeters;
+	private void checkLength(int length) {
+		if (length != m_numModules) {
+			throw new IllegalArgumentException(
+					"Number of modules is not consistent with number of wheel locations provided in "
+							+ "constructor");
+		}
 	}
 }
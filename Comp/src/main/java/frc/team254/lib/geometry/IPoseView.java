@@ -0,0 +1,21 @@
+package frc.team254.lib.geometry;
+
+/**
+ * Read only access to a pose stored as primitives. Views may be backed by an object that is updated in place,
+ * so copy (toPose2d / MutablePose2d.set) anything that has to outlive the current loop.
+ */
+public interface IPoseView {
+    public double x();
+
+    public double y();
+
+    public double cos();
+
+    public double sin();
+
+    public double getRadians();
+
+    public Pose2d toPose2d();
+
+    public edu.wpi.first.math.geometry.Pose2d toWPI();
+}
@@ -0,0 +1,221 @@
+package frc.team254.lib.geometry;
+
+import static frc.team254.lib.util.Util.kEpsilon;
+
+/**
+ * A reusable, primitive backed counterpart to Pose2d for code that runs every loop. Every operation writes its
+ * result into an existing object instead of allocating, and the output may be the same object as an input.
+ * <p>
+ * The rotation is stored as cos/sin like Rotation2d. Use toPose2d() at the boundary with code that wants the
+ * immutable types.
+ */
+public class MutablePose2d implements IPoseView {
+    private final static double kEps = 1E-9;
+
+    protected double x_;
+    protected double y_;
+    protected double cos_angle_;
+    protected double sin_angle_;
+
+    public MutablePose2d() {
+        setIdentity();
+    }
+
+    public MutablePose2d(double x, double y, double theta_radians) {
+        set(x, y, theta_radians);
+    }
+
+    public MutablePose2d(final Pose2d other) {
+        set(other);
+    }
+
+    public MutablePose2d setIdentity() {
+        return set(0.0, 0.0, 1.0, 0.0);
+    }
+
+    public MutablePose2d set(double x, double y, double cos_angle, double sin_angle) {
+        x_ = x;
+        y_ = y;
+        cos_angle_ = cos_angle;
+        sin_angle_ = sin_angle;
+        return this;
+    }
+
+    public MutablePose2d set(double x, double y, double theta_radians) {
+        return set(x, y, Math.cos(theta_radians), Math.sin(theta_radians));
+    }
+
+    public MutablePose2d set(final IPoseView other) {
+        return set(other.x(), other.y(), other.cos(), other.sin());
+    }
+
+    public MutablePose2d set(final MutablePose2d other) {
+        return set(other.x_, other.y_, other.cos_angle_, other.sin_angle_);
+    }
+
+    public MutablePose2d set(final Pose2d other) {
+        return set(other.getTranslation().x(), other.getTranslation().y(), other.getRotation().cos(),
+                other.getRotation().sin());
+    }
+
+    public MutablePose2d setFromWPI(edu.wpi.first.math.geometry.Pose2d pose) {
+        return set(pose.getX(), pose.getY(), pose.getRotation().getCos(), pose.getRotation().getSin());
+    }
+
+    @Override
+    public double x() {
+        return x_;
+    }
+
+    @Override
+    public double y() {
+        return y_;
+    }
+
+    @Override
+    public double cos() {
+        return cos_angle_;
+    }
+
+    @Override
+    public double sin() {
+        return sin_angle_;
+    }
+
+    @Override
+    public double getRadians() {
+        return Math.atan2(sin_angle_, cos_angle_);
+    }
+
+    /**
+     * Allocates, keep it out of the loop.
+     */
+    @Override
+    public Pose2d toPose2d() {
+        return new Pose2d(x_, y_, new Rotation2d(cos_angle_, sin_angle_, false));
+    }
+
+    /**
+     * Allocates, keep it out of the loop.
+     */
+    @Override
+    public edu.wpi.first.math.geometry.Pose2d toWPI() {
+        return new edu.wpi.first.math.geometry.Pose2d(x_, y_,
+                new edu.wpi.first.math.geometry.Rotation2d(cos_angle_, sin_angle_));
+    }
+
+    /**
+     * Same as Pose2d.transformBy, result is written to out.
+     */
+    public static MutablePose2d transformByInto(final MutablePose2d a, final MutablePose2d b, MutablePose2d out) {
+        return transformByInto(a, b.x_, b.y_, b.cos_angle_, b.sin_angle_, out);
+    }
+
+    public static MutablePose2d transformByInto(final MutablePose2d a, double x, double y, double cos_angle,
+            double sin_angle, MutablePose2d out) {
+        double new_x = a.x_ + x * a.cos_angle_ - y * a.sin_angle_;
+        double new_y = a.y_ + x * a.sin_angle_ + y * a.cos_angle_;
+        out.rotateByInto(a.cos_angle_, a.sin_angle_, cos_angle, sin_angle);
+        out.x_ = new_x;
+        out.y_ = new_y;
+        return out;
+    }
+
+    /**
+     * this = this * other
+     */
+    public MutablePose2d transformBy(final MutablePose2d other) {
+        return transformByInto(this, other, this);
+    }
+
+    /**
+     * Same as Pose2d.inverse, result is written to out.
+     */
+    public static MutablePose2d inverseInto(final MutablePose2d a, MutablePose2d out) {
+        double cos = a.cos_angle_;
+        double sin = -a.sin_angle_;
+        return out.set(-a.x_ * cos + a.y_ * sin, -a.x_ * sin - a.y_ * cos, cos, sin);
+    }
+
+    /**
+     * Same as Rotation2d.rotateBy on the rotation part, the translation is left alone.
+     */
+    public MutablePose2d rotateBy(double cos_angle, double sin_angle) {
+        return rotateByInto(cos_angle_, sin_angle_, cos_angle, sin_angle);
+    }
+
+    // Writes (a rotated by b) into this, normalized the same way Rotation2d.rotateBy is
+    private MutablePose2d rotateByInto(double a_cos, double a_sin, double b_cos, double b_sin) {
+        double cos = a_cos * b_cos - a_sin * b_sin;
+        double sin = a_cos * b_sin + a_sin * b_cos;
+        double magnitude = Math.hypot(cos, sin);
+        if (magnitude > kEpsilon) {
+            cos_angle_ = cos / magnitude;
+            sin_angle_ = sin / magnitude;
+        } else {
+            cos_angle_ = 1.0;
+            sin_angle_ = 0.0;
+        }
+        return this;
+    }
+
+    /**
+     * Same as Translation2d.translateBy on the translation part, the rotation is left alone.
+     */
+    public MutablePose2d translateBy(double x, double y) {
+        x_ += x;
+        y_ += y;
+        return this;
+    }
+
+    /**
+     * Same as Pose2d.exp, result is written to out.
+     */
+    public static MutablePose2d expInto(double dx, double dy, double dtheta, MutablePose2d out) {
+        double sin_theta = Math.sin(dtheta);
+        double cos_theta = Math.cos(dtheta);
+        double s, c;
+        if (Math.abs(dtheta) < kEps) {
+            s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+            c = .5 * dtheta;
+        } else {
+            s = sin_theta / dtheta;
+            c = (1.0 - cos_theta) / dtheta;
+        }
+        return out.set(dx * s - dy * c, dx * c + dy * s, cos_theta, sin_theta);
+    }
+
+    public static MutablePose2d expInto(final MutableTwist2d delta, MutablePose2d out) {
+        return expInto(delta.dx, delta.dy, delta.dtheta, out);
+    }
+
+    /**
+     * Same as Pose2d.log, result is written to out.
+     */
+    public static MutableTwist2d logInto(final MutablePose2d transform, MutableTwist2d out) {
+        return logInto(transform.x_, transform.y_, transform.cos_angle_, transform.sin_angle_, out);
+    }
+
+    public static MutableTwist2d logInto(double x, double y, double cos_angle, double sin_angle,
+            MutableTwist2d out) {
+        final double dtheta = Math.atan2(sin_angle, cos_angle);
+        final double half_dtheta = 0.5 * dtheta;
+        final double cos_minus_one = cos_angle - 1.0;
+        double halftheta_by_tan_of_halfdtheta;
+        if (Math.abs(cos_minus_one) < kEps) {
+            halftheta_by_tan_of_halfdtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halftheta_by_tan_of_halfdtheta = -(half_dtheta * sin_angle) / cos_minus_one;
+        }
+        // Translation rotated by (halftheta_by_tan_of_halfdtheta, -half_dtheta), not normalized
+        return out.set(
+                x * halftheta_by_tan_of_halfdtheta + y * half_dtheta,
+                -x * half_dtheta + y * halftheta_by_tan_of_halfdtheta,
+                dtheta);
+    }
+
+    @Override
+    public String toString() {
+        return toPose2d().toString();
+    }
+}
@@ -0,0 +1,50 @@
+package frc.team254.lib.geometry;
+
+/**
+ * Reusable counterpart to Twist2d, see MutablePose2d.
+ */
+public class MutableTwist2d {
+    public double dx;
+    public double dy;
+    public double dtheta; // Radians!
+
+    public MutableTwist2d() {
+    }
+
+    public MutableTwist2d set(double dx, double dy, double dtheta) {
+        this.dx = dx;
+        this.dy = dy;
+        this.dtheta = dtheta;
+        return this;
+    }
+
+    public MutableTwist2d set(final Twist2d other) {
+        return set(other.dx, other.dy, other.dtheta);
+    }
+
+    public MutableTwist2d scale(double scale) {
+        dx *= scale;
+        dy *= scale;
+        dtheta *= scale;
+        return this;
+    }
+
+    public double norm() {
+        // Common case of dy == 0
+        if (dy == 0.0)
+            return Math.abs(dx);
+        return Math.hypot(dx, dy);
+    }
+
+    /**
+     * Allocates, keep it out of the loop.
+     */
+    public Twist2d toTwist2d() {
+        return new Twist2d(dx, dy, dtheta);
+    }
+
+    @Override
+    public String toString() {
+        return toTwist2d().toString();
+    }
+}
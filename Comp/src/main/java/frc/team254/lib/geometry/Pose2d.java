@@ -92,6 +92,21 @@ public class Pose2d implements IPose2d<Pose2d> {
         return new Twist2d(translation_part.x(), translation_part.y(), dtheta);
     }
 
+    /**
+     * Same as log(transform) without allocating, see MutablePose2d.
+     */
+    public static MutableTwist2d logInto(final Pose2d transform, MutableTwist2d out) {
+        return MutablePose2d.logInto(transform.translation_.x_, transform.translation_.y_,
+                transform.rotation_.cos(), transform.rotation_.sin(), out);
+    }
+
+    /**
+     * Same as exp(delta) without allocating, see MutablePose2d.
+     */
+    public static MutablePose2d expInto(final Twist2d delta, MutablePose2d out) {
+        return MutablePose2d.expInto(delta.dx, delta.dy, delta.dtheta, out);
+    }
+
     @Override
     public Translation2d getTranslation() {
         return translation_;
@@ -115,6 +130,21 @@ public class Pose2d implements IPose2d<Pose2d> {
                 rotation_.rotateBy(other.rotation_));
     }
 
+    /**
+     * Same as transformBy(other) with the result written to out instead of a new Pose2d.
+     */
+    public MutablePose2d transformByInto(final Pose2d other, MutablePose2d out) {
+        return MutablePose2d.transformByInto(toMutable(out), other.translation_.x_, other.translation_.y_,
+                other.rotation_.cos(), other.rotation_.sin(), out);
+    }
+
+    /**
+     * Copies this pose into out.
+     */
+    public MutablePose2d toMutable(MutablePose2d out) {
+        return out.set(translation_.x_, translation_.y_, rotation_.cos(), rotation_.sin());
+    }
+
     /**
      * The inverse of this transform "undoes" the effect of translating by this transform.
      *
@@ -4,14 +4,10 @@
 
 package frc.team4276.frc2024;
 
-import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
-import edu.wpi.first.math.numbers.N1;
-import edu.wpi.first.math.numbers.N2;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
 
@@ -22,6 +18,8 @@ import com.pathplanner.lib.controllers.PPHolonomicDriveController;
 import com.revrobotics.SparkLimitSwitch.Type;
 import com.revrobotics.CANSparkBase.IdleMode;
 
+import frc.team4276.frc2024.Logging.LogQueue;
+import frc.team4276.frc2024.Logging.RlogFormat;
 import frc.team4276.frc2024.subsystems.DriveSubsystem;
 import frc.team4276.frc2024.subsystems.vision.PhotonDevice.PhotonDeviceConstants;
 import frc.team4276.lib.characterizations.ElevatorFeedForward;
@@ -34,13 +32,31 @@ import frc.team4276.lib.rev.VIKCANSparkMaxServo;
 import frc.team4276.lib.rev.RevUtil.SparkRelativeEncoderConfig;
 import frc.team4276.lib.swerve.MAXSwerveModule.MAXSwerveModuleConstants;
 
+import frc.team1678.lib.loops.Looper;
+import frc.team1678.lib.swerve.FourModuleSwerveKinematics;
 import frc.team1678.lib.swerve.SwerveDriveKinematics;
+import frc.team4276.frc2024.auto.AutoModeBase;
 
 public final class Constants {
     public static final boolean isComp = false;
 
     public static final double kLooperDt = 0.02;
 
+    // Set these differently to compare schedulers side by side in sim
+    public static final Looper.SchedulerMode kEnabledLooperMode = Looper.SchedulerMode.DEADLINE;
+    public static final Looper.SchedulerMode kDisabledLooperMode = Looper.SchedulerMode.BUSY_WAIT;
+
+    // SLEEP to compare the dead time reported at the end of each auto in sim
+    public static final AutoModeBase.ActionTickMode kAutoActionTickMode = AutoModeBase.ActionTickMode.LOOP_SYNCED;
+
+    // Per subsystem read/loop/write/telemetry timing, published under Debug/Profiler
+    public static final boolean kEnableSubsystemProfiling = true;
+    public static final int kProfilerWindowSize = 250;
+
+    // Fans readPeriodicInputs of subsystems that report isReadIndependent() out to a worker pool
+    public static final boolean kEnableParallelReads = false;
+    public static final int kParallelReadThreads = 2;
+
     // Enables extra SmartDashboard Debugs
     // Don't use during competition
     public static final boolean disableExtraTelemetry = false;
@@ -59,6 +75,18 @@ public final class Constants {
         // size to reduce the directory by
         public static final double reductionSize = 5;
 
+        // records buffered between the logging threads and the file writer
+        public static final int logQueueCapacity = 1024;
+        public static final LogQueue.OverflowPolicy logOverflowPolicy = LogQueue.OverflowPolicy.DROP_OLDEST;
+        // how often the writer thread wakes up to write a batch
+        public static final long logFlushPeriodMs = 100;
+        public static final int logMaxBatchRecords = 512;
+        // TEXT keeps the readable format, BINARY is much smaller, decode it with RlogTool
+        public static final RlogFormat.Encoding logEncoding = RlogFormat.Encoding.BINARY;
+        public static final int logBufferSize = 64 * 1024;
+        // force the log to flash every this many batches, 0 to only sync on close
+        public static final int logSyncEveryFlushes = 50;
+
     }
 
     public static final class DriveConstants {
@@ -71,6 +99,11 @@ public final class Constants {
                 new Translation2d(kWheelBase / 2, -kTrackWidth / 2),
                 new Translation2d(-kWheelBase / 2, kTrackWidth / 2),
                 new Translation2d(-kWheelBase / 2, -kTrackWidth / 2));
+        public static final FourModuleSwerveKinematics kFourModuleKinematics = new FourModuleSwerveKinematics(
+                new Translation2d(kWheelBase / 2, kTrackWidth / 2),
+                new Translation2d(kWheelBase / 2, -kTrackWidth / 2),
+                new Translation2d(-kWheelBase / 2, kTrackWidth / 2),
+                new Translation2d(-kWheelBase / 2, -kTrackWidth / 2));
 
         public static final MAXSwerveModuleConstants kFLConstants = new MAXSwerveModuleConstants();
         static {
@@ -249,9 +282,35 @@ public final class Constants {
     public static final class RobotStateConstants {
         public static final boolean kVisionResetsHeading = false;
 
-        public static final Matrix<N2, N1> kStateStdDevs = VecBuilder.fill(Math.pow(0.05, 1), Math.pow(0.05, 1));
-        public static final Matrix<N2, N1> kLocalMeasurementStdDevs = VecBuilder.fill(Math.pow(0.03, 1),
-                Math.pow(0.03, 1));
+        // Odometry samples kept for vision latency compensation, enough for a second at the loop rate with room
+        public static final int kOdomHistoryCapacity = 128;
+        // Vision measurements kept to re-apply when an older one comes in, a second of both cameras with room
+        public static final int kVisionHistoryCapacity = 128;
+
+        // Pose estimator process noise, odometry is trusted less the further it has driven / turned
+        public static final double kOdomTranslationStdDevPerMeter = 0.05;
+        public static final double kOdomHeadingStdDevPerRadian = 0.01;
+        public static final double kOdomMinStdDev = 0.001;
+
+        // Confidence in the pose given to RobotState.reset
+        public static final double kResetStdDevXY = 0.1;
+        public static final double kResetStdDevTheta = Math.toRadians(2.0);
+
+        // Std dev used for the first vision update after a reset so the estimate snaps to it
+        public static final double kSnapStdDev = 1e-3;
+
+        // Heading comes from the gyro only unless this is set
+        public static final boolean kVisionFusesHeading = false;
+        // Vision heading std dev as a multiple of the translation std dev from the same measurement
+        public static final double kVisionHeadingStdDevScale = 5.0;
+
+        // How far ahead the pose is predicted: loop delay + CAN latency + time for the fourbar and heading to
+        // settle. Tune against the prediction error on the dashboard.
+        public static final double kPredictionLookaheadSeconds = 0.1;
+        // Off until the lookahead has been tuned, the prediction error is still published either way
+        public static final boolean kAimFromPredictedPose = false;
+        // 0-1, how much of each new acceleration sample goes into the filtered one
+        public static final double kPredictionAccelSmoothing = 0.2;
     }
 
     public static final class FourbarConstants {
@@ -485,6 +544,11 @@ public final class Constants {
 
         public static final double kSpinUpDistance = 4.0;
         public static final double kDoableShotDistance = 4.0; //TODO: tune
+
+        // Off until RegressionMaps.kSpeakerTimeOfFlight has been measured
+        public static final boolean kShootOnTheMove = false;
+        public static final int kMovingShotMaxIterations = 5;
+        public static final double kMovingShotToleranceSeconds = 1e-3;
     }
 
     public static final class VisionConstants {
@@ -0,0 +1,162 @@
+package frc.team4276.frc2024.Logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+import frc.team4276.frc2024.Logging.LoggableRobotFile.DebugLevel;
+import frc.team4276.frc2024.Logging.RlogFormat.PayloadType;
+
+/*
+ * Writes the binary .rlog encoding described in RlogFormat. Records are packed into a preallocated direct
+ * buffer which is only handed to the FileChannel when it fills up or on flush(), so a whole batch from the
+ * writer thread becomes a single write. The channel is only forced to flash every few flushes.
+ */
+public class BinaryLogWriter implements ILogWriter {
+    private static final int kRecordHeaderSize = 1 + 8 + 1 + 2 + 1;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int syncEveryFlushes;
+    private final HashMap<String, Integer> keyIds = new HashMap<>();
+
+    private int flushesSinceSync = 0;
+    // The file size, including what was there before when appending
+    private long bytesWritten;
+
+    /**
+     * @param append continue an existing log instead of starting it over. The header isn't written again, so the
+     *     decoder reports the appended records under the session ID already in it.
+     * @param bufferSize bytes buffered before a write is forced
+     * @param syncEveryFlushes force the channel to storage every this many flushes, 0 to only sync on close
+     */
+    public BinaryLogWriter(String path, long sessionID, boolean append, int bufferSize, int syncEveryFlushes)
+            throws IOException {
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 256));
+        this.syncEveryFlushes = syncEveryFlushes;
+        this.bytesWritten = channel.size();
+
+        // Keys are defined again before their first record, the decoder goes by the latest definition of an id
+        keyIds.put(RlogFormat.kMessageKey, (int) RlogFormat.kMessageKeyId);
+
+        if (bytesWritten == 0) {
+            buffer.putInt(RlogFormat.kMagic);
+            buffer.putShort(RlogFormat.kVersion);
+            buffer.putLong(sessionID);
+        }
+    }
+
+    @Override
+    public void write(double timestamp, DebugLevel level, String key, PayloadType type, long bits, String str)
+            throws IOException {
+        int keyId = internKey(key == null ? RlogFormat.kMessageKey : key);
+
+        ensureRemaining(kRecordHeaderSize + 8);
+        buffer.put(RlogFormat.kTagRecord);
+        buffer.putDouble(timestamp);
+        buffer.put((byte) level.ordinal());
+        buffer.putShort((short) keyId);
+        buffer.put((byte) type.ordinal());
+
+        switch (type) {
+            case DOUBLE:
+            case LONG:
+                buffer.putLong(bits);
+                break;
+            case BOOLEAN:
+                buffer.put((byte) (bits != 0 ? 1 : 0));
+                break;
+            case STRING:
+            default:
+                putBytes(str == null ? new byte[0] : str.getBytes(StandardCharsets.UTF_8), true);
+                break;
+        }
+    }
+
+    private int internKey(String key) throws IOException {
+        Integer id = keyIds.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = keyIds.size();
+        byte[] name = key.getBytes(StandardCharsets.UTF_8);
+        if (newId > Short.MAX_VALUE || name.length > Short.MAX_VALUE) {
+            throw new IOException("Can't intern log key " + key);
+        }
+        keyIds.put(key, newId);
+
+        ensureRemaining(1 + 2 + 2);
+        buffer.put(RlogFormat.kTagKey);
+        buffer.putShort((short) newId);
+        buffer.putShort((short) name.length);
+        putBytes(name, false);
+
+        return newId;
+    }
+
+    private void putBytes(byte[] bytes, boolean intLength) throws IOException {
+        if (intLength) {
+            ensureRemaining(4);
+            buffer.putInt(bytes.length);
+        }
+
+        if (bytes.length <= buffer.capacity()) {
+            ensureRemaining(bytes.length);
+            buffer.put(bytes);
+            return;
+        }
+
+        // Bigger than the whole buffer, send it straight to the channel
+        drainBuffer();
+        ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+        while (wrapped.hasRemaining()) {
+            bytesWritten += channel.write(wrapped);
+        }
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drainBuffer();
+        }
+    }
+
+    private void drainBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drainBuffer();
+
+        if (syncEveryFlushes > 0 && ++flushesSinceSync >= syncEveryFlushes) {
+            channel.force(false);
+            flushesSinceSync = 0;
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drainBuffer();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+}
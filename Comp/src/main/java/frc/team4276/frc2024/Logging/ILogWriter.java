@@ -0,0 +1,21 @@
+package frc.team4276.frc2024.Logging;
+
+import java.io.IOException;
+
+import frc.team4276.frc2024.Logging.LoggableRobotFile.DebugLevel;
+import frc.team4276.frc2024.Logging.RlogFormat.PayloadType;
+
+/*
+ * Encodes log records into a file. write() may buffer, nothing is guaranteed to be on disk until flush().
+ * Numeric payloads are passed as raw long bits so no boxing happens between the queue and the writer.
+ */
+public interface ILogWriter extends AutoCloseable {
+    void write(double timestamp, DebugLevel level, String key, PayloadType type, long bits, String str) throws IOException;
+
+    void flush() throws IOException;
+
+    long getBytesWritten();
+
+    @Override
+    void close() throws IOException;
+}
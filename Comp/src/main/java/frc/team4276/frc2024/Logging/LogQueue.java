@@ -0,0 +1,235 @@
+package frc.team4276.frc2024.Logging;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import frc.team4276.frc2024.Logging.LoggableRobotFile.DebugLevel;
+import frc.team4276.frc2024.Logging.RlogFormat.PayloadType;
+
+/*
+ * Bounded lock free queue between any number of logging threads and the single file writer.
+ * Slot storage is preallocated and claimed with a CAS on a per slot sequence number, so offer() never
+ * blocks or allocates; when the queue is full the overflow policy decides which record is dropped.
+ */
+public class LogQueue {
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST
+    }
+
+    public interface RecordConsumer {
+        void accept(double timestamp, DebugLevel level, String key, PayloadType type, long bits, String message)
+                throws IOException;
+    }
+
+    // How many times a DROP_OLDEST producer will evict before giving up and dropping its own record
+    private static final int kMaxEvictAttempts = 4;
+
+    private final int mCapacity;
+    private final int mMask;
+    private final OverflowPolicy mPolicy;
+
+    private final AtomicLongArray mSequences;
+    private final double[] mTimestamps;
+    private final DebugLevel[] mLevels;
+    private final String[] mKeys;
+    private final PayloadType[] mTypes;
+    private final long[] mBits;
+    private final String[] mMessages;
+
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+
+    private final AtomicLong mDropped = new AtomicLong();
+    private final AtomicLong mEnqueued = new AtomicLong();
+    private final AtomicLong mTotalEnqueueNanos = new AtomicLong();
+    private final AtomicLong mMaxEnqueueNanos = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to the next power of two
+     */
+    public LogQueue(int capacity, OverflowPolicy policy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mCapacity = size;
+        mMask = size - 1;
+        mPolicy = policy;
+
+        mSequences = new AtomicLongArray(size);
+        mTimestamps = new double[size];
+        mLevels = new DebugLevel[size];
+        mKeys = new String[size];
+        mTypes = new PayloadType[size];
+        mBits = new long[size];
+        mMessages = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    /**
+     * Never blocks. Returns false if this record was dropped.
+     */
+    public boolean offer(double timestamp, DebugLevel level, String message) {
+        return offer(timestamp, level, RlogFormat.kMessageKey, PayloadType.STRING, 0, message);
+    }
+
+    /**
+     * Never blocks. Returns false if this record was dropped.
+     *
+     * @param bits raw value for numeric payloads, see Double.doubleToRawLongBits
+     * @param message only used for STRING payloads
+     */
+    public boolean offer(double timestamp, DebugLevel level, String key, PayloadType type, long bits, String message) {
+        long start = System.nanoTime();
+
+        boolean accepted = tryOffer(timestamp, level, key, type, bits, message);
+        if (!accepted && mPolicy == OverflowPolicy.DROP_OLDEST) {
+            for (int i = 0; i < kMaxEvictAttempts && !accepted; i++) {
+                if (discardOldest()) {
+                    mDropped.incrementAndGet();
+                }
+                accepted = tryOffer(timestamp, level, key, type, bits, message);
+            }
+        }
+
+        if (!accepted) {
+            mDropped.incrementAndGet();
+        }
+
+        long duration = System.nanoTime() - start;
+        mEnqueued.incrementAndGet();
+        mTotalEnqueueNanos.addAndGet(duration);
+        long max = mMaxEnqueueNanos.get();
+        while (duration > max && !mMaxEnqueueNanos.compareAndSet(max, duration)) {
+            max = mMaxEnqueueNanos.get();
+        }
+
+        return accepted;
+    }
+
+    private boolean tryOffer(double timestamp, DebugLevel level, String key, PayloadType type, long bits,
+            String message) {
+        while (true) {
+            long tail = mTail.get();
+            int index = (int) (tail & mMask);
+            long diff = mSequences.get(index) - tail;
+
+            if (diff == 0) {
+                if (mTail.compareAndSet(tail, tail + 1)) {
+                    mTimestamps[index] = timestamp;
+                    mLevels[index] = level;
+                    mKeys[index] = key;
+                    mTypes[index] = type;
+                    mBits[index] = bits;
+                    mMessages[index] = message;
+                    mSequences.set(index, tail + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false; // full
+            }
+            // else another producer claimed this slot first, retry
+        }
+    }
+
+    /**
+     * Removes a single record and hands it to the consumer. Only the writer thread should call this.
+     *
+     * @return false if the queue was empty
+     */
+    public boolean poll(RecordConsumer consumer) throws IOException {
+        int index = claimHead();
+        if (index < 0) {
+            return false;
+        }
+
+        try {
+            consumer.accept(mTimestamps[index], mLevels[index], mKeys[index], mTypes[index], mBits[index],
+                    mMessages[index]);
+        } finally {
+            release(index);
+        }
+        return true;
+    }
+
+    /**
+     * @param consumer may be null to throw the records away
+     * @return number of records removed
+     */
+    public int drain(RecordConsumer consumer, int max_records) throws IOException {
+        int count = 0;
+        while (count < max_records) {
+            if (consumer == null ? !discardOldest() : !poll(consumer)) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    // Producers use this to make room under DROP_OLDEST
+    private boolean discardOldest() {
+        int index = claimHead();
+        if (index < 0) {
+            return false;
+        }
+
+        release(index);
+        return true;
+    }
+
+    // Returns the claimed slot index or -1 if empty. The slot must be given back with release().
+    private int claimHead() {
+        while (true) {
+            long head = mHead.get();
+            int index = (int) (head & mMask);
+            long diff = mSequences.get(index) - (head + 1);
+
+            if (diff == 0) {
+                if (mHead.compareAndSet(head, head + 1)) {
+                    return index;
+                }
+            } else if (diff < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void release(int index) {
+        mKeys[index] = null;
+        mMessages[index] = null;
+        // The slot's next use is one lap later
+        mSequences.set(index, mSequences.get(index) - 1 + mCapacity);
+    }
+
+    public boolean isEmpty() {
+        return mHead.get() >= mTail.get();
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return mPolicy;
+    }
+
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+
+    public long getEnqueueCount() {
+        return mEnqueued.get();
+    }
+
+    public double getMeanEnqueueNanos() {
+        long count = mEnqueued.get();
+        return count == 0 ? 0.0 : (double) mTotalEnqueueNanos.get() / count;
+    }
+
+    public long getMaxEnqueueNanos() {
+        return mMaxEnqueueNanos.get();
+    }
+}
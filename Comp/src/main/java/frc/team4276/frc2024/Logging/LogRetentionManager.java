@@ -0,0 +1,205 @@
+package frc.team4276.frc2024.Logging;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+import frc.team4276.frc2024.Constants.DebugConstants;
+
+/*
+ * Keeps the log directory under DebugConstants.maxDirSize.
+ * The directory is walked once, after that an in memory index (oldest first) is kept up to date by the
+ * loggers as they create and delete files, so trimming is a single pass over the index instead of a
+ * full tree walk per deleted file.
+ */
+public class LogRetentionManager {
+    private static LogRetentionManager mInstance;
+
+    public static synchronized LogRetentionManager getInstance() {
+        if (mInstance == null) {
+            mInstance = new LogRetentionManager(Paths.get(DebugConstants.logDirectory));
+        }
+
+        return mInstance;
+    }
+
+    private static class Entry {
+        final Path path;
+        final long time;
+        long size;
+
+        Entry(Path path, long time, long size) {
+            this.path = path;
+            this.time = time;
+            this.size = size;
+        }
+    }
+
+    private static final double kBytesPerMB = 1024.0 * 1024.0;
+
+    private final Path dir;
+    // evictable .rlog files ordered oldest first, path breaks ties so nothing is dropped as a duplicate
+    private final TreeSet<Entry> rlogsByAge = new TreeSet<>(
+        Comparator.<Entry>comparingLong(e -> e.time).thenComparing(e -> e.path.toString()));
+    private final HashMap<Path, Entry> entries = new HashMap<>();
+    // files this robot program is writing to, never evicted
+    private final HashSet<Path> activeFiles = new HashSet<>();
+
+    private boolean scanned = false;
+    private long totalBytes = 0;
+    private double lastRetentionMs = 0.0;
+    private int lastEvictedCount = 0;
+
+    private LogRetentionManager(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Scans the directory on first use then trims it if it has grown past the max size.
+     * Files that can't be deleted are skipped rather than retried.
+     */
+    public synchronized void enforce() throws IOException {
+        long start = System.nanoTime();
+
+        if (!scanned) {
+            scan();
+        }
+
+        lastEvictedCount = 0;
+        if (getSizeInMB() >= DebugConstants.maxDirSize) {
+            long targetBytes = (long) ((DebugConstants.maxDirSize - DebugConstants.reductionSize) * kBytesPerMB);
+
+            Iterator<Entry> it = rlogsByAge.iterator();
+            while (it.hasNext() && totalBytes > targetBytes) {
+                Entry oldest = it.next();
+                if (activeFiles.contains(oldest.path) || isFileInUse(oldest.path)) {
+                    continue;
+                }
+
+                try {
+                    Files.delete(oldest.path);
+                } catch (IOException e) {
+                    PrintLogger.print("Failed to delete old log " + oldest.path + ": " + e.getMessage());
+                    continue;
+                }
+
+                it.remove();
+                entries.remove(oldest.path);
+                totalBytes -= oldest.size;
+                lastEvictedCount++;
+            }
+        }
+
+        lastRetentionMs = (System.nanoTime() - start) * 1e-6;
+    }
+
+    private void scan() throws IOException {
+        rlogsByAge.clear();
+        entries.clear();
+        totalBytes = 0;
+
+        if (Files.isDirectory(dir)) {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile()) {
+                        add(file, fileTime(attrs), attrs.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        scanned = true;
+    }
+
+    private void add(Path file, long time, long size) {
+        Entry entry = new Entry(file, time, size);
+        entries.put(file, entry);
+        totalBytes += size;
+        if (validRlog(file)) {
+            rlogsByAge.add(entry);
+        }
+    }
+
+    /**
+     * Called by a logger after it creates its file. The file is protected from eviction until it is deleted.
+     */
+    public synchronized void onFileCreated(Path file) {
+        activeFiles.add(file);
+        if (!scanned || entries.containsKey(file)) {
+            return;
+        }
+
+        long size = 0;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {}
+        add(file, System.currentTimeMillis(), size);
+    }
+
+    /**
+     * Called by a logger after it writes so the index knows how big its file has become.
+     */
+    public synchronized void onFileWritten(Path file, long size) {
+        Entry entry = entries.get(file);
+        if (entry != null) {
+            totalBytes += size - entry.size;
+            entry.size = size;
+        }
+    }
+
+    public synchronized void onFileDeleted(Path file) {
+        activeFiles.remove(file);
+        Entry entry = entries.remove(file);
+        if (entry != null) {
+            rlogsByAge.remove(entry);
+            totalBytes -= entry.size;
+        }
+    }
+
+    public synchronized double getSizeInMB() {
+        return totalBytes / kBytesPerMB;
+    }
+
+    public synchronized double getLastRetentionMs() {
+        return lastRetentionMs;
+    }
+
+    public synchronized int getLastEvictedCount() {
+        return lastEvictedCount;
+    }
+
+    private static long fileTime(BasicFileAttributes attrs) {
+        try {
+            return attrs.creationTime().toMillis();
+        } catch (UnsupportedOperationException e) {
+            return attrs.lastModifiedTime().toMillis();
+        }
+    }
+
+    private static boolean validRlog(Path file) {
+        return file.toString().toLowerCase().endsWith(".rlog");
+    }
+
+    //os will deny multiple locks on a file
+    private static boolean isFileInUse(Path filePath) {
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+            FileLock lock = fileChannel.tryLock();
+            return lock == null;
+        } catch (OverlappingFileLockException e) {
+            return true;
+        } catch (IOException e) {
+            // can't open it for writing, can't delete it either
+            return true;
+        }
+    }
+}
@@ -1,17 +1,13 @@
 package frc.team4276.frc2024.Logging;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
-import java.nio.channels.OverlappingFileLockException;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Random;
 import edu.wpi.first.wpilibj.Timer;
 import frc.team4276.frc2024.Constants.DebugConstants;
+import frc.team4276.frc2024.Logging.RlogFormat.PayloadType;
 //can still be used single threaded 
 /*
  * example usage:
@@ -22,15 +18,12 @@ import frc.team4276.frc2024.Constants.DebugConstants;
  */
 public class LoggableRobotFile implements Runnable {
     private final File logFile;
-    private FileWriter writer;
+    private ILogWriter writer;
     private final String logPath;
     private static String logDirectory = DebugConstants.logDirectory;
     private boolean fileIsBeingAccessed;
-    private String outString;
-    private DebugLevel outDebug;
-    public boolean isNewData;
-    @SuppressWarnings("unused")
-    private boolean stopThread = false;
+    private final LogQueue logQueue;
+    private final LogQueue.RecordConsumer batchWriter = this::writeRecord;
 
     public enum DebugLevel {
         ERROR("error"),
@@ -56,6 +49,7 @@ public class LoggableRobotFile implements Runnable {
         String modifiedFileName = addTimestampAndSessionID(fileName, String.valueOf(sessionID));
         logPath = logDirectory + modifiedFileName;
         logFile = new File(logPath);
+        logQueue = new LogQueue(DebugConstants.logQueueCapacity, DebugConstants.logOverflowPolicy);
     }
 
     @SuppressWarnings("unused")
@@ -68,37 +62,87 @@ public class LoggableRobotFile implements Runnable {
             return;
         }
         try {
-            checkAndReduceDirectorySize(Paths.get(logDirectory));
+            LogRetentionManager retention = LogRetentionManager.getInstance();
+            retention.enforce();
+            PrintLogger.print("Log retention took " + retention.getLastRetentionMs() + " ms, deleted " + retention.getLastEvictedCount() + " logs");
             logFile.createNewFile();
-            writer = new FileWriter(logPath, true);
+            retention.onFileCreated(logFile.toPath());
+            writer = openWriter(true);
         } catch (IOException e) {
             PrintLogger.print("Exception thrown while creating file logger, file logging will not be available: " + "\n" + e.getStackTrace());
             writer = null;
         }
     }
 
-    public synchronized void setDebugSetString(String str, DebugLevel level) {
-        outString = str;
-        outDebug = level;
-        isNewData = true;
-        notifyAll(); // Notify that new data is available
+    private ILogWriter openWriter(boolean append) throws IOException {
+        if (DebugConstants.logEncoding == RlogFormat.Encoding.BINARY) {
+            return new BinaryLogWriter(logPath, sessionID, append, DebugConstants.logBufferSize, DebugConstants.logSyncEveryFlushes);
+        }
+        return new TextLogWriter(logPath, sessionID, append, false);
+    }
+
+    //never blocks, returns false if the record was dropped by the queue's overflow policy
+    public boolean enqueue(String str, DebugLevel level) {
+        return logQueue.offer(Timer.getFPGATimestamp(), level, str);
+    }
+
+    public boolean enqueue(String key, double value, DebugLevel level) {
+        return logQueue.offer(Timer.getFPGATimestamp(), level, key, PayloadType.DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    public boolean enqueue(String key, long value, DebugLevel level) {
+        return logQueue.offer(Timer.getFPGATimestamp(), level, key, PayloadType.LONG, value, null);
+    }
+
+    public boolean enqueue(String key, boolean value, DebugLevel level) {
+        return logQueue.offer(Timer.getFPGATimestamp(), level, key, PayloadType.BOOLEAN, value ? 1 : 0, null);
     }
 
-    public synchronized void run() {
-        while (true) {
+    //writer loop, wakes up every flush period and writes everything queued in one write + flush
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            writeBatch();
+            if (!logQueue.isEmpty() && writer != null) {
+                continue;
+            }
             try {
-                while (!isNewData) {
-                    wait(); 
-                }
-                if (isNewData) {
-                    writeToFile(outString, outDebug);
-                    isNewData = false;
-                }
+                Thread.sleep(DebugConstants.logFlushPeriodMs);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                return;
             }
         }
+        //don't lose whatever was queued before the stop
+        writeBatch();
+    }
+
+    public synchronized boolean writeBatch() {
+        if (logQueue.isEmpty()) {
+            return writer != null;
+        }
+        fileIsBeingAccessed = true;
+        try {
+            //with nowhere to write still drain so producers see room
+            logQueue.drain(writer == null ? null : batchWriter, DebugConstants.logMaxBatchRecords);
+            if (writer == null) {
+                return false;
+            }
+            writer.flush();
+            LogRetentionManager.getInstance().onFileWritten(logFile.toPath(), writer.getBytesWritten());
+        } catch (IOException e) {
+            PrintLogger.print("Exception thrown while attempting to write to log file: " + "\n" + e.getMessage());
+            return false;
+        } finally {
+            fileIsBeingAccessed = false;
+        }
+        return true;
+    }
+
+    private void writeRecord(double timestamp, DebugLevel level, String key, PayloadType type, long bits, String str) throws IOException {
+        writer.write(timestamp, level, key, type, bits, str);
+    }
+
+    public LogQueue getLogQueue() {
+        return logQueue;
     }
 
     public synchronized void clearFile() {
@@ -108,7 +152,8 @@ public class LoggableRobotFile implements Runnable {
                 writer.close();
                 logFile.delete();
                 logFile.createNewFile();
-                writer = new FileWriter(logPath);
+                writer = openWriter(false);
+                LogRetentionManager.getInstance().onFileWritten(logFile.toPath(), 0);
             } catch (IOException e) {
                 PrintLogger.print("Failed to clear file: " + "\n" + e.getMessage());
             }
@@ -126,6 +171,7 @@ public class LoggableRobotFile implements Runnable {
             }
         }
         logFile.delete();
+        LogRetentionManager.getInstance().onFileDeleted(logFile.toPath());
         writer = null;
         fileIsBeingAccessed = false;
     }
@@ -135,10 +181,8 @@ public class LoggableRobotFile implements Runnable {
             return false;
         }
         fileIsBeingAccessed = true;
-        str = str + "\n";
         try {
-            writer.write("[Time:" + Timer.getFPGATimestamp() + " Session ID:" + sessionID + " Level:" + level.getLevelString() + "] ");
-            writer.write(str);
+            writer.write(Timer.getFPGATimestamp(), level, RlogFormat.kMessageKey, PayloadType.STRING, 0, str);
             writer.flush();
         } catch (IOException e) {
             PrintLogger.print("Exception thrown while attempting to write to log file: " + "\n" + e.getMessage());
@@ -158,61 +202,6 @@ public class LoggableRobotFile implements Runnable {
         return fileIsBeingAccessed;
     }
 
-    private static void checkAndReduceDirectorySize(Path dir) throws IOException {
-        if (getDirectorySizeInMB(dir) >= DebugConstants.maxDirSize) {
-            while (getDirectorySizeInMB(dir) > DebugConstants.maxDirSize - DebugConstants.reductionSize && !areAllFilesNotRlog(dir)) {
-                String oldestFilePath = findOldestRlogFile(dir);
-                if (isFileInUse(Paths.get(oldestFilePath)) || !validRlog(oldestFilePath)) {
-                    continue;
-                }
-                Files.delete(Paths.get(oldestFilePath));
-            }
-        }
-    }
-
-    private static double getDirectorySizeInMB(Path dir) throws IOException {
-        final long[] totalSize = {0};
-
-        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                if (Files.isRegularFile(file)) {
-                    totalSize[0] += Files.size(file);
-                }
-                return FileVisitResult.CONTINUE;
-            }
-        });
-
-        return totalSize[0] / (1024.0 * 1024.0);
-    }
-
-    private static String findOldestRlogFile(Path dir) throws IOException {
-        final Path[] oldestFile = {null};
-        final long[] oldestTime = {Long.MAX_VALUE};
-
-        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                if (Files.isRegularFile(file) && validRlog(file.toString())) {
-                    long fileTime;
-                    try {
-                        fileTime = attrs.creationTime().toMillis();
-                    } catch (UnsupportedOperationException e) {
-                        fileTime = attrs.lastModifiedTime().toMillis();
-                    }
-
-                    if (fileTime < oldestTime[0]) {
-                        oldestTime[0] = fileTime;
-                        oldestFile[0] = file;
-                    }
-                }
-                return FileVisitResult.CONTINUE;
-            }
-        });
-
-        return oldestFile[0] != null ? oldestFile[0].toString() : null;
-    }
-
     private static String addTimestampAndSessionID(String fileName, String sessionID) {
         LocalTime currentTime = LocalTime.now();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH-mm-ss");
@@ -224,41 +213,4 @@ public class LoggableRobotFile implements Runnable {
 
         return namePart + "[" + formattedTime + "][" + sessionID + "]" + extensionPart;
     }
-
-    private static boolean validRlog(String fileName) {
-        return fileName.toLowerCase().endsWith(".rlog");
-    }
-    //os will deny multiple locks on a file 
-    private static boolean isFileInUse(Path filePath) throws IOException {
-        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
-            fileChannel.tryLock();
-            return false;
-        } catch (OverlappingFileLockException e) {
-            return true;
-        }
-    }
-
-    private static boolean areAllFilesNotRlog(Path dir) throws IOException {
-        final boolean[] noneRlog = {true};
-
-        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                if (Files.isRegularFile(file)) {
-                    if (validRlog(file.toString())) {
-                        noneRlog[0] = false;
-                        return FileVisitResult.TERMINATE;
-                    }
-                }
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                return dir.equals(dir) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
-            }
-        });
-
-        return noneRlog[0];
-    }
 }
@@ -1,12 +1,13 @@
 package frc.team4276.frc2024.Logging;
 
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.team4276.frc2024.Logging.LoggableRobotFile.DebugLevel;
 /*
  * example usage:
  *  LoggableThread logThread = new LoggableThread("ThreadTest");
  *  logThread.init();
  *  logThread.logAsync("fizz", LoggableRobotFile.DebugLevel.INFO);
- *  //buzz will wait for fizz to be printed 
+ *  //neither call waits on the file, both are written together on the next flush
  *  logThread.logAsync("buzz", LoggableRobotFile.DebugLevel.INFO);
  */
  //all member functions are safe to call during async operation 
@@ -27,10 +28,39 @@ public class LoggableThread {
         mThread.start(); 
     }
 
-    //each call will wait for the previous to finish 
-    public void logAsync(String str, DebugLevel level) {
-        while (mLogger.isFileInUse() || mLogger.isNewData) {}
-        mLogger.setDebugSetString(str, level);
+    //never blocks, returns false if the record was dropped because the queue was full
+    public boolean logAsync(String str, DebugLevel level) {
+        return mLogger.enqueue(str, level);
+    }
+
+    public boolean logAsync(String key, double value, DebugLevel level) {
+        return mLogger.enqueue(key, value, level);
+    }
+
+    public boolean logAsync(String key, long value, DebugLevel level) {
+        return mLogger.enqueue(key, value, level);
+    }
+
+    public boolean logAsync(String key, boolean value, DebugLevel level) {
+        return mLogger.enqueue(key, value, level);
+    }
+
+    public long getDroppedCount() {
+        return mLogger.getLogQueue().getDroppedCount();
+    }
+
+    public double getMeanEnqueueNanos() {
+        return mLogger.getLogQueue().getMeanEnqueueNanos();
+    }
+
+    public long getMaxEnqueueNanos() {
+        return mLogger.getLogQueue().getMaxEnqueueNanos();
+    }
+
+    public void outputTelemetry() {
+        SmartDashboard.putNumber("Debug/Logging/" + threadName + "/Dropped Records", getDroppedCount());
+        SmartDashboard.putNumber("Debug/Logging/" + threadName + "/Mean Enqueue (us)", getMeanEnqueueNanos() * 1e-3);
+        SmartDashboard.putNumber("Debug/Logging/" + threadName + "/Max Enqueue (us)", getMaxEnqueueNanos() * 1e-3);
     }
     public void deleteFile() {
         stopLogging();
@@ -0,0 +1,39 @@
+package frc.team4276.frc2024.Logging;
+
+/*
+ * Layout of the binary .rlog encoding, everything big endian:
+ *
+ *  header:  int magic | short version | long session id
+ *  key:     byte TAG_KEY | short key id | short length | utf8 name
+ *  record:  byte TAG_RECORD | double timestamp | byte level | short key id | byte payload type | payload
+ *
+ *  payloads: DOUBLE and LONG are 8 bytes, BOOLEAN is 1 byte, STRING is int length + utf8
+ *
+ * A key is defined once, the first time it is used, and every later record only carries its id.
+ * Key id 0 is the plain message key used by the string only logging calls.
+ */
+public final class RlogFormat {
+    public enum Encoding {
+        TEXT,
+        BINARY
+    }
+
+    public enum PayloadType {
+        STRING,
+        DOUBLE,
+        LONG,
+        BOOLEAN
+    }
+
+    public static final int kMagic = 0x524C4F47; // "RLOG"
+    public static final short kVersion = 1;
+    public static final int kHeaderSize = 4 + 2 + 8;
+
+    public static final byte kTagKey = 1;
+    public static final byte kTagRecord = 2;
+
+    public static final String kMessageKey = "";
+    public static final short kMessageKeyId = 0;
+
+    private RlogFormat() {}
+}
@@ -0,0 +1,126 @@
+package frc.team4276.frc2024.Logging;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.stream.Stream;
+
+import frc.team4276.frc2024.Logging.LoggableRobotFile.DebugLevel;
+import frc.team4276.frc2024.Logging.RlogFormat.PayloadType;
+
+/*
+ * Desktop tool for .rlog files, doesn't touch the HAL so it runs off robot:
+ *
+ *   decode <file.rlog> [text|csv]   prints a binary (or text) log as text or csv
+ */
+public class RlogTool {
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("decode")) {
+            decode(args[1], args.length >= 3 && args[2].equals("csv"), System.out);
+
+        } else {
+            System.out.println("usage: RlogTool decode <file.rlog> [text|csv]");
+        }
+    }
+
+    public static void decode(String path, boolean csv, PrintStream out) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            in.mark(4);
+            if (in.available() < RlogFormat.kHeaderSize || in.readInt() != RlogFormat.kMagic) {
+                // Text encoded, already readable
+                in.reset();
+                try (Stream<String> lines = Files.lines(Paths.get(path), StandardCharsets.UTF_8)) {
+                    lines.forEach(out::println);
+                }
+                return;
+            }
+
+            short version = in.readShort();
+            if (version != RlogFormat.kVersion) {
+                throw new IOException("Unsupported rlog version " + version);
+            }
+            long sessionID = in.readLong();
+
+            HashMap<Integer, String> keys = new HashMap<>();
+            keys.put((int) RlogFormat.kMessageKeyId, RlogFormat.kMessageKey);
+
+            DebugLevel[] levels = DebugLevel.values();
+            PayloadType[] types = PayloadType.values();
+            StringBuilder line = new StringBuilder();
+
+            if (csv) {
+                out.println("timestamp,level,key,type,value");
+            }
+
+            while (true) {
+                byte tag;
+                try {
+                    tag = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                if (tag == RlogFormat.kTagKey) {
+                    int id = in.readShort();
+                    byte[] name = new byte[in.readShort()];
+                    in.readFully(name);
+                    keys.put(id, new String(name, StandardCharsets.UTF_8));
+                    continue;
+                } else if (tag != RlogFormat.kTagRecord) {
+                    throw new IOException("Corrupt rlog, unknown tag " + tag);
+                }
+
+                double timestamp = in.readDouble();
+                DebugLevel level = levels[in.readByte()];
+                String key = keys.get((int) in.readShort());
+                PayloadType type = types[in.readByte()];
+
+                long bits = 0;
+                String str = null;
+                switch (type) {
+                    case DOUBLE:
+                    case LONG:
+                        bits = in.readLong();
+                        break;
+                    case BOOLEAN:
+                        bits = in.readByte();
+                        break;
+                    case STRING:
+                    default:
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        str = new String(bytes, StandardCharsets.UTF_8);
+                        break;
+                }
+
+                line.setLength(0);
+                if (csv) {
+                    line.append(timestamp).append(',').append(level.getLevelString()).append(',')
+                        .append(key).append(',').append(type.name()).append(',');
+                    if (type == PayloadType.STRING) {
+                        line.append('"').append(str.replace("\"", "\"\"")).append('"');
+                    } else {
+                        TextLogWriter.appendPayload(line, type, bits, str);
+                    }
+                } else {
+                    line.append("[Time:").append(timestamp)
+                        .append(" Session ID:").append(sessionID)
+                        .append(" Level:").append(level.getLevelString())
+                        .append("] ");
+                    if (!RlogFormat.kMessageKey.equals(key)) {
+                        line.append(key).append(": ");
+                    }
+                    TextLogWriter.appendPayload(line, type, bits, str);
+                }
+                out.println(line);
+            }
+        }
+    }
+}
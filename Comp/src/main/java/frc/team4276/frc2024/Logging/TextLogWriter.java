@@ -0,0 +1,118 @@
+package frc.team4276.frc2024.Logging;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import frc.team4276.frc2024.Logging.LoggableRobotFile.DebugLevel;
+import frc.team4276.frc2024.Logging.RlogFormat.PayloadType;
+
+/*
+ * The original human readable .rlog format:
+ *   [Time:<fpga seconds> Session ID:<id> Level:<level>] <message>
+ * Typed records are written as "<key>: <value>" in the message position.
+ */
+public class TextLogWriter implements ILogWriter {
+    private final FileWriter writer;
+    private final long sessionID;
+    private final boolean flushEveryRecord;
+    private final StringBuilder pending = new StringBuilder();
+    // The file size, including what was there before when appending
+    private long bytesWritten;
+
+    /**
+     * @param flushEveryRecord write + flush on every record like the logger used to; only kept for comparison
+     */
+    public TextLogWriter(String path, long sessionID, boolean append, boolean flushEveryRecord) throws IOException {
+        this.writer = new FileWriter(path, StandardCharsets.UTF_8, append);
+        this.bytesWritten = append ? new File(path).length() : 0;
+        this.sessionID = sessionID;
+        this.flushEveryRecord = flushEveryRecord;
+    }
+
+    @Override
+    public void write(double timestamp, DebugLevel level, String key, PayloadType type, long bits, String str)
+            throws IOException {
+        pending.append("[Time:").append(timestamp)
+            .append(" Session ID:").append(sessionID)
+            .append(" Level:").append(level.getLevelString())
+            .append("] ");
+
+        if (key != null && !key.equals(RlogFormat.kMessageKey)) {
+            pending.append(key).append(": ");
+        }
+
+        appendPayload(pending, type, bits, str);
+        pending.append('\n');
+
+        if (flushEveryRecord) {
+            flush();
+        }
+    }
+
+    static void appendPayload(StringBuilder sb, PayloadType type, long bits, String str) {
+        switch (type) {
+            case DOUBLE:
+                sb.append(Double.longBitsToDouble(bits));
+                break;
+            case LONG:
+                sb.append(bits);
+                break;
+            case BOOLEAN:
+                sb.append(bits != 0);
+                break;
+            case STRING:
+            default:
+                sb.append(str);
+                break;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (pending.length() > 0) {
+            writer.append(pending);
+            bytesWritten += utf8Length(pending);
+            pending.setLength(0);
+        }
+        writer.flush();
+    }
+
+    // What the encoder writes for the chars, without encoding them again
+    static long utf8Length(CharSequence chars) {
+        long bytes = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars.length()
+                    && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired, replaced with '?'
+                bytes += 1;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -8,9 +8,11 @@ import java.util.Optional;
 
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.team4276.frc2024.auto.AutoModeBase;
 import frc.team4276.frc2024.auto.AutoModeExecutor;
 import frc.team4276.frc2024.auto.AutoModeSelector;
+import frc.team4276.frc2024.auto.TrajectoryRepository;
 import frc.team4276.frc2024.controlboard.ControlBoard;
 import frc.team4276.frc2024.field.AllianceChooser;
 import frc.team4276.frc2024.subsystems.DriveSubsystem;
@@ -21,6 +23,7 @@ import frc.team4276.frc2024.subsystems.FourbarSubsystem;
 import frc.team4276.frc2024.subsystems.Superstructure;
 import frc.team4276.frc2024.subsystems.vision.VisionDeviceManager;
 
+import frc.team1678.lib.loops.LoopBarrier;
 import frc.team1678.lib.loops.Looper;
 
 import frc.team254.lib.geometry.Pose2d;
@@ -48,12 +51,18 @@ public class Robot extends TimedRobot {
     private FourbarSubsystem mFourbarSubsystem;
     private SimpleClimberSubsystem mSimpleClimber;
 
-    private final Looper mEnabledLooper = new Looper();
-    private final Looper mDisabledLooper = new Looper();
+    private final Looper mEnabledLooper = new Looper("EnabledLooper", Constants.kEnabledLooperMode);
+    private final Looper mDisabledLooper = new Looper("DisabledLooper", Constants.kDisabledLooperMode);
+    private final LoopBarrier mEnabledLoopBarrier = new LoopBarrier();
 
     private final AutoModeSelector mAutoModeSelector = AutoModeSelector.getInstance();;
     private AutoModeExecutor mAutoModeExecutor;
 
+    // Time spent on the main thread building and starting autos
+    private double mDisabledPeriodicMs = 0.0;
+    private double mMaxDisabledPeriodicMs = 0.0;
+    private double mAutoInitMs = 0.0;
+
     /**
      * This function is run when the robot is first started up and should be used
      * for any
@@ -62,6 +71,8 @@ public class Robot extends TimedRobot {
     @Override
     public void robotInit() {
         try {
+            TrajectoryRepository.getInstance().preload();
+
             mDriveSubsystem = DriveSubsystem.getInstance();
             mVisionDeviceManager = VisionDeviceManager.getInstance();
             mIntakeSubsystem = IntakeSubsystem.getInstance();
@@ -83,6 +94,8 @@ public class Robot extends TimedRobot {
                 );
 
             mSubsystemManager.registerEnabledLoops(mEnabledLooper);
+            // Last, so auto actions are ticked after the subsystems are done with the cycle
+            mEnabledLooper.register(mEnabledLoopBarrier);
             mSubsystemManager.registerDisabledLoops(mDisabledLooper);
             RobotState.getInstance().resetKalmanFilters();
 
@@ -104,6 +117,13 @@ public class Robot extends TimedRobot {
     @Override
     public void robotPeriodic() {
         mEnabledLooper.outputToSmartDashboard();
+        mDisabledLooper.outputToSmartDashboard();
+        RobotState.getInstance().outputTelemetry();
+        TrajectoryRepository.getInstance().outputTelemetry();
+
+        SmartDashboard.putNumber("Debug/Robot/Disabled Periodic (ms)", mDisabledPeriodicMs);
+        SmartDashboard.putNumber("Debug/Robot/Disabled Periodic Max (ms)", mMaxDisabledPeriodicMs);
+        SmartDashboard.putNumber("Debug/Robot/Auto Init (ms)", mAutoInitMs);
     }
 
     /** This function is called once each time the robot enters Disabled mode. */
@@ -125,15 +145,18 @@ public class Robot extends TimedRobot {
 
         mAutoModeSelector.reset();
         mAutoModeSelector.updateModeCreator(false);
-        mAutoModeExecutor = new AutoModeExecutor();
+        mAutoModeExecutor = new AutoModeExecutor(mEnabledLoopBarrier);
 
         hasFlippedClimberSetting = false;
+        mMaxDisabledPeriodicMs = 0.0;
     }
 
     private boolean hasFlippedClimberSetting = false;
 
     @Override
     public void disabledPeriodic() {
+        double start = Timer.getFPGATimestamp();
+
         try {
             if (AllianceChooser.getInstance().isAllianceRed()) {
                 RobotState.getInstance().setRed();
@@ -163,6 +186,8 @@ public class Robot extends TimedRobot {
             throw t;
         }
 
+        mDisabledPeriodicMs = (Timer.getFPGATimestamp() - start) * 1000.0;
+        mMaxDisabledPeriodicMs = Math.max(mMaxDisabledPeriodicMs, mDisabledPeriodicMs);
     }
 
     @Override
@@ -175,6 +200,8 @@ public class Robot extends TimedRobot {
      */
     @Override
     public void autonomousInit() {
+        double start = Timer.getFPGATimestamp();
+
         try {
             mDisabledLooper.stop();
 
@@ -203,6 +230,8 @@ public class Robot extends TimedRobot {
         } catch (Throwable t) {
             throw t;
         }
+
+        mAutoInitMs = (Timer.getFPGATimestamp() - start) * 1000.0;
     }
 
     /** This function is called periodically during autonomous. */
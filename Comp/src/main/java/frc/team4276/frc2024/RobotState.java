@@ -1,33 +1,93 @@
 package frc.team4276.frc2024;
 
-import edu.wpi.first.math.interpolation.TimeInterpolatableBuffer;
-import edu.wpi.first.math.numbers.N2;
-import edu.wpi.first.math.Nat;
-import edu.wpi.first.math.StateSpaceUtil;
-import edu.wpi.first.math.VecBuilder;
-import edu.wpi.first.math.estimator.ExtendedKalmanFilter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 import frc.team4276.frc2024.field.Field;
 import frc.team4276.frc2024.subsystems.vision.VisionPoseAcceptor;
 import frc.team4276.frc2024.subsystems.DriveSubsystem;
-
+import frc.team4276.frc2024.Constants.RobotStateConstants;
+import frc.team4276.frc2024.Constants.SuperstructureConstants;
+import frc.team4276.frc2024.shooting.AimingParameters;
+import frc.team4276.frc2024.shooting.FerryUtil;
+import frc.team4276.frc2024.shooting.MovingShotSolver;
+import frc.team4276.frc2024.shooting.ShootingUtil;
+import frc.team4276.frc2024.shooting.ShotParameters;
+import frc.team4276.lib.util.PoseEstimator;
+import frc.team4276.lib.util.RollingStats;
+
+import frc.team254.lib.geometry.IPoseView;
+import frc.team254.lib.geometry.MutablePose2d;
 import frc.team254.lib.geometry.Pose2d;
 import frc.team254.lib.geometry.Rotation2d;
 import frc.team254.lib.geometry.Translation2d;
 import frc.team254.lib.util.MovingAverage;
 
+/**
+ * Writers (odometry, vision, alliance changes) are synchronized and publish an immutable {@link Snapshot} when they
+ * are done. Pose, velocity, POI and aiming reads go through the latest snapshot and never take the monitor, so the
+ * auto, main, dashboard and vision threads don't wait on the odometry loop or on each other.
+ */
 public class RobotState {
-    private Translation2d mEstimatedPose = Translation2d.identity();
+    // Writer side copy of the field to vehicle pose, mirrors the estimator's newest state. Only touched under the
+    // monitor, readers get it from the snapshot.
+    private final MutablePose2d mFieldToVehicle = new MutablePose2d();
+
+    private final MutablePose2d mOdomScratch = new MutablePose2d();
+    // Last odometry pose, odometry is fed to the estimator as the delta from this
+    private final MutablePose2d mLastOdomPose = new MutablePose2d();
+    private final MutablePose2d mOdomDelta = new MutablePose2d();
     private MovingAverage mEstimatedVisionHeading = new MovingAverage(100);
 
-    private ExtendedKalmanFilter<N2, N2, N2> mKalmanFilter;
+    private final PoseEstimator mEstimator;
+
+    // Field relative velocity and acceleration from the measured chassis speeds, for predicting the pose
+    private double mFieldVx = 0.0;
+    private double mFieldVy = 0.0;
+    private double mOmega = 0.0;
+    private double mFieldAx = 0.0;
+    private double mFieldAy = 0.0;
+    private double mAlpha = 0.0;
+    private double mLastVelocityTimestamp = Double.NaN;
+    private final MutablePose2d mPredictedFieldToVehicle = new MutablePose2d();
+
+    // Predictions waiting for the pose at the time they were made for, to measure how good they are
+    private static final int kPendingPredictionCapacity = 64;
+    private final double[] mPendingTime = new double[kPendingPredictionCapacity];
+    private final double[] mPendingX = new double[kPendingPredictionCapacity];
+    private final double[] mPendingY = new double[kPendingPredictionCapacity];
+    private final double[] mPendingTheta = new double[kPendingPredictionCapacity];
+    private int mPendingHead = 0;
+    private int mPendingSize = 0;
+    private double mPrevActualTimestamp = Double.NaN;
+    private double mPrevActualX = 0.0;
+    private double mPrevActualY = 0.0;
+    private double mPrevActualTheta = 0.0;
+    private final RollingStats mPredictionTranslationError = new RollingStats(100);
+    private final RollingStats mPredictionHeadingError = new RollingStats(100);
+
+    // Bumped under the monitor on every publish, aiming is computed once per epoch
+    private long mEpoch = 0;
+    private volatile Snapshot mSnapshot;
+    private volatile AimingParameters mAimingParameters = null;
+    private final ShotParameters mSpeakerScratch = new ShotParameters();
+    private final ShotParameters mFerryScratch = new ShotParameters();
+    private final MovingShotSolver mMovingShotSolver = new MovingShotSolver(
+            SuperstructureConstants.kMovingShotMaxIterations, SuperstructureConstants.kMovingShotToleranceSeconds);
+    private final AtomicInteger mAimingReads = new AtomicInteger();
+    private int mAimingComputations = 0;
+
     private boolean mHasUpdated = false;
 
     private VisionPoseAcceptor mPoseAcceptor;
 
     private static final double kObservationBufferTime = 1.0;
 
-    private final TimeInterpolatableBuffer<edu.wpi.first.math.geometry.Pose2d> mOdomPoseBuffer;
+    private final AtomicInteger mPoseReads = new AtomicInteger();
+    private final AtomicInteger mPoseConversions = new AtomicInteger();
+    private int mTelemetryCycles = 0;
+    private long mLastCorrectionCount = 0;
 
     private Field.POIs mPOIs = Field.Red.kPOIs;
 
@@ -41,7 +101,10 @@ public class RobotState {
     }
 
     private RobotState() {
-        mOdomPoseBuffer = TimeInterpolatableBuffer.createBuffer(kObservationBufferTime);
+        mEstimator = new PoseEstimator(RobotStateConstants.kOdomHistoryCapacity,
+                RobotStateConstants.kVisionHistoryCapacity, kObservationBufferTime,
+                RobotStateConstants.kOdomTranslationStdDevPerMeter, RobotStateConstants.kOdomHeadingStdDevPerRadian,
+                RobotStateConstants.kOdomMinStdDev);
         mPoseAcceptor = new VisionPoseAcceptor();
 
         reset(0.0, Pose2d.identity());
@@ -49,33 +112,45 @@ public class RobotState {
     }
 
     public synchronized void reset(double start_time, Pose2d initial_pose) {
-        mOdomPoseBuffer.addSample(start_time, initial_pose.toWPI());
-        mEstimatedPose = initial_pose.getTranslation();
+        initial_pose.toMutable(mLastOdomPose);
+        mEstimator.reset(start_time, mLastOdomPose.x(), mLastOdomPose.y(), mLastOdomPose.getRadians(),
+                RobotStateConstants.kResetStdDevXY, RobotStateConstants.kResetStdDevTheta);
+        updateFieldToVehicle();
+
+        // Predictions from before the reset are of a different pose
+        mPendingSize = 0;
+        mPrevActualTimestamp = Double.NaN;
+        mLastVelocityTimestamp = Double.NaN;
+        mFieldAx = 0.0;
+        mFieldAy = 0.0;
+        mAlpha = 0.0;
+        publish();
     }
 
+    /**
+     * Forgets how confident the estimator is in the current pose so the next vision update is taken as is.
+     */
     public synchronized void resetKalmanFilters() {
-        mKalmanFilter = new ExtendedKalmanFilter<N2, N2, N2>(
-                Nat.N2(), // Dimensions of output (x, y)
-                Nat.N2(), // Dimensions of predicted error shift (dx, dy) (always 0)
-                Nat.N2(), // Dimensions of vision (x, y)
-                (x, u) -> u, // The derivative of the output is predicted shift (always 0)
-                (x, u) -> x, // The output is position (x, y)
-                Constants.RobotStateConstants.kStateStdDevs, // Standard deviation of position (uncertainty propagation
-                                                             // with no vision)
-                Constants.RobotStateConstants.kLocalMeasurementStdDevs, // Standard deviation of vision measurements
-                Constants.kLooperDt);
+        mHasUpdated = false;
+        publish();
     }
 
-    public synchronized Field.POIs getPOIs() {
-        return mPOIs;
+    public Field.POIs getPOIs() {
+        return mSnapshot.pois;
     }
 
     public synchronized void setBlue() {
-        mPOIs = Field.Blue.kPOIs;
+        if (mPOIs != Field.Blue.kPOIs) {
+            mPOIs = Field.Blue.kPOIs;
+            publish();
+        }
     }
 
     public synchronized void setRed() {
-        mPOIs = Field.Red.kPOIs;
+        if (mPOIs != Field.Red.kPOIs) {
+            mPOIs = Field.Red.kPOIs;
+            publish();
+        }
     }
 
     public synchronized void visionHeadingUpdate(double heading_rad) {
@@ -83,72 +158,419 @@ public class RobotState {
     }
 
     public synchronized void addOdomObservations(double timestamp, Pose2d odom_to_robot) {
-        mKalmanFilter.predict(VecBuilder.fill(0.0, 0.0), Constants.kLooperDt);
+        addOdomObservations(timestamp, odom_to_robot.toMutable(mOdomScratch));
+    }
+
+    /**
+     * The pose is copied, so the caller can keep reusing it. Readers see it once
+     * {@link #addVelocityObservations} publishes the cycle.
+     */
+    public synchronized void addOdomObservations(double timestamp, IPoseView odom_to_robot) {
+        // Robot relative motion since the last observation: last^-1 * current
+        MutablePose2d.inverseInto(mLastOdomPose, mOdomDelta);
+        MutablePose2d.transformByInto(mOdomDelta, odom_to_robot.x(), odom_to_robot.y(), odom_to_robot.cos(),
+                odom_to_robot.sin(), mOdomDelta);
+        mLastOdomPose.set(odom_to_robot);
+
+        mEstimator.addOdometry(timestamp, mOdomDelta.x(), mOdomDelta.y(), mOdomDelta.getRadians());
+        updateFieldToVehicle();
+    }
+
+    /**
+     * Call once per loop after the odometry update, with the chassis speeds measured at the same time. Publishes
+     * the pose and speeds together as one snapshot.
+     *
+     * @param vx robot relative
+     * @param vy robot relative
+     */
+    public synchronized void addVelocityObservations(double timestamp, double vx, double vy, double omega) {
+        double field_vx = mFieldToVehicle.cos() * vx - mFieldToVehicle.sin() * vy;
+        double field_vy = mFieldToVehicle.sin() * vx + mFieldToVehicle.cos() * vy;
+
+        double dt = timestamp - mLastVelocityTimestamp;
+        if (dt > 1e-6) {
+            // Differentiated speeds are noisy, smoothed with a first order filter
+            double k = RobotStateConstants.kPredictionAccelSmoothing;
+            mFieldAx += k * ((field_vx - mFieldVx) / dt - mFieldAx);
+            mFieldAy += k * ((field_vy - mFieldVy) / dt - mFieldAy);
+            mAlpha += k * ((omega - mOmega) / dt - mAlpha);
+        }
+
+        mFieldVx = field_vx;
+        mFieldVy = field_vy;
+        mOmega = omega;
+        mLastVelocityTimestamp = timestamp;
+        publish();
+
+        scorePredictions(timestamp);
+        addPendingPrediction(timestamp + RobotStateConstants.kPredictionLookaheadSeconds,
+                getPredictedFieldToVehicleView(mSnapshot));
+    }
+
+    /**
+     * The snapshot's pose moved forward by {@link RobotStateConstants#kPredictionLookaheadSeconds} at its
+     * velocity and acceleration, where the robot will be when setpoints sent now have taken effect. Reused, only
+     * read it under the monitor.
+     */
+    private IPoseView getPredictedFieldToVehicleView(Snapshot snapshot) {
+        double t = RobotStateConstants.kPredictionLookaheadSeconds;
+        double half_t2 = 0.5 * t * t;
+
+        mPredictedFieldToVehicle.set(
+                snapshot.x() + snapshot.field_vx * t + snapshot.field_ax * half_t2,
+                snapshot.y() + snapshot.field_vy * t + snapshot.field_ay * half_t2,
+                snapshot.getRadians() + snapshot.omega * t + snapshot.alpha * half_t2);
+        return mPredictedFieldToVehicle;
+    }
+
+    /** Field relative, from the last measured chassis speeds */
+    public double getFieldVelocityX() {
+        return mSnapshot.field_vx;
+    }
+
+    /** Field relative, from the last measured chassis speeds */
+    public double getFieldVelocityY() {
+        return mSnapshot.field_vy;
+    }
+
+    private void addPendingPrediction(double target_time, IPoseView predicted) {
+        if (mPendingSize == kPendingPredictionCapacity) {
+            mPendingHead = (mPendingHead + 1) % kPendingPredictionCapacity;
+            mPendingSize--;
+        }
+
+        int i = (mPendingHead + mPendingSize) % kPendingPredictionCapacity;
+        mPendingTime[i] = target_time;
+        mPendingX[i] = predicted.x();
+        mPendingY[i] = predicted.y();
+        mPendingTheta[i] = predicted.getRadians();
+        mPendingSize++;
+    }
+
+    /** Compares predictions that have come due with the pose at their time, interpolated between two updates */
+    private void scorePredictions(double timestamp) {
+        double x = mFieldToVehicle.x();
+        double y = mFieldToVehicle.y();
+        double theta = mFieldToVehicle.getRadians();
+
+        while (mPendingSize > 0 && mPendingTime[mPendingHead] <= timestamp) {
+            int i = mPendingHead;
+            double actual_x = x;
+            double actual_y = y;
+            double actual_theta = theta;
+
+            double span = timestamp - mPrevActualTimestamp;
+            if (span > 1e-6 && mPendingTime[i] > mPrevActualTimestamp) {
+                double s = (mPendingTime[i] - mPrevActualTimestamp) / span;
+                actual_x = mPrevActualX + (x - mPrevActualX) * s;
+                actual_y = mPrevActualY + (y - mPrevActualY) * s;
+                actual_theta = mPrevActualTheta + Math.IEEEremainder(theta - mPrevActualTheta, 2.0 * Math.PI) * s;
+            }
+
+            mPredictionTranslationError.addValue(Math.hypot(mPendingX[i] - actual_x, mPendingY[i] - actual_y));
+            mPredictionHeadingError.addValue(
+                    Math.abs(Math.IEEEremainder(mPendingTheta[i] - actual_theta, 2.0 * Math.PI)));
+
+            mPendingHead = (mPendingHead + 1) % kPendingPredictionCapacity;
+            mPendingSize--;
+        }
+
+        mPrevActualTimestamp = timestamp;
+        mPrevActualX = x;
+        mPrevActualY = y;
+        mPrevActualTheta = theta;
+    }
+
+    private void updateFieldToVehicle() {
+        mFieldToVehicle.set(mEstimator.getX(), mEstimator.getY(), mEstimator.getTheta());
+    }
+
+    private void publish() {
+        mSnapshot = new Snapshot(++mEpoch, mFieldToVehicle, mFieldVx, mFieldVy, mOmega, mFieldAx, mFieldAy, mAlpha,
+                mPOIs, mHasUpdated, mEstimator.getStdDevX(), mEstimator.getStdDevY(), mEstimator.getStdDevTheta());
+    }
+
+    /**
+     * Everything a reader needs from one update, so values read from the same snapshot are always consistent with
+     * each other. Immutable, safe to hold on to and read from any thread.
+     */
+    public final class Snapshot implements IPoseView {
+        /** Increases with every update */
+        public final long epoch;
+
+        private final double mX;
+        private final double mY;
+        private final double mCos;
+        private final double mSin;
+        private final double mRadians;
+
+        /** Field relative, from the last measured chassis speeds */
+        public final double field_vx;
+        public final double field_vy;
+        public final double omega;
+
+        /** Field relative, filtered from the measured speeds */
+        public final double field_ax;
+        public final double field_ay;
+        public final double alpha;
+
+        public final Field.POIs pois;
+
+        /** Whether vision has corrected the pose since the last reset */
+        public final boolean has_vision_update;
+        public final double std_dev_x;
+        public final double std_dev_y;
+        public final double std_dev_theta;
+
+        // Built on first use, a race only means it's built twice. Volatile so a reader on another thread never sees
+        // a partly built pose, the team254 Translation2d fields aren't final
+        private volatile Pose2d mPose2d = null;
+        private volatile edu.wpi.first.math.geometry.Pose2d mWPIPose2d = null;
+
+        private Snapshot(long epoch, IPoseView pose, double field_vx, double field_vy, double omega,
+                double field_ax, double field_ay, double alpha, Field.POIs pois, boolean has_vision_update,
+                double std_dev_x, double std_dev_y, double std_dev_theta) {
+            this.epoch = epoch;
+            mX = pose.x();
+            mY = pose.y();
+            mCos = pose.cos();
+            mSin = pose.sin();
+            mRadians = pose.getRadians();
+            this.field_vx = field_vx;
+            this.field_vy = field_vy;
+            this.omega = omega;
+            this.field_ax = field_ax;
+            this.field_ay = field_ay;
+            this.alpha = alpha;
+            this.pois = pois;
+            this.has_vision_update = has_vision_update;
+            this.std_dev_x = std_dev_x;
+            this.std_dev_y = std_dev_y;
+            this.std_dev_theta = std_dev_theta;
+        }
+
+        @Override
+        public double x() {
+            return mX;
+        }
+
+        @Override
+        public double y() {
+            return mY;
+        }
+
+        @Override
+        public double cos() {
+            return mCos;
+        }
+
+        @Override
+        public double sin() {
+            return mSin;
+        }
+
+        @Override
+        public double getRadians() {
+            return mRadians;
+        }
+
+        /**
+         * Built at most once per snapshot and shared between callers, don't modify it.
+         */
+        @Override
+        public Pose2d toPose2d() {
+            Pose2d pose = mPose2d;
+            if (pose == null) {
+                pose = new Pose2d(mX, mY, new Rotation2d(mCos, mSin, false));
+                mPose2d = pose;
+                mPoseConversions.incrementAndGet();
+            }
+            return pose;
+        }
+
+        /**
+         * Built at most once per snapshot and shared between callers.
+         */
+        @Override
+        public edu.wpi.first.math.geometry.Pose2d toWPI() {
+            edu.wpi.first.math.geometry.Pose2d pose = mWPIPose2d;
+            if (pose == null) {
+                pose = new edu.wpi.first.math.geometry.Pose2d(mX, mY,
+                        new edu.wpi.first.math.geometry.Rotation2d(mCos, mSin));
+                mWPIPose2d = pose;
+                mPoseConversions.incrementAndGet();
+            }
+            return pose;
+        }
+    }
+
+    /**
+     * The latest published state. Doesn't take the monitor.
+     */
+    public Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * Speaker and ferry setpoints from the predicted pose, computed at most once per pose update no matter how many
+     * callers there are. Doesn't take the RobotState monitor unless the pose changed since the last computation, so
+     * it's cheap to call from any thread.
+     */
+    public AimingParameters getAimingParameters() {
+        mAimingReads.incrementAndGet();
+
+        AimingParameters cached = mAimingParameters;
+        if (cached != null && cached.epoch == mSnapshot.epoch) {
+            return cached;
+        }
+
+        return computeAimingParameters();
+    }
+
+    private synchronized AimingParameters computeAimingParameters() {
+        // Only from the published snapshot, the pose can already be a cycle ahead of the velocity in between the
+        // odometry and velocity updates
+        Snapshot snapshot = mSnapshot;
+
+        // Another thread may have got here first
+        AimingParameters cached = mAimingParameters;
+        if (cached != null && cached.epoch == snapshot.epoch) {
+            return cached;
+        }
 
-        mEstimatedPose = mEstimatedPose.translateBy(odom_to_robot.getTranslation().translateBy(Translation2d
-                .fromWPI(mOdomPoseBuffer.getInternalBuffer().lastEntry().getValue().getTranslation()).inverse()));
+        // Aim from where the robot will be once the setpoints have taken effect
+        IPoseView robot_pose = RobotStateConstants.kAimFromPredictedPose ? getPredictedFieldToVehicleView(snapshot)
+                : snapshot;
 
-        mOdomPoseBuffer.addSample(timestamp, odom_to_robot.toWPI());
+        if (SuperstructureConstants.kShootOnTheMove) {
+            ShootingUtil.getMovingSpeakerShotParams(robot_pose, snapshot.field_vx, snapshot.field_vy,
+                    mMovingShotSolver, mSpeakerScratch);
+        } else {
+            ShootingUtil.getSpeakerShotParams(robot_pose, mSpeakerScratch);
+        }
+        FerryUtil.getFerryParams(robot_pose, mFerryScratch);
+
+        mAimingComputations++;
+        mAimingParameters = new AimingParameters(snapshot.epoch, mSpeakerScratch, mFerryScratch);
+        return mAimingParameters;
     }
 
     public static class VisionUpdate {
         public final double timestamp;
         public final Translation2d fieldToVis;
         public final double distStDev;
+        public final double headingRad;
+        public final double headingStDev;
 
+        /**
+         * Translation only, the heading is left to odometry.
+         */
         public VisionUpdate(double timestamp, Translation2d fieldToVis, double distStDev) {
+            this(timestamp, fieldToVis, distStDev, 0.0, Double.POSITIVE_INFINITY);
+        }
+
+        public VisionUpdate(double timestamp, Translation2d fieldToVis, double distStDev, double headingRad,
+                double headingStDev) {
             this.timestamp = timestamp;
             this.fieldToVis = fieldToVis;
             this.distStDev = distStDev;
+            this.headingRad = headingRad;
+            this.headingStDev = headingStDev;
         }
     }
 
     public synchronized void visionUpdate(VisionUpdate update) {
-        double visionTimestamp = update.timestamp;
-
-        if (mOdomPoseBuffer.getInternalBuffer().lastKey() - kObservationBufferTime > visionTimestamp)
-            return;
-
         if (!mPoseAcceptor.shouldAcceptVision(DriveSubsystem.getInstance().getMeasSpeeds()))
             return;
 
-        mEstimatedPose = update.fieldToVis
-                .translateBy(Translation2d.fromWPI(mOdomPoseBuffer.getInternalBuffer().lastEntry().getValue()
-                        .getTranslation().minus(mOdomPoseBuffer.getSample(visionTimestamp).get().getTranslation())));
-
-        if (!mHasUpdated) {
-            mKalmanFilter.setXhat(0, mEstimatedPose.x());
-            mKalmanFilter.setXhat(1, mEstimatedPose.y());
+        // The first update after a reset is taken as is, after that it's weighed against odometry
+        double dist_std_dev = mHasUpdated ? update.distStDev : RobotStateConstants.kSnapStdDev;
+        double heading_std_dev = mHasUpdated ? update.headingStDev : Double.POSITIVE_INFINITY;
 
-            mHasUpdated = true;
+        if (!mEstimator.addVisionMeasurement(update.timestamp, update.fieldToVis.x(), update.fieldToVis.y(),
+                update.headingRad, dist_std_dev, heading_std_dev))
             return;
-        }
-
-        try {
-            mKalmanFilter.correct(VecBuilder.fill(0.0, 0.0),
-                    VecBuilder.fill(mEstimatedPose.getTranslation().x(), mEstimatedPose.getTranslation().y()),
-                    StateSpaceUtil.makeCovarianceMatrix(Nat.N2(), VecBuilder.fill(update.distStDev, update.distStDev)));
-            mEstimatedPose = new Translation2d(mKalmanFilter.getXhat(0), mKalmanFilter.getXhat(1));
 
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        mHasUpdated = true;
+        updateFieldToVehicle();
+        publish();
     }
 
     // Use on enabled init
     public synchronized double getHeadingFromVision() {
         if (mEstimatedVisionHeading.getSize() == 0) {
-            return getLatestFieldToVehicle().getRotation().getRadians();
+            return mFieldToVehicle.getRadians();
         }
         return mEstimatedVisionHeading.getAverage();
     }
 
-    public synchronized Pose2d getLatestFieldToVehicle() {
-        return new Pose2d(mEstimatedPose,
-                Rotation2d.fromWPI(mOdomPoseBuffer.getInternalBuffer().lastEntry().getValue().getRotation()));
+    /**
+     * Zero copy view of the latest pose. It's the immutable snapshot, so it can be read from any thread, but it
+     * won't follow later updates.
+     */
+    public IPoseView getLatestFieldToVehicleView() {
+        mPoseReads.incrementAndGet();
+        return mSnapshot;
+    }
+
+    /**
+     * Built at most once per pose update and shared between callers, don't modify it.
+     */
+    public Pose2d getLatestFieldToVehicle() {
+        mPoseReads.incrementAndGet();
+        return mSnapshot.toPose2d();
+    }
+
+    public edu.wpi.first.math.geometry.Pose2d getWPILatestFieldToVehicle() {
+        mPoseReads.incrementAndGet();
+        return mSnapshot.toWPI();
     }
 
-    public synchronized edu.wpi.first.math.geometry.Pose2d getWPILatestFieldToVehicle() {
-        return getLatestFieldToVehicle().toWPI();
+    private static final int kTelemetryPeriodCycles = 50;
+
+    /**
+     * Publishes how many times the pose was read and how many of those needed a conversion per robot cycle, and
+     * how long vision corrections (with their replay) take.
+     */
+    public synchronized void outputTelemetry() {
+        if (++mTelemetryCycles < kTelemetryPeriodCycles) {
+            return;
+        }
+
+        SmartDashboard.putNumber("Debug/RobotState/Pose Reads Per Cycle",
+                (double) mPoseReads.getAndSet(0) / mTelemetryCycles);
+        SmartDashboard.putNumber("Debug/RobotState/Pose Conversions Per Cycle",
+                (double) mPoseConversions.getAndSet(0) / mTelemetryCycles);
+        SmartDashboard.putNumber("Debug/RobotState/Aiming Reads Per Cycle",
+                (double) mAimingReads.getAndSet(0) / mTelemetryCycles);
+        SmartDashboard.putNumber("Debug/RobotState/Aiming Computations Per Cycle",
+                (double) mAimingComputations / mTelemetryCycles);
+        mMovingShotSolver.outputTelemetry();
+
+        RollingStats correction_nanos = mEstimator.getCorrectionNanos();
+        SmartDashboard.putNumber("Debug/RobotState/Vision Correction p50 (ms)",
+                correction_nanos.getPercentile(0.5) * 1e-6);
+        SmartDashboard.putNumber("Debug/RobotState/Vision Correction p99 (ms)",
+                correction_nanos.getPercentile(0.99) * 1e-6);
+        SmartDashboard.putNumber("Debug/RobotState/Vision Corrections Per Cycle",
+                (double) (correction_nanos.getTotalCount() - mLastCorrectionCount) / mTelemetryCycles);
+        SmartDashboard.putNumber("Debug/RobotState/Vision Replay Steps", mEstimator.getLastReplaySteps());
+        SmartDashboard.putNumber("Debug/RobotState/Std Dev X", mEstimator.getStdDevX());
+        SmartDashboard.putNumber("Debug/RobotState/Std Dev Y", mEstimator.getStdDevY());
+        SmartDashboard.putNumber("Debug/RobotState/Std Dev Theta (deg)", Math.toDegrees(mEstimator.getStdDevTheta()));
+        SmartDashboard.putNumber("Debug/RobotState/Prediction Lookahead (s)",
+                RobotStateConstants.kPredictionLookaheadSeconds);
+        SmartDashboard.putNumber("Debug/RobotState/Prediction Error p50 (m)",
+                mPredictionTranslationError.getPercentile(0.5));
+        SmartDashboard.putNumber("Debug/RobotState/Prediction Error p99 (m)",
+                mPredictionTranslationError.getPercentile(0.99));
+        SmartDashboard.putNumber("Debug/RobotState/Prediction Heading Error p50 (deg)",
+                Math.toDegrees(mPredictionHeadingError.getPercentile(0.5)));
+        SmartDashboard.putNumber("Debug/RobotState/Prediction Heading Error p99 (deg)",
+                Math.toDegrees(mPredictionHeadingError.getPercentile(0.99)));
+        mLastCorrectionCount = correction_nanos.getTotalCount();
+
+        mAimingComputations = 0;
+        mTelemetryCycles = 0;
     }
 }
\ No newline at end of file
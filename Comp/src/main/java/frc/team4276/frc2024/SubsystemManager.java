@@ -4,7 +4,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import frc.team4276.lib.Threading.ParallelTaskExecutor;
 import frc.team4276.lib.drivers.Subsystem;
+import frc.team4276.lib.util.RollingStats;
+import frc.team4276.lib.util.SubsystemProfiler;
+import frc.team4276.lib.util.SubsystemProfiler.Phase;
 
 import frc.team1678.lib.loops.ILooper;
 import frc.team1678.lib.loops.Loop;
@@ -19,6 +25,22 @@ public class SubsystemManager implements ILooper {
     private List<Subsystem> mAllSubsystems;
     private List<Loop> mLoops = new ArrayList<>();
 
+    // Index into mAllSubsystems of the subsystem that registered each loop, or the extra "Other" slot
+    private List<Integer> mLoopOwners = new ArrayList<>();
+    private int mRegisteringIndex = -1;
+
+    private SubsystemProfiler mProfiler = null;
+    private boolean mProfilingEnabled = Constants.kEnableSubsystemProfiling;
+
+    // Read independent subsystems are fanned out to the pool, the rest are read on the looper thread meanwhile
+    private ParallelTaskExecutor mParallelReader = null;
+    private int[] mParallelReadIndices = new int[0];
+    private int[] mSerialReadIndices = new int[0];
+
+    private RollingStats mReadWallStats = new RollingStats(Constants.kProfilerWindowSize);
+    private RollingStats mReadSerialStats = new RollingStats(Constants.kProfilerWindowSize);
+    private int mReadPublishCounter = 0;
+
     private SubsystemManager() {}
 
     public static SubsystemManager getInstance() {
@@ -53,6 +75,118 @@ public class SubsystemManager implements ILooper {
 
     public void setSubsystems(Subsystem... allSubsystems) {
         mAllSubsystems = Arrays.asList(allSubsystems);
+
+        String[] names = new String[allSubsystems.length + 1];
+        for (int i = 0; i < allSubsystems.length; i++) {
+            names[i] = allSubsystems[i].getClass().getSimpleName();
+        }
+        names[allSubsystems.length] = "Other";
+
+        mProfiler = new SubsystemProfiler(names, Constants.kProfilerWindowSize, Constants.kLooperDt);
+
+        List<Integer> parallel = new ArrayList<>();
+        List<Integer> serial = new ArrayList<>();
+        for (int i = 0; i < allSubsystems.length; i++) {
+            if (Constants.kEnableParallelReads && allSubsystems[i].isReadIndependent()) {
+                parallel.add(i);
+            } else {
+                serial.add(i);
+            }
+        }
+
+        // Not worth waking a thread for a single subsystem
+        if (parallel.size() < 2) {
+            serial.addAll(parallel);
+            serial.sort(null);
+            parallel.clear();
+        }
+
+        mParallelReadIndices = parallel.stream().mapToInt(Integer::intValue).toArray();
+        mSerialReadIndices = serial.stream().mapToInt(Integer::intValue).toArray();
+
+        if (mParallelReadIndices.length > 0) {
+            Runnable[] reads = new Runnable[mParallelReadIndices.length];
+            for (int i = 0; i < reads.length; i++) {
+                reads[i] = allSubsystems[mParallelReadIndices[i]]::readPeriodicInputs;
+            }
+
+            mParallelReader = new ParallelTaskExecutor("ParallelRead", Constants.kParallelReadThreads, reads);
+        }
+    }
+
+    private void readPeriodicInputs(boolean profile) {
+        long phase_start = System.nanoTime();
+        long serial_nanos = 0;
+
+        if (mParallelReader != null) {
+            mParallelReader.start();
+            mParallelReader.join();
+
+            for (int k = 0; k < mParallelReadIndices.length; k++) {
+                long duration = mParallelReader.getTaskNanos(k);
+
+                serial_nanos += duration;
+                if (profile) mProfiler.record(mParallelReadIndices[k], Phase.READ, duration);
+            }
+        }
+
+        // After the pool has finished, serial reads may touch other subsystems
+        for (int i : mSerialReadIndices) {
+            long start = System.nanoTime();
+            mAllSubsystems.get(i).readPeriodicInputs();
+            long duration = System.nanoTime() - start;
+
+            serial_nanos += duration;
+            if (profile) mProfiler.record(i, Phase.READ, duration);
+        }
+
+        mReadWallStats.addValue(System.nanoTime() - phase_start);
+        mReadSerialStats.addValue(serial_nanos);
+    }
+
+    private void outputReadTelemetry() {
+        if (++mReadPublishCounter < 25) return;
+        mReadPublishCounter = 0;
+
+        // Serial sum is what the read phase would have cost without the pool
+        SmartDashboard.putBoolean("Debug/Read Phase/Parallel", mParallelReader != null);
+        SmartDashboard.putNumber("Debug/Read Phase/Wall Mean (ms)", mReadWallStats.getMean() * 1e-6);
+        SmartDashboard.putNumber("Debug/Read Phase/Wall p99 (ms)", mReadWallStats.getPercentile(0.99) * 1e-6);
+        SmartDashboard.putNumber("Debug/Read Phase/Serial Sum Mean (ms)", mReadSerialStats.getMean() * 1e-6);
+        SmartDashboard.putNumber("Debug/Read Phase/Serial Sum p99 (ms)", mReadSerialStats.getPercentile(0.99) * 1e-6);
+    }
+
+    public void setProfilingEnabled(boolean enabled) {
+        mProfilingEnabled = enabled;
+    }
+
+    private void profiledOnLoop(double timestamp) {
+        mProfiler.startCycle();
+
+        readPeriodicInputs(true);
+
+        long start;
+        for (int i = 0; i < mLoops.size(); i++) {
+            start = System.nanoTime();
+            mLoops.get(i).onLoop(timestamp);
+            mProfiler.record(mLoopOwners.get(i), Phase.LOOP, System.nanoTime() - start);
+        }
+
+        for (int i = 0; i < mAllSubsystems.size(); i++) {
+            start = System.nanoTime();
+            mAllSubsystems.get(i).writePeriodicOutputs();
+            mProfiler.record(i, Phase.WRITE, System.nanoTime() - start);
+        }
+
+        for (int i = 0; i < mAllSubsystems.size(); i++) {
+            start = System.nanoTime();
+            mAllSubsystems.get(i).outputTelemetry();
+            mProfiler.record(i, Phase.TELEMETRY, System.nanoTime() - start);
+        }
+
+        mProfiler.endCycle();
+        mProfiler.outputTelemetry();
+        outputReadTelemetry();
     }
 
     private class EnabledLoop implements Loop {
@@ -63,12 +197,17 @@ public class SubsystemManager implements ILooper {
 
         @Override
         public void onLoop(double timestamp) {
-            
-            mAllSubsystems.forEach(Subsystem::readPeriodicInputs);
+            if (mProfilingEnabled) {
+                profiledOnLoop(timestamp);
+                return;
+            }
+
+            readPeriodicInputs(false);
             mLoops.forEach(l -> l.onLoop(timestamp));
             mAllSubsystems.forEach(Subsystem::writePeriodicOutputs);
 
             outputToSmartDashboard();
+            outputReadTelemetry();
         }
 
         @Override
@@ -83,7 +222,7 @@ public class SubsystemManager implements ILooper {
 
         @Override
         public void onLoop(double timestamp) {
-            mAllSubsystems.forEach(Subsystem::readPeriodicInputs);
+            readPeriodicInputs(false);
         }
 
         @Override
@@ -91,7 +230,12 @@ public class SubsystemManager implements ILooper {
     }
 
     public void registerEnabledLoops(Looper enabledLooper) {
-        mAllSubsystems.forEach(s -> s.registerEnabledLoops(this));
+        for (int i = 0; i < mAllSubsystems.size(); i++) {
+            mRegisteringIndex = i;
+            mAllSubsystems.get(i).registerEnabledLoops(this);
+        }
+        mRegisteringIndex = -1;
+
         enabledLooper.register(new EnabledLoop());
     }
 
@@ -102,5 +246,6 @@ public class SubsystemManager implements ILooper {
     @Override
     public void register(Loop loop) {
         mLoops.add(loop);
+        mLoopOwners.add(mRegisteringIndex >= 0 ? mRegisteringIndex : mAllSubsystems.size());
     }
 }
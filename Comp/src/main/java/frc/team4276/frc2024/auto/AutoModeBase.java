@@ -1,7 +1,9 @@
 package frc.team4276.frc2024.auto;
 
 import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
+import frc.team1678.lib.loops.LoopBarrier;
 import frc.team4276.frc2024.auto.actions.Action;
 
 import frc.team254.lib.geometry.Pose2d;
@@ -11,9 +13,29 @@ import frc.team254.lib.geometry.Pose2d;
  * routines that do actions).
  */
 public abstract class AutoModeBase {
+    public enum ActionTickMode {
+        // Update, then sleep m_update_rate on the auto thread, out of phase with the loops
+        SLEEP,
+        // Update right after each enabled loop cycle, sleeps like SLEEP while the loop isn't running
+        LOOP_SYNCED
+    }
+
     protected double m_update_rate = 1.0 / 50.0;
     protected boolean m_active = false;
 
+    private ActionTickMode m_tick_mode = ActionTickMode.SLEEP;
+    private LoopBarrier m_barrier = null;
+    private long m_cycle = 0;
+
+    // Finished actions and series steps, only touched by the auto thread
+    private static long s_completed_steps = 0;
+    private long m_recorded_steps = 0;
+
+    // From the end of the loop cycle a completion showed up in to the auto thread acting on it, and what sleep polling
+    // one series step per tick would have taken
+    private double m_run_start = 0.0;
+    private double m_dead_time = 0.0;
+    private double m_sleep_dead_time = 0.0;
 
     protected double startTime = 0.0;
 
@@ -25,15 +47,18 @@ public abstract class AutoModeBase {
 
     public void run() {
         m_active = true;
+        resetDeadTime();
         try {
             routine();
         } catch (AutoModeEndedException e) {
             System.out.println("Auto mode done, ended early");
+            reportDeadTime();
             return;
         }
 
         done();
         System.out.println("Auto mode done");
+        reportDeadTime();
     }
 
     public void done() {
@@ -55,22 +80,88 @@ public abstract class AutoModeBase {
         return isActive();
     }
 
+    /**
+     * @param barrier registered last on the enabled looper, also used to measure dead time in either mode
+     */
+    public void setActionTicking(ActionTickMode mode, LoopBarrier barrier) {
+        m_tick_mode = mode;
+        m_barrier = barrier;
+    }
+
     public void runAction(Action action) throws AutoModeEndedException {
         isActiveWithThrow();
         action.start();
 
         while (isActiveWithThrow() && !action.isFinished()) {
             action.update();
-            long waitTime = (long) (m_update_rate * 1000.0);
+            if (action.isFinished()) {
+                break;
+            }
 
-            try {
+            recordCompletedSteps();
+            waitForNextTick();
+        }
+
+        action.done();
+        stepCompleted();
+        recordCompletedSteps();
+    }
+
+    private void waitForNextTick() {
+        try {
+            if (m_tick_mode == ActionTickMode.LOOP_SYNCED && m_barrier != null && m_barrier.isRunning()) {
+                m_cycle = m_barrier.awaitCycleAfter(m_cycle, m_update_rate * 2.0);
+
+            } else {
+                long waitTime = (long) (m_update_rate * 1000.0);
                 Thread.sleep(waitTime);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
             }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Call from the auto thread when a step of a composite action finishes, for the dead time report */
+    public static void stepCompleted() {
+        s_completed_steps++;
+    }
+
+    private void resetDeadTime() {
+        m_run_start = Timer.getFPGATimestamp();
+        m_dead_time = 0.0;
+        m_sleep_dead_time = 0.0;
+        m_recorded_steps = s_completed_steps;
+        m_cycle = m_barrier == null ? 0 : m_barrier.getCycle();
+    }
+
+    private void recordCompletedSteps() {
+        long steps = s_completed_steps - m_recorded_steps;
+        m_recorded_steps = s_completed_steps;
+        if (steps == 0 || m_barrier == null || Double.isNaN(m_barrier.getCycleTimestamp())) {
+            return;
         }
 
-        action.done();
+        double cycle = m_barrier.getCycleTimestamp();
+        m_dead_time += Timer.getFPGATimestamp() - cycle;
+
+        // Sleep polling wakes on a grid from the start of the run and used to finish one series step per wake up
+        double wake = m_run_start + Math.ceil((cycle - m_run_start) / m_update_rate) * m_update_rate;
+        m_sleep_dead_time += wake - cycle + (steps - 1) * m_update_rate;
+    }
+
+    private void reportDeadTime() {
+        if (m_barrier == null) {
+            return;
+        }
+
+        String name = getClass().getSimpleName();
+        System.out.printf("%s dead time %.1f ms (%s), sleep polling ~%.1f ms, saved ~%.1f ms%n", name,
+                m_dead_time * 1e3, m_tick_mode, m_sleep_dead_time * 1e3, (m_sleep_dead_time - m_dead_time) * 1e3);
+
+        SmartDashboard.putNumber("Debug/Auto/" + name + " Dead Time (ms)", m_dead_time * 1e3);
+        SmartDashboard.putNumber("Debug/Auto/" + name + " Sleep Polling Dead Time (ms)", m_sleep_dead_time * 1e3);
+        SmartDashboard.putNumber("Debug/Auto/" + name + " Dead Time Saved (ms)",
+                (m_sleep_dead_time - m_dead_time) * 1e3);
     }
 
     public void waitForEventAction(){
@@ -1,17 +1,30 @@
 package frc.team4276.frc2024.auto;
 
+import frc.team1678.lib.loops.LoopBarrier;
 import frc.team254.lib.util.CrashTrackingRunnable;
+import frc.team4276.frc2024.Constants;
 
 /**
  * This class selects, runs, and stops (if necessary) a specified autonomous
  * mode.
  */
 public class AutoModeExecutor {
+    private final LoopBarrier m_barrier;
     private AutoModeBase m_auto_mode;
     private Thread m_thread = null;
 
+    /**
+     * @param barrier registered last on the enabled looper, so actions can be ticked right after each cycle
+     */
+    public AutoModeExecutor(LoopBarrier barrier) {
+        m_barrier = barrier;
+    }
+
     public void setAutoMode(AutoModeBase new_auto_mode) {
         m_auto_mode = new_auto_mode;
+        if (m_auto_mode != null) {
+            m_auto_mode.setActionTicking(Constants.kAutoActionTickMode, m_barrier);
+        }
     }
 
     public void start() {
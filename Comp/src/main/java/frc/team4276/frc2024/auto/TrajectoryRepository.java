@@ -0,0 +1,194 @@
+package frc.team4276.frc2024.auto;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import choreo.Choreo;
+import choreo.trajectory.SwerveSample;
+import choreo.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import frc.team254.lib.geometry.Pose2d;
+import frc.team4276.lib.swerve.CachedTrajectory;
+
+/**
+ * Every Choreo trajectory in the deploy directory, parsed once. {@link #preload()} parses them all on a background
+ * thread at boot, with the blue and red-flipped versions of the whole trajectory and of every split built up front,
+ * so building an auto mode (which happens again on every alliance change while disabled) is only lookups.
+ *
+ * <p>
+ * A trajectory asked for before the preload got to it is loaded on the calling thread, or waited on if the preload
+ * thread is in the middle of it, so nothing is ever parsed twice.
+ */
+public class TrajectoryRepository {
+    private static final String kChoreoDirectory = "choreo";
+    private static final String kExtension = ".traj";
+
+    /** One trajectory or split for both alliances. Immutable, can be shared by any number of auto modes. */
+    public static class AllianceTrajectories {
+        private final CachedTrajectory mBlue;
+        private final CachedTrajectory mRed;
+        private final Pose2d mBlueInitialPose;
+        private final Pose2d mRedInitialPose;
+
+        private AllianceTrajectories(Trajectory<SwerveSample> blue) {
+            Trajectory<SwerveSample> red = blue.flipped();
+
+            mBlue = new CachedTrajectory(blue);
+            mRed = new CachedTrajectory(red);
+            mBlueInitialPose = Pose2d.fromWPI(blue.getInitialPose(false));
+            mRedInitialPose = Pose2d.fromWPI(red.getInitialPose(false));
+        }
+
+        public CachedTrajectory get(boolean is_red) {
+            return is_red ? mRed : mBlue;
+        }
+
+        public Pose2d getInitialPose(boolean is_red) {
+            return is_red ? mRedInitialPose : mBlueInitialPose;
+        }
+    }
+
+    private static class Entry {
+        private final Optional<AllianceTrajectories> mFull;
+        private final List<AllianceTrajectories> mSplits;
+
+        private Entry(Optional<AllianceTrajectories> full, List<AllianceTrajectories> splits) {
+            mFull = full;
+            mSplits = splits;
+        }
+    }
+
+    private static final Entry kMissing = new Entry(Optional.empty(), List.of());
+
+    // Completed once the trajectory is loaded
+    private final Map<String, CompletableFuture<Entry>> mEntries = new ConcurrentHashMap<>();
+
+    private Thread mPreloadThread = null;
+    private volatile double mPreloadTimeMs = 0.0;
+    private volatile int mPreloadedCount = 0;
+
+    private static TrajectoryRepository mInstance;
+
+    public static synchronized TrajectoryRepository getInstance() {
+        if (mInstance == null) {
+            mInstance = new TrajectoryRepository();
+        }
+
+        return mInstance;
+    }
+
+    private TrajectoryRepository() {
+    }
+
+    /** Starts parsing every trajectory in the deploy directory in the background, call once from robotInit */
+    public synchronized void preload() {
+        if (mPreloadThread != null) {
+            return;
+        }
+
+        mPreloadThread = new Thread(this::preloadAll, "TrajectoryPreload");
+        mPreloadThread.setDaemon(true);
+        mPreloadThread.setPriority(Thread.MIN_PRIORITY);
+        mPreloadThread.start();
+    }
+
+    /**
+     * @return the whole trajectory, or empty if it doesn't exist or failed to load
+     */
+    public Optional<AllianceTrajectories> get(String name) {
+        return getEntry(name).mFull;
+    }
+
+    /**
+     * @return the split, or empty if it doesn't exist or failed to load
+     */
+    public Optional<AllianceTrajectories> get(String name, int split) {
+        Entry entry = getEntry(name);
+        if (split < 0 || split >= entry.mSplits.size()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(entry.mSplits.get(split));
+    }
+
+    private Entry getEntry(String name) {
+        CompletableFuture<Entry> entry = mEntries.get(name);
+        if (entry == null) {
+            // Loaded outside the map so other names aren't held up, whoever else asks for this one waits on it
+            CompletableFuture<Entry> loading = new CompletableFuture<>();
+            entry = mEntries.putIfAbsent(name, loading);
+            if (entry == null) {
+                try {
+                    loading.complete(load(name));
+                } finally {
+                    // Nobody is left waiting if the load threw
+                    loading.complete(kMissing);
+                }
+                entry = loading;
+            }
+        }
+
+        return entry.join();
+    }
+
+    private void preloadAll() {
+        long start = System.nanoTime();
+
+        File[] files = new File(Filesystem.getDeployDirectory(), kChoreoDirectory).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (!name.endsWith(kExtension)) {
+                    continue;
+                }
+
+                getEntry(name.substring(0, name.length() - kExtension.length()));
+                mPreloadedCount++;
+            }
+        }
+
+        mPreloadTimeMs = (System.nanoTime() - start) * 1e-6;
+        System.out.println("Preloaded " + mPreloadedCount + " trajectories in " + mPreloadTimeMs + " ms");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Entry load(String name) {
+        try {
+            var loaded = Choreo.loadTrajectory(name);
+
+            if (loaded.isEmpty()) {
+                return kMissing;
+            }
+
+            Trajectory<SwerveSample> full = (Trajectory<SwerveSample>) loaded.get();
+
+            List<AllianceTrajectories> splits = new ArrayList<>();
+            for (int i = 0;; i++) {
+                var split = full.getSplit(i);
+                if (split.isEmpty()) {
+                    break;
+                }
+                splits.add(new AllianceTrajectories(split.get()));
+            }
+
+            return new Entry(Optional.of(new AllianceTrajectories(full)), List.copyOf(splits));
+
+        } catch (Exception e) {
+            System.out.println("Failed to load trajectory " + name);
+            e.printStackTrace();
+            return kMissing;
+        }
+    }
+
+    public void outputTelemetry() {
+        SmartDashboard.putNumber("Debug/Trajectories/Preloaded", mPreloadedCount);
+        SmartDashboard.putNumber("Debug/Trajectories/Preload Time (ms)", mPreloadTimeMs);
+    }
+}
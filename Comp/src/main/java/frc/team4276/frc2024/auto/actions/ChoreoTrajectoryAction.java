@@ -1,72 +1,38 @@
 package frc.team4276.frc2024.auto.actions;
 
-import choreo.Choreo;
-import choreo.trajectory.SwerveSample;
-import choreo.trajectory.Trajectory;
+import java.util.Optional;
 
 import frc.team254.lib.geometry.Pose2d;
+import frc.team4276.frc2024.auto.TrajectoryRepository;
+import frc.team4276.frc2024.auto.TrajectoryRepository.AllianceTrajectories;
 import frc.team4276.frc2024.field.AllianceChooser;
 import frc.team4276.frc2024.subsystems.DriveSubsystem;
+import frc.team4276.lib.swerve.CachedTrajectory;
 
 public class ChoreoTrajectoryAction implements Action {
     private Pose2d initial = Pose2d.identity();
     private boolean isInit = false;
 
-    private Trajectory<SwerveSample> traj;
+    private CachedTrajectory traj;
 
-    @SuppressWarnings("unchecked")
     public ChoreoTrajectoryAction(String name) {
-        try {
-            var t = Choreo.loadTrajectory(name);
-
-            if (t.isEmpty())
-                return;
-
-            traj = (Trajectory<SwerveSample>) t.get();
-
-            if (AllianceChooser.getInstance().isAllianceRed()) {
-                traj = traj.flipped();
-
-            }
-
-            initial = Pose2d.fromWPI(traj.getInitialPose(false));
-
-            isInit = true;
-
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
-        }
-
+        init(TrajectoryRepository.getInstance().get(name));
     }
-    
-    @SuppressWarnings("unchecked")
-    public ChoreoTrajectoryAction(String name, int split) {
-        try {
-            var t = Choreo.loadTrajectory(name);
 
-            if (t.isEmpty())
-                return;
-
-            var s = t.get().getSplit(split);
-
-            if (s.isEmpty())
-                return;
-
-            traj = (Trajectory<SwerveSample>) s.get();
-
-            if (AllianceChooser.getInstance().isAllianceRed()) {
-                traj = traj.flipped();
-
-            }
+    public ChoreoTrajectoryAction(String name, int split) {
+        init(TrajectoryRepository.getInstance().get(name, split));
+    }
 
-            initial = Pose2d.fromWPI(traj.getInitialPose(false));
+    private void init(Optional<AllianceTrajectories> trajectories) {
+        if (trajectories.isEmpty())
+            return;
 
-            isInit = true;
+        boolean isRed = AllianceChooser.getInstance().isAllianceRed();
 
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
-        }
+        initial = trajectories.get().getInitialPose(isRed);
+        traj = trajectories.get().get(isRed);
 
+        isInit = true;
     }
 
     @Override
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import frc.team4276.frc2024.auto.AutoModeBase;
+
 /**
  * Executes one action at a time. Useful as a member of {@link ParallelAction}
  */
@@ -24,22 +26,31 @@ public class SeriesAction implements Action {
     @Override
     public void start() {}
 
+    /**
+     * Moves on to the next action as soon as one finishes, so actions that finish right away don't take an update
+     * each.
+     */
     @Override
     public void update() {
-        if (mCurrentAction == null) {
-            if (mRemainingActions.isEmpty()) {
-                return;
+        while (true) {
+            if (mCurrentAction == null) {
+                if (mRemainingActions.isEmpty()) {
+                    return;
+                }
+
+                mCurrentAction = mRemainingActions.remove(0);
+                mCurrentAction.start();
             }
 
-            mCurrentAction = mRemainingActions.remove(0);
-            mCurrentAction.start();
-        }
+            mCurrentAction.update();
 
-        mCurrentAction.update();
+            if (!mCurrentAction.isFinished()) {
+                return;
+            }
 
-        if (mCurrentAction.isFinished()) {
             mCurrentAction.done();
             mCurrentAction = null;
+            AutoModeBase.stepCompleted();
         }
     }
 
@@ -2,7 +2,7 @@ package frc.team4276.frc2024.auto.actions;
 
 import frc.team4276.frc2024.RobotState;
 
-import frc.team254.lib.geometry.Pose2d;
+import frc.team254.lib.geometry.IPoseView;
 import frc.team254.lib.geometry.Translation2d;
 
 public class WaitForRegionAction implements Action {
@@ -25,9 +25,9 @@ public class WaitForRegionAction implements Action {
 
     @Override
     public boolean isFinished() {
-        Pose2d robot_pose = RobotState.getInstance().getLatestFieldToVehicle();
-        return robot_pose.getTranslation().x() < mTopRight.x() && robot_pose.getTranslation().x() > mBottomLeft.x()
-                && robot_pose.getTranslation().y() > mBottomLeft.y() && robot_pose.getTranslation().y() < mTopRight.y();
+        IPoseView robot_pose = RobotState.getInstance().getLatestFieldToVehicleView();
+        return robot_pose.x() < mTopRight.x() && robot_pose.x() > mBottomLeft.x()
+                && robot_pose.y() > mBottomLeft.y() && robot_pose.y() < mTopRight.y();
     }
 
     @Override
@@ -0,0 +1,33 @@
+package frc.team4276.frc2024.shooting;
+
+/**
+ * Speaker and ferry setpoints for one pose update. Immutable, so it can be handed to any thread without a lock.
+ */
+public final class AimingParameters {
+    /** Pose update this was computed for, see RobotState.getAimingParameters */
+    public final long epoch;
+
+    public final double speaker_distance;
+    public final double speaker_flywheel_rpm;
+    public final double speaker_fourbar_angle;
+    public final double speaker_heading_radians;
+
+    public final double ferry_distance;
+    public final double ferry_flywheel_rpm;
+    public final double ferry_fourbar_angle;
+    public final double ferry_heading_radians;
+
+    public AimingParameters(long epoch, ShotParameters speaker, ShotParameters ferry) {
+        this.epoch = epoch;
+
+        speaker_distance = speaker.distance;
+        speaker_flywheel_rpm = speaker.flywheel_rpm;
+        speaker_fourbar_angle = speaker.fourbar_angle;
+        speaker_heading_radians = speaker.heading_radians;
+
+        ferry_distance = ferry.distance;
+        ferry_flywheel_rpm = ferry.flywheel_rpm;
+        ferry_fourbar_angle = ferry.fourbar_angle;
+        ferry_heading_radians = ferry.heading_radians;
+    }
+}
@@ -0,0 +1,93 @@
+package frc.team4276.frc2024.shooting;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import frc.team4276.lib.util.InterpolatingLookupTable;
+import frc.team4276.lib.util.RollingStats;
+
+/**
+ * Aims a shot while the robot is moving. The note keeps the robot's velocity after it leaves the shooter, so the
+ * shot is aimed at a virtual target: the real one moved back by the field relative robot velocity times the note's
+ * time of flight. The time of flight depends on the distance to the virtual target, so it's a fixed point
+ * iteration, stopped after kMaxIterations even if it hasn't settled.
+ *
+ * <p>
+ * The iteration contracts as long as speed * d(time of flight)/d(distance) is below 1, which is ~0.07 s/m * 5 m/s
+ * for the speaker table, so it usually settles in 2 or 3 iterations.
+ */
+public class MovingShotSolver {
+    private static final int kStatsWindow = 100;
+
+    private final int kMaxIterations;
+    private final double kToleranceSeconds;
+
+    private int mIterations = 0;
+    private boolean mConverged = true;
+    private double mTimeOfFlight = 0.0;
+    private long mNotConvergedCount = 0;
+
+    private final RollingStats mIterationStats = new RollingStats(kStatsWindow);
+    private final RollingStats mSolveTimeStats = new RollingStats(kStatsWindow);
+
+    /**
+     * @param max_iterations time of flight updates per solve
+     * @param tolerance_seconds converged once the time of flight changes by less than this
+     */
+    public MovingShotSolver(int max_iterations, double tolerance_seconds) {
+        kMaxIterations = max_iterations;
+        kToleranceSeconds = tolerance_seconds;
+    }
+
+    /**
+     * @param field_vx field relative robot velocity
+     * @param field_vy field relative robot velocity
+     * @return out, with the distance and heading to the virtual target
+     */
+    public ShotParameters solve(double robot_x, double robot_y, double field_vx, double field_vy,
+            double target_x, double target_y, InterpolatingLookupTable flywheel_rpms,
+            InterpolatingLookupTable fourbar_angles, InterpolatingLookupTable times_of_flight, ShotParameters out) {
+        long start = System.nanoTime();
+
+        double time_of_flight = times_of_flight.get(Math.hypot(target_x - robot_x, target_y - robot_y));
+        double virtual_x = target_x;
+        double virtual_y = target_y;
+
+        int iterations = 0;
+        boolean converged = false;
+        while (iterations < kMaxIterations && !converged) {
+            virtual_x = target_x - field_vx * time_of_flight;
+            virtual_y = target_y - field_vy * time_of_flight;
+
+            double next = times_of_flight.get(Math.hypot(virtual_x - robot_x, virtual_y - robot_y));
+            converged = Math.abs(next - time_of_flight) < kToleranceSeconds;
+            time_of_flight = next;
+            iterations++;
+        }
+
+        out.update(robot_x, robot_y, virtual_x, virtual_y, flywheel_rpms, fourbar_angles);
+
+        mIterations = iterations;
+        mConverged = converged;
+        mTimeOfFlight = time_of_flight;
+        if (!converged) {
+            mNotConvergedCount++;
+        }
+        mIterationStats.addValue(iterations);
+        mSolveTimeStats.addValue(System.nanoTime() - start);
+
+        return out;
+    }
+
+    public boolean isConverged() {
+        return mConverged;
+    }
+
+    public void outputTelemetry() {
+        SmartDashboard.putNumber("Debug/Moving Shot/Iterations", mIterations);
+        SmartDashboard.putBoolean("Debug/Moving Shot/Converged", mConverged);
+        SmartDashboard.putNumber("Debug/Moving Shot/Time of Flight", mTimeOfFlight);
+        SmartDashboard.putNumber("Debug/Moving Shot/Not Converged Count", mNotConvergedCount);
+        SmartDashboard.putNumber("Debug/Moving Shot/Iterations Mean", mIterationStats.getMean());
+        SmartDashboard.putNumber("Debug/Moving Shot/Solve Time p99 (us)", mSolveTimeStats.getPercentile(0.99) * 1e-3);
+    }
+}
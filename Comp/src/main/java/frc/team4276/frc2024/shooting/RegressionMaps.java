@@ -1,61 +1,69 @@
 package frc.team4276.frc2024.shooting;
 
-import edu.wpi.first.math.interpolation.InterpolatingDoubleTreeMap;
+import frc.team4276.lib.util.InterpolatingLookupTable;
 
 public class RegressionMaps {
-    public static InterpolatingDoubleTreeMap kSpeakerFourbarAngles = new InterpolatingDoubleTreeMap();
-    static {
-        kSpeakerFourbarAngles.put(1.0, 135.0);
-        kSpeakerFourbarAngles.put(1.5, 130.0);
-        kSpeakerFourbarAngles.put(2.0, 120.0);
-        kSpeakerFourbarAngles.put(2.25, 125.0);
-        kSpeakerFourbarAngles.put(2.5, 110.0);
-        // kSpeakerFourbarAngles.put(2.75, 110.0);
-        kSpeakerFourbarAngles.put(3.0, 106.5);
-        // kSpeakerFourbarAngles.put(3.25, 106.5);
-        kSpeakerFourbarAngles.put(3.5, 105.0);
-        // kSpeakerFourbarAngles.put(3.75, 105.0);
-        kSpeakerFourbarAngles.put(4.0, 104.0);
-        // kSpeakerFourbarAngles.put(4.25, 104.0);
-        kSpeakerFourbarAngles.put(4.5, 103.0);
-        // kSpeakerFourbarAngles.put(4.75, 102.0);
-        kSpeakerFourbarAngles.put(5.0, 102.0);
-        kSpeakerFourbarAngles.put(5.5, 101.0);
-        kSpeakerFourbarAngles.put(6.0, 100.0);
-        kSpeakerFourbarAngles.put(6.5, 95.0);
-        kSpeakerFourbarAngles.put(7.0, 90.0);
-    }
+    public static final InterpolatingLookupTable kSpeakerFourbarAngles = new InterpolatingLookupTable.Builder()
+        .put(1.0, 135.0)
+        .put(1.5, 130.0)
+        .put(2.0, 120.0)
+        .put(2.25, 125.0)
+        .put(2.5, 110.0)
+        // .put(2.75, 110.0)
+        .put(3.0, 106.5)
+        // .put(3.25, 106.5)
+        .put(3.5, 105.0)
+        // .put(3.75, 105.0)
+        .put(4.0, 104.0)
+        // .put(4.25, 104.0)
+        .put(4.5, 103.0)
+        // .put(4.75, 102.0)
+        .put(5.0, 102.0)
+        .put(5.5, 101.0)
+        .put(6.0, 100.0)
+        .put(6.5, 95.0)
+        .put(7.0, 90.0)
+        .build();
 
-    public static InterpolatingDoubleTreeMap kSpeakerFlywheelRPMs = new InterpolatingDoubleTreeMap();
-    static {
-        kSpeakerFlywheelRPMs.put(1.0, 3500.0);
-        kSpeakerFlywheelRPMs.put(1.5, 4000.0);
-        kSpeakerFlywheelRPMs.put(2.0, 4000.0);
-        kSpeakerFlywheelRPMs.put(2.5, 4500.0);
-        kSpeakerFlywheelRPMs.put(3.0, 5000.0);
-        kSpeakerFlywheelRPMs.put(3.5, 5000.0);
-        kSpeakerFlywheelRPMs.put(4.0, 5000.0);
-        kSpeakerFlywheelRPMs.put(4.5, 5000.0);
-        kSpeakerFlywheelRPMs.put(5.0, 5000.0);
-        kSpeakerFlywheelRPMs.put(5.5, 5000.0);
-        kSpeakerFlywheelRPMs.put(6.0, 5000.0);
-        kSpeakerFlywheelRPMs.put(6.5, 5000.0);
-        kSpeakerFlywheelRPMs.put(7.0, 5000.0);
-    }
+    public static final InterpolatingLookupTable kSpeakerFlywheelRPMs = new InterpolatingLookupTable.Builder()
+        .put(1.0, 3500.0)
+        .put(1.5, 4000.0)
+        .put(2.0, 4000.0)
+        .put(2.5, 4500.0)
+        .put(3.0, 5000.0)
+        .put(3.5, 5000.0)
+        .put(4.0, 5000.0)
+        .put(4.5, 5000.0)
+        .put(5.0, 5000.0)
+        .put(5.5, 5000.0)
+        .put(6.0, 5000.0)
+        .put(6.5, 5000.0)
+        .put(7.0, 5000.0)
+        .build();
 
-    public static InterpolatingDoubleTreeMap kFerryFourbarAngles = new InterpolatingDoubleTreeMap();
-    static {
-        kFerryFourbarAngles.put(5.3, 130.0);
-        kFerryFourbarAngles.put(7.9, 130.0);
-        kFerryFourbarAngles.put(9.3, 130.0);
-        kFerryFourbarAngles.put(12.3, 135.0);
-    }
+    // Seconds from leaving the shooter to the speaker opening, for shooting on the move. Estimated from a ~14 m/s
+    // exit speed, not measured yet
+    public static final InterpolatingLookupTable kSpeakerTimeOfFlight = new InterpolatingLookupTable.Builder()
+        .put(1.0, 0.10)
+        .put(2.0, 0.17)
+        .put(3.0, 0.24)
+        .put(4.0, 0.31)
+        .put(5.0, 0.38)
+        .put(6.0, 0.45)
+        .put(7.0, 0.52)
+        .build();
 
-    public static InterpolatingDoubleTreeMap kFerryFlywheelRPMs = new InterpolatingDoubleTreeMap();
-    static {
-        kFerryFlywheelRPMs.put(5.3, 3500.0);
-        kFerryFlywheelRPMs.put(7.9, 4000.0);
-        kFerryFlywheelRPMs.put(9.3, 4500.0);
-        kFerryFlywheelRPMs.put(12.3, 5000.0);
-    }
+    public static final InterpolatingLookupTable kFerryFourbarAngles = new InterpolatingLookupTable.Builder()
+        .put(5.3, 130.0)
+        .put(7.9, 130.0)
+        .put(9.3, 130.0)
+        .put(12.3, 135.0)
+        .build();
+
+    public static final InterpolatingLookupTable kFerryFlywheelRPMs = new InterpolatingLookupTable.Builder()
+        .put(5.3, 3500.0)
+        .put(7.9, 4000.0)
+        .put(9.3, 4500.0)
+        .put(12.3, 5000.0)
+        .build();
 }
@@ -1,22 +1,36 @@
 package frc.team4276.frc2024.shooting;
 
 import frc.team4276.frc2024.RobotState;
-import frc.team254.lib.geometry.Pose2d;
-import frc.team254.lib.geometry.Rotation2d;
+import frc.team254.lib.geometry.IPoseView;
 import frc.team254.lib.geometry.Translation2d;
 
 public class ShootingUtil {
-    public static double[] getSpeakerShotParams(Pose2d robot_pose){
-        Translation2d robot_to_target = RobotState.getInstance().getPOIs().kSpeakerCenter
-            .translateBy(robot_pose.getTranslation().inverse());
+    /**
+     * @return out
+     */
+    public static ShotParameters getSpeakerShotParams(IPoseView robot_pose, ShotParameters out) {
+        Translation2d target = RobotState.getInstance().getPOIs().kSpeakerCenter;
 
-        double distance = robot_to_target.norm();
-        double flywheel_setpoint = RegressionMaps.kSpeakerFlywheelRPMs.get(robot_to_target.norm());
-        double fourbar_setpoint = RegressionMaps.kSpeakerFourbarAngles.get(robot_to_target.norm());
-        Rotation2d heading_setpoint = robot_to_target.direction();
+        out.update(robot_pose.x(), robot_pose.y(), target.x(), target.y(),
+                RegressionMaps.kSpeakerFlywheelRPMs, RegressionMaps.kSpeakerFourbarAngles);
+        return out;
+    }
 
-        return new double[] { distance, flywheel_setpoint, fourbar_setpoint, heading_setpoint.getRadians()};
+    /**
+     * Same as {@link #getSpeakerShotParams(IPoseView, ShotParameters)} aimed at the virtual target for a moving
+     * robot
+     *
+     * @param field_vx field relative robot velocity
+     * @param field_vy field relative robot velocity
+     * @return out
+     */
+    public static ShotParameters getMovingSpeakerShotParams(IPoseView robot_pose, double field_vx, double field_vy,
+            MovingShotSolver solver, ShotParameters out) {
+        Translation2d target = RobotState.getInstance().getPOIs().kSpeakerCenter;
 
+        return solver.solve(robot_pose.x(), robot_pose.y(), field_vx, field_vy, target.x(), target.y(),
+                RegressionMaps.kSpeakerFlywheelRPMs, RegressionMaps.kSpeakerFourbarAngles,
+                RegressionMaps.kSpeakerTimeOfFlight, out);
     }
     
 }
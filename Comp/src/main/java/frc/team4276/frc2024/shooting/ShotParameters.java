@@ -0,0 +1,25 @@
+package frc.team4276.frc2024.shooting;
+
+import frc.team4276.lib.util.InterpolatingLookupTable;
+
+/** Setpoints for a shot at the robot's pose. Filled in place, keep one per caller and reuse it. */
+public class ShotParameters {
+    public double distance;
+    public double flywheel_rpm;
+    public double fourbar_angle;
+    public double heading_radians;
+
+    /**
+     * Aim at the target from the robot's position through the given tables
+     */
+    void update(double robot_x, double robot_y, double target_x, double target_y,
+            InterpolatingLookupTable flywheel_rpms, InterpolatingLookupTable fourbar_angles) {
+        double dx = target_x - robot_x;
+        double dy = target_y - robot_y;
+
+        distance = Math.hypot(dx, dy);
+        flywheel_rpm = flywheel_rpms.get(distance);
+        fourbar_angle = fourbar_angles.get(distance);
+        heading_radians = Math.atan2(dy, dx);
+    }
+}
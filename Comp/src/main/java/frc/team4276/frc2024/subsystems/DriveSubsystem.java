@@ -7,8 +7,6 @@ package frc.team4276.frc2024.subsystems;
 import java.util.ArrayList;
 import java.util.List;
 
-import choreo.trajectory.SwerveSample;
-import choreo.trajectory.Trajectory;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -18,6 +16,7 @@ import frc.team4276.frc2024.RobotState;
 import frc.team4276.frc2024.Constants.DriveConstants;
 import frc.team4276.lib.drivers.ADISGyro;
 import frc.team4276.lib.drivers.Subsystem;
+import frc.team4276.lib.swerve.CachedTrajectory;
 import frc.team4276.lib.swerve.HeadingController;
 import frc.team4276.lib.swerve.MAXSwerveModule;
 import frc.team4276.lib.swerve.SwerveDebug;
@@ -31,7 +30,8 @@ import frc.team1678.lib.swerve.ChassisSpeeds;
 import frc.team254.lib.util.Util;
 import frc.team254.lib.geometry.Rotation2d;
 import frc.team254.lib.geometry.Pose2d;
-import frc.team254.lib.geometry.Twist2d;
+import frc.team254.lib.geometry.MutablePose2d;
+import frc.team254.lib.geometry.MutableTwist2d;
 
 public class DriveSubsystem extends Subsystem {
     public MAXSwerveModule[] mModules;
@@ -68,6 +68,12 @@ public class DriveSubsystem extends Subsystem {
 
     private Rotation2d mTrackingAngle = Rotation2d.identity();
 
+    // Reused every loop so the setpoint and odometry paths don't allocate geometry
+    private final MutableTwist2d mSetpointTwist = new MutableTwist2d();
+    private final ModuleState[] mPrevModuleStates = new ModuleState[] {
+            new ModuleState(), new ModuleState(), new ModuleState(), new ModuleState() };
+    private final ChassisSpeeds mPrevChassisSpeeds = new ChassisSpeeds();
+
     private static DriveSubsystem mInstance;
 
     public static DriveSubsystem getInstance() {
@@ -91,20 +97,20 @@ public class DriveSubsystem extends Subsystem {
         mPeriodicIO = new PeriodicIO();
 
         mOdometry = new SwerveDriveOdometry(
-                DriveConstants.kDriveKinematics,
+                DriveConstants.kFourModuleKinematics,
                 mPeriodicIO.meas_module_states);
 
         mMotionPlanner = new MotionPlanner();
         mHeadingController = HeadingController.getInstance();
         
-        Shuffleboard.getTab("Path").addNumber("X Translation", RobotState.getInstance().getLatestFieldToVehicle().getTranslation()::x);
-        Shuffleboard.getTab("Path").addNumber("Y Translation", RobotState.getInstance().getLatestFieldToVehicle().getTranslation()::y);
-        Shuffleboard.getTab("Path").addNumber("Rotation", RobotState.getInstance().getLatestFieldToVehicle().getRotation()::getDegrees);
+        Shuffleboard.getTab("Path").addNumber("X Translation", () -> RobotState.getInstance().getLatestFieldToVehicleView().x());
+        Shuffleboard.getTab("Path").addNumber("Y Translation", () -> RobotState.getInstance().getLatestFieldToVehicleView().y());
+        Shuffleboard.getTab("Path").addNumber("Rotation", () -> Math.toDegrees(RobotState.getInstance().getLatestFieldToVehicleView().getRadians()));
         
-        Shuffleboard.getTab("Path").addNumber("X Error", mMotionPlanner.getTranslationError()::x);
-        Shuffleboard.getTab("Path").addNumber("Y Error", mMotionPlanner.getTranslationError()::y);
-        Shuffleboard.getTab("Path").addNumber("Translation Error", mMotionPlanner.getTranslationError()::norm);
-        Shuffleboard.getTab("Path").addNumber("Rotation Error", mMotionPlanner.getRotationError()::getDegrees);
+        Shuffleboard.getTab("Path").addNumber("X Error", mMotionPlanner::getTranslationErrorX);
+        Shuffleboard.getTab("Path").addNumber("Y Error", mMotionPlanner::getTranslationErrorY);
+        Shuffleboard.getTab("Path").addNumber("Translation Error", mMotionPlanner::getTranslationErrorNorm);
+        Shuffleboard.getTab("Path").addNumber("Rotation Error", () -> Math.toDegrees(mMotionPlanner.getRotationErrorRadians()));
     }
 
     public synchronized void teleopDrive(ChassisSpeeds speeds) {
@@ -127,12 +133,12 @@ public class DriveSubsystem extends Subsystem {
         mPeriodicIO.des_chassis_speeds = speeds;
     }
 
-    public synchronized void setChoreoTraj(Trajectory<SwerveSample> traj) {
+    public synchronized void setChoreoTraj(CachedTrajectory traj) {
         if(mControlState != DriveControlState.PATH_FOLLOWING) {
             mControlState = DriveControlState.PATH_FOLLOWING;
         }
 
-        mMotionPlanner.setTrajectory(traj, RobotState.getInstance().getLatestFieldToVehicle(), mPeriodicIO.meas_chassis_speeds, Timer.getFPGATimestamp());
+        mMotionPlanner.setTrajectory(traj, RobotState.getInstance().getLatestFieldToVehicleView(), mPeriodicIO.meas_chassis_speeds, Timer.getFPGATimestamp());
     }
 
     public synchronized void feedTrackingSetpoint(Rotation2d angle) {
@@ -251,12 +257,12 @@ public class DriveSubsystem extends Subsystem {
         // Inputs/Desired States
         double timestamp = Timer.getFPGATimestamp();
         ChassisSpeeds des_chassis_speeds = ChassisSpeeds.identity();
-        ChassisSpeeds meas_chassis_speeds = ChassisSpeeds.identity();
+        ChassisSpeeds meas_chassis_speeds = new ChassisSpeeds();
         ModuleState[] meas_module_states = new ModuleState[] {
-                ModuleState.identity(),
-                ModuleState.identity(),
-                ModuleState.identity(),
-                ModuleState.identity()
+                new ModuleState(),
+                new ModuleState(),
+                new ModuleState(),
+                new ModuleState()
         };
         Rotation2d heading = Rotation2d.identity();
         Rotation2d pitch = Rotation2d.identity();
@@ -270,17 +276,22 @@ public class DriveSubsystem extends Subsystem {
         };
     }
 
+    @Override
+    public boolean isReadIndependent() {
+        return true;
+    }
+
     @Override
     public synchronized void readPeriodicInputs() {
         mPeriodicIO.timestamp = Timer.getFPGATimestamp();
 
         for (int i = 0; i < mPeriodicIO.meas_module_states.length; i++) {
             mModules[i].readPeriodicInputs();
-            mPeriodicIO.meas_module_states[i] = mModules[i].getState();
+            mModules[i].getState(mPeriodicIO.meas_module_states[i]);
         }
 
-        mPeriodicIO.meas_chassis_speeds = DriveConstants.kDriveKinematics
-                .toChassisSpeeds(mPeriodicIO.meas_module_states);
+        DriveConstants.kFourModuleKinematics.toChassisSpeeds(mPeriodicIO.meas_module_states,
+                mPeriodicIO.meas_chassis_speeds);
         mPeriodicIO.heading = mGyro.getYaw();
         mPeriodicIO.pitch = mGyro.getPitch();
 
@@ -307,7 +318,7 @@ public class DriveSubsystem extends Subsystem {
                             case HEADING_CONTROL:
                                 break;
                             case PATH_FOLLOWING:
-                                var speeds = mMotionPlanner.update(RobotState.getInstance().getLatestFieldToVehicle(), timestamp, isVirtual());
+                                var speeds = mMotionPlanner.update(RobotState.getInstance().getLatestFieldToVehicleView(), timestamp, isVirtual());
 
                                 mPeriodicIO.des_chassis_speeds = ChassisSpeeds.fromFieldRelativeSpeeds(
                                     speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond, 
@@ -321,12 +332,14 @@ public class DriveSubsystem extends Subsystem {
 
                         updateSetpoint();
 
-                        mOdometry.update(
-                                mGyro.getYaw().toWPI(),
-                                mPeriodicIO.meas_module_states);
-
-                        RobotState.getInstance().addOdomObservations(
-                                mPeriodicIO.timestamp, Pose2d.fromWPI(mOdometry.getPoseMeters()));
+                        // Heading from the same read as the module states
+                        RobotState.getInstance().addOdomObservations(mPeriodicIO.timestamp,
+                                mOdometry.update(mPeriodicIO.heading.cos(), mPeriodicIO.heading.sin(),
+                                        mPeriodicIO.meas_module_states));
+                        RobotState.getInstance().addVelocityObservations(mPeriodicIO.timestamp,
+                                mPeriodicIO.meas_chassis_speeds.vxMetersPerSecond,
+                                mPeriodicIO.meas_chassis_speeds.vyMetersPerSecond,
+                                mPeriodicIO.meas_chassis_speeds.omegaRadiansPerSecond);
                     }
                 } catch (Exception e) {
                     System.out.println(e.getMessage());
@@ -347,10 +360,10 @@ public class DriveSubsystem extends Subsystem {
 
         ChassisSpeeds des_chassis_speeds = mPeriodicIO.des_chassis_speeds;
 
-        Pose2d robot_pose_vel = new Pose2d(des_chassis_speeds.vxMetersPerSecond * Constants.kLooperDt,
+        double dtheta = des_chassis_speeds.omegaRadiansPerSecond * Constants.kLooperDt;
+        MutableTwist2d twist_vel = MutablePose2d.logInto(des_chassis_speeds.vxMetersPerSecond * Constants.kLooperDt,
                 des_chassis_speeds.vyMetersPerSecond * Constants.kLooperDt,
-                Rotation2d.fromRadians(des_chassis_speeds.omegaRadiansPerSecond * Constants.kLooperDt));
-        Twist2d twist_vel = Pose2d.log(robot_pose_vel).scaled(1.0 / Constants.kLooperDt);
+                Math.cos(dtheta), Math.sin(dtheta), mSetpointTwist).scale(1.0 / Constants.kLooperDt);
 
         ChassisSpeeds wanted_speeds;
         if (mOverrideHeading) {
@@ -378,10 +391,14 @@ public class DriveSubsystem extends Subsystem {
                         * mKinematicLimits.kMaxDriveVelocity;
             }
 
-            ModuleState[] prev_module_states = mPeriodicIO.des_module_states.clone(); // Get last setpoint to get
-                                                                                    // differentials
-            ChassisSpeeds prev_chassis_speeds = DriveConstants.kDriveKinematics.toChassisSpeeds(prev_module_states);
-            ModuleState[] target_module_states = DriveConstants.kDriveKinematics.toModuleStates(wanted_speeds);
+            ModuleState[] prev_module_states = mPrevModuleStates; // Get last setpoint to get differentials
+            for (int i = 0; i < prev_module_states.length; i++) {
+                prev_module_states[i].set(mPeriodicIO.des_module_states[i]);
+            }
+            ChassisSpeeds prev_chassis_speeds = DriveConstants.kFourModuleKinematics
+                    .toChassisSpeeds(prev_module_states, mPrevChassisSpeeds);
+            ModuleState[] target_module_states = DriveConstants.kFourModuleKinematics
+                    .toModuleStates(wanted_speeds, mPeriodicIO.des_module_states);
 
             if (wanted_speeds.epsilonEquals(ChassisSpeeds.identity(), Util.kEpsilon)) {
                 for (int i = 0; i < target_module_states.length; i++) {
@@ -429,8 +446,7 @@ public class DriveSubsystem extends Subsystem {
         SmartDashboard.putNumber("Comp/Des Y Speed: ", wanted_speeds.vyMetersPerSecond);
         SmartDashboard.putNumber("Comp/Des Rot Speed: ", wanted_speeds.omegaRadiansPerSecond);
 
-        ModuleState[] real_module_setpoints = DriveConstants.kDriveKinematics.toModuleStates(wanted_speeds);
-        mPeriodicIO.des_module_states = real_module_setpoints;
+        DriveConstants.kFourModuleKinematics.toModuleStates(wanted_speeds, mPeriodicIO.des_module_states);
     }
 
     @Override
@@ -461,13 +477,13 @@ public class DriveSubsystem extends Subsystem {
 
         
         SmartDashboard.putNumber("Comp/Pos X", 
-            isVirtual() ? mMotionPlanner.getTargetPose().getTranslation().x() : 
-            RobotState.getInstance().getLatestFieldToVehicle().getTranslation().x());
+            isVirtual() ? mMotionPlanner.getTargetPose().x() : 
+            RobotState.getInstance().getLatestFieldToVehicleView().x());
         SmartDashboard.putNumber("Comp/Pos Y", 
-            isVirtual() ? mMotionPlanner.getTargetPose().getTranslation().y() : 
-            RobotState.getInstance().getLatestFieldToVehicle().getTranslation().y());
+            isVirtual() ? mMotionPlanner.getTargetPose().y() : 
+            RobotState.getInstance().getLatestFieldToVehicleView().y());
         SmartDashboard.putNumber("Comp/Heading", 
-            isVirtual() ? mMotionPlanner.getTargetPose().getRotation().getDegrees() : 
+            isVirtual() ? Math.toDegrees(mMotionPlanner.getTargetPose().getRadians()) : 
             mPeriodicIO.heading.getDegrees());
         
         for(int i = 0; i < mModules.length; i++) {
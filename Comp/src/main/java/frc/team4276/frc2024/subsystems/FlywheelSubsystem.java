@@ -149,6 +149,11 @@ public class FlywheelSubsystem extends Subsystem {
 
     }
 
+    @Override
+    public boolean isReadIndependent() {
+        return true;
+    }
+
     @Override
     public void readPeriodicInputs() {
         mPeriodicIO.meas_top_RPM = mTopEncoder.getVelocity();
@@ -1,5 +1,7 @@
 package frc.team4276.frc2024.subsystems;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 import frc.team4276.frc2024.Ports;
@@ -14,7 +16,8 @@ import frc.team1678.lib.requests.Request;
 public class IntakeSubsystem extends Subsystem {
     private VIKCANSparkMax mMotor;
 
-    private State mState = State.IDLE;
+    // Also written from the beam break interrupt, see cutState
+    private final AtomicReference<State> mState = new AtomicReference<>(State.IDLE);
 
     public enum State {
         IDLE(0.0),
@@ -65,16 +68,28 @@ public class IntakeSubsystem extends Subsystem {
     }
     
     public void setState(State state) {
-        mState = state;
+        mState.set(state);
     }
 
     public State getState() {
-        return mState;
+        return mState.get();
+    }
+
+    /**
+     * Switches to the new state and sends its voltage right away, only if the intake is still in the expected state.
+     * For the beam break interrupt, which can't wait for writePeriodicOutputs. A state set by the loop in between is
+     * never overwritten. If the loop sets a state just after the swap, the cut voltage can reach the motor after the
+     * loop's, until the next writePeriodicOutputs sends the loop's state again.
+     */
+    public void cutState(State expected, State state) {
+        if (mState.compareAndSet(expected, state)) {
+            mMotor.setVoltage(state.voltage);
+        }
     }
 
     @Override
     public void stop() {
-        mState = State.IDLE;
+        mState.set(State.IDLE);
     }
 
     @Override
@@ -99,12 +114,12 @@ public class IntakeSubsystem extends Subsystem {
 
     @Override
     public void writePeriodicOutputs() {
-        mMotor.setVoltage(mState.voltage);
+        mMotor.setVoltage(mState.get().voltage);
     }
 
     @Override
     public void outputTelemetry() {
-        SmartDashboard.putString("Debug/Intake State", mState.name());
+        SmartDashboard.putString("Debug/Intake State", mState.get().name());
         SmartDashboard.putNumber("Debug/Intake Current", mMotor.getOutputCurrent());
         SmartDashboard.putNumber("Debug/Intake Voltage", mMotor.getAppliedVoltage());
 
@@ -0,0 +1,101 @@
+package frc.team4276.frc2024.subsystems;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import frc.team4276.frc2024.subsystems.Superstructure.GoalState;
+import frc.team4276.lib.util.StateMachine;
+
+/**
+ * The transitions Superstructure follows in NOMINAL, defined once so the tests check the machine the robot runs.
+ * Superstructure supplies what entering each state requests.
+ */
+final class NominalStateMachine {
+    // What the superstructure is doing in NOMINAL, a goal can have more than one depending on the flags and the
+    // goal before it
+    enum NominalState {
+        IDLE,
+        STOW,
+        STOW_PREP,
+        SKIM,
+        INTAKE,
+        READY,
+        FERRY_READY,
+        AMP,
+        SHOOT,
+        AMP_SHOOT,
+        EXHAUST,
+        POOP,
+        CLIMB
+    }
+
+    // The goal state with the flags that change what it does
+    enum NominalEvent {
+        IDLE,
+        STOW,
+        STOW_PREP,
+        SKIM,
+        INTAKE,
+        READY,
+        FERRY_READY,
+        AMP,
+        SHOOT,
+        EXHAUST,
+        POOP,
+        CLIMB
+    }
+
+    private NominalStateMachine() {}
+
+    static NominalEvent event(GoalState goal, boolean prep, boolean force_disable_prep, boolean ferry) {
+        switch (goal) {
+            case IDLE:
+                return NominalEvent.IDLE;
+            case STOW:
+                return prep && !force_disable_prep ? NominalEvent.STOW_PREP : NominalEvent.STOW;
+            case SKIM:
+                return NominalEvent.SKIM;
+            case INTAKE:
+                return NominalEvent.INTAKE;
+            case READY:
+                return ferry ? NominalEvent.FERRY_READY : NominalEvent.READY;
+            case AMP:
+                return NominalEvent.AMP;
+            case SHOOT:
+                return NominalEvent.SHOOT;
+            case EXHAUST:
+                return NominalEvent.EXHAUST;
+            case POOP:
+                return NominalEvent.POOP;
+            case CLIMB:
+                return NominalEvent.CLIMB;
+            default:
+                return NominalEvent.IDLE;
+        }
+    }
+
+    /**
+     * @param entry run with the state entered, once per transition, staying in a state doesn't run it again
+     * @param can_intake INTAKE is only entered while this is true
+     */
+    static StateMachine<NominalState, NominalEvent> build(Consumer<NominalState> entry, BooleanSupplier can_intake) {
+        return new StateMachine.Builder<>(NominalState.class, NominalEvent.class)
+                .state(NominalState.IDLE, NominalEvent.IDLE, () -> entry.accept(NominalState.IDLE))
+                .state(NominalState.STOW, NominalEvent.STOW, () -> entry.accept(NominalState.STOW))
+                .state(NominalState.STOW_PREP, NominalEvent.STOW_PREP, () -> entry.accept(NominalState.STOW_PREP))
+                .state(NominalState.SKIM, NominalEvent.SKIM, () -> entry.accept(NominalState.SKIM))
+                .state(NominalState.INTAKE, NominalEvent.INTAKE, () -> entry.accept(NominalState.INTAKE))
+                .guard(NominalState.INTAKE, can_intake)
+                .state(NominalState.READY, NominalEvent.READY, () -> entry.accept(NominalState.READY))
+                .state(NominalState.FERRY_READY, NominalEvent.FERRY_READY,
+                        () -> entry.accept(NominalState.FERRY_READY))
+                .state(NominalState.AMP, NominalEvent.AMP, () -> entry.accept(NominalState.AMP))
+                .state(NominalState.SHOOT, NominalEvent.SHOOT, () -> entry.accept(NominalState.SHOOT))
+                .variant(NominalState.AMP_SHOOT, NominalEvent.SHOOT, () -> entry.accept(NominalState.AMP_SHOOT))
+                .transition(NominalState.AMP, NominalEvent.SHOOT, NominalState.AMP_SHOOT)
+                .state(NominalState.EXHAUST, NominalEvent.EXHAUST, () -> entry.accept(NominalState.EXHAUST))
+                .state(NominalState.POOP, NominalEvent.POOP, () -> entry.accept(NominalState.POOP))
+                .state(NominalState.CLIMB, NominalEvent.CLIMB, () -> entry.accept(NominalState.CLIMB))
+                .build(NominalState.IDLE);
+    }
+}
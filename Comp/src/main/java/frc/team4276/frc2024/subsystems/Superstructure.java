@@ -1,6 +1,6 @@
 package frc.team4276.frc2024.subsystems;
 
-import java.util.ArrayList;
+import java.util.EnumMap;
 
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
@@ -8,10 +8,12 @@ import frc.team4276.frc2024.Constants;
 import frc.team4276.frc2024.Ports;
 import frc.team4276.frc2024.RobotState;
 import frc.team4276.frc2024.Constants.SuperstructureConstants;
-import frc.team4276.frc2024.shooting.FerryUtil;
-import frc.team4276.frc2024.shooting.ShootingUtil;
+import frc.team4276.frc2024.shooting.AimingParameters;
 import frc.team4276.frc2024.controlboard.ControlBoard;
+import frc.team4276.frc2024.subsystems.NominalStateMachine.NominalEvent;
+import frc.team4276.frc2024.subsystems.NominalStateMachine.NominalState;
 import frc.team4276.lib.drivers.Subsystem;
+import frc.team4276.lib.util.StateMachine;
 
 import frc.team1678.lib.drivers.BeamBreak;
 import frc.team1678.lib.loops.ILooper;
@@ -19,9 +21,9 @@ import frc.team1678.lib.loops.Loop;
 import frc.team1678.lib.requests.LambdaRequest;
 import frc.team1678.lib.requests.ParallelRequest;
 import frc.team1678.lib.requests.Request;
+import frc.team1678.lib.requests.RequestExecutor;
 import frc.team1678.lib.requests.SequentialRequest;
 
-import frc.team254.lib.geometry.Pose2d;
 import frc.team254.lib.geometry.Rotation2d;
 
 public class Superstructure extends Subsystem {
@@ -30,8 +32,9 @@ public class Superstructure extends Subsystem {
     private IntakeSubsystem mIntakeSubsystem = IntakeSubsystem.getInstance();
     private FourbarSubsystem mFourbarSubsystem = FourbarSubsystem.getInstance();
 
-    private BeamBreak mFrontBeam  = new BeamBreak(Ports.BEAM_FRONT);
-    private BeamBreak mBackBeam = new BeamBreak(Ports.BEAM_BACK);
+    // Edge captured so the intake can be cut from the interrupt instead of up to a loop late
+    private BeamBreak mFrontBeam  = new BeamBreak(Ports.BEAM_FRONT, true);
+    private BeamBreak mBackBeam = new BeamBreak(Ports.BEAM_BACK, true);
 
     private Mode mMode = Mode.NOMINAL;
 
@@ -95,6 +98,101 @@ public class Superstructure extends Subsystem {
         return mInstance;
     }
 
+    private final StateMachine<NominalState, NominalEvent> mNominalStateMachine;
+
+    // Built once and acted again on every transition, so changing goal state doesn't allocate
+    private final EnumMap<NominalState, Request> mNominalRequests = new EnumMap<>(NominalState.class);
+
+    private Superstructure() {
+        mNominalRequests.put(NominalState.IDLE, idleRequest());
+
+        mNominalRequests.put(NominalState.STOW_PREP, new ParallelRequest(
+            mFlywheelSubsystem.rpmRequest(SuperstructureConstants.kSpinUpRPM), 
+            mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarPrepState),
+            mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE)
+        ));
+
+        mNominalRequests.put(NominalState.STOW, new ParallelRequest(
+            mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarStowState),
+            idleRequest()
+        ));
+
+        mNominalRequests.put(NominalState.SKIM,
+                mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarSkimState));
+
+        mNominalRequests.put(NominalState.INTAKE, new SequentialRequest(
+            new ParallelRequest(
+                mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarIntakeState),
+                mIntakeSubsystem.stateRequest(IntakeSubsystem.State.INTAKE)
+            ),
+            tripWait(mBackBeam, IntakeSubsystem.State.INTAKE, IntakeSubsystem.State.SLOW_FEED),
+            
+            new ParallelRequest(
+                mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarPrepState),
+                mIntakeSubsystem.stateRequest(IntakeSubsystem.State.SLOW_FEED)
+            ),
+
+            tripWait(mFrontBeam, IntakeSubsystem.State.SLOW_FEED, IntakeSubsystem.State.IDLE),
+            rumbleRequest(),
+            new LambdaRequest(() -> mIsHoldingNote = true),
+            mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE)
+        ));
+
+        mNominalRequests.put(NominalState.READY, readyRequest(SuperstructureConstants.kFourbarSubCloseState,
+                SuperstructureConstants.kNormalShotRPM));
+        mNominalRequests.put(NominalState.FERRY_READY, readyRequest(SuperstructureConstants.kFourbarFerryState,
+                SuperstructureConstants.kFerryRPM));
+
+        Rotation2d amp_heading = Rotation2d.fromDegrees(90.0);
+        mNominalRequests.put(NominalState.AMP, new ParallelRequest(
+            mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE),
+            mFlywheelSubsystem.rpmRequest(SuperstructureConstants.kAmpTopRPM, SuperstructureConstants.kAmpBotRPM),
+            mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarAmpState),
+            new LambdaRequest(() -> mDriveSubsystem.setHeadingSetpoint(amp_heading)),
+            new SequentialRequest(
+                readyWait(),
+                rumbleRequest()
+            )
+        ));
+
+        mNominalRequests.put(NominalState.AMP_SHOOT, new ParallelRequest(
+            mIntakeSubsystem.stateRequest(IntakeSubsystem.State.AMP),
+            new LambdaRequest(() -> mIsHoldingNote = false)
+        ));
+
+        mNominalRequests.put(NominalState.SHOOT, new ParallelRequest(
+            mIntakeSubsystem.stateRequest(IntakeSubsystem.State.SHOOT),
+            new LambdaRequest(() -> mIsHoldingNote = false)
+        ));
+
+        mNominalRequests.put(NominalState.EXHAUST, new ParallelRequest(
+            mFlywheelSubsystem.rpmRequest(SuperstructureConstants.kExhaustRPM),
+            mIntakeSubsystem.stateRequest(IntakeSubsystem.State.EXHAUST),
+            new LambdaRequest(() -> mIsHoldingNote = false)
+        ));
+
+        mNominalRequests.put(NominalState.POOP, new ParallelRequest(
+            mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarPoopState),
+            mFlywheelSubsystem.rpmRequest(SuperstructureConstants.kPoopTopRPM, SuperstructureConstants.kPoopBotRPM)
+            // ,
+            // new LambdaRequest(() -> mDriveSubsystem.setHeadingSetpoint(
+            //     AllianceChooser.getInstance().isAllianceRed() ? 
+            //         Rotation2d.fromDegrees(30.0) : 
+            //         Rotation2d.fromDegrees(150.0)))
+        ));
+
+        mNominalRequests.put(NominalState.CLIMB, new ParallelRequest(
+            mFlywheelSubsystem.rpmRequest(0.0),
+            mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE),
+            mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarClimbState)
+
+        ));
+
+        // Entry actions run once per transition, staying in a state doesn't request again
+        mNominalStateMachine = NominalStateMachine.build(state -> request(mNominalRequests.get(state)),
+                () -> !mIsHoldingNote);
+    }
+
     public synchronized void setNominal() {
         mMode = Mode.NOMINAL;
     }
@@ -174,7 +272,7 @@ public class Superstructure extends Subsystem {
     }
 
     public synchronized boolean allRequestsComplete() {
-        return mAllRequestsComplete;
+        return mRequestExecutor.allRequestsComplete();
     }
     
     public synchronized boolean isHoldingNote() {
@@ -204,8 +302,8 @@ public class Superstructure extends Subsystem {
 
         if (mMode != Mode.NOMINAL) {
             mGoalState = GoalState.IDLE;
-            mActiveRequest = null;
-            mQueuedRequests.clear();
+            mRequestExecutor.clear();
+            disarmBeamCallbacks();
             return;
         }
 
@@ -219,10 +317,8 @@ public class Superstructure extends Subsystem {
         enabledLooper.register(new Loop() {
             @Override
             public void onStart(double timestamp) {
-                mQueuedRequests.clear();
-                mActiveRequest = null;
-                mHasNewRequest = false;
-                mAllRequestsComplete = true;
+                mRequestExecutor.clear();
+                disarmBeamCallbacks();
             }
 
             @Override
@@ -231,7 +327,7 @@ public class Superstructure extends Subsystem {
                     try {
                         switch (mMode) {
                             case NOMINAL:
-                                updateNominal();
+                                updateNominal(timestamp);
                                 updateRequests();
                                 updateShootingSetpoints();
                                 
@@ -263,209 +359,21 @@ public class Superstructure extends Subsystem {
         });
     }
 
-    private GoalState mPrevGoalState = GoalState.IDLE;
-    private boolean mPrevPrepVal = false;
-    private boolean mPrevForcePrepVal = false;
-    private boolean mPrevFerryVal = false;
-
-    private void updateNominal() {
-        switch (mGoalState) {
-            case IDLE:
-                if(mPrevGoalState == mGoalState) break;
-
-                request(idleRequest());
-                
-                break;
-            case STOW:
-                if(mPrevGoalState == mGoalState && mIsPrep == mPrevPrepVal && mPrevForcePrepVal == mForceDisablePrep) break;
-                mPrevPrepVal = mIsPrep;
-                mPrevForcePrepVal = mForceDisablePrep;
-
-                if(!(!mIsPrep || mForceDisablePrep)){
-                    request(new ParallelRequest(
-                        mFlywheelSubsystem.rpmRequest(SuperstructureConstants.kSpinUpRPM), 
-                        mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarPrepState),
-                        mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE)
-                    ));
-
-                    break;
-                }
-
-                request(new ParallelRequest(
-                    mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarStowState),
-                    idleRequest()
-                ));
-                
-                break;
-            case SKIM:
-                if(mPrevGoalState == mGoalState) break;
-
-                request(mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarSkimState));
-
-                break;
-            case INTAKE:
-                if(mPrevGoalState == mGoalState || mIsHoldingNote == true) break;
-
-                request(new SequentialRequest(
-                    new ParallelRequest(
-                        mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarIntakeState),
-                        mIntakeSubsystem.stateRequest(IntakeSubsystem.State.INTAKE)
-                    ),
-                    breakWait(mBackBeam, true),
-                    
-                    new ParallelRequest(
-                        mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarPrepState),
-                        mIntakeSubsystem.stateRequest(IntakeSubsystem.State.SLOW_FEED)
-                    ),
-
-                    breakWait(mFrontBeam, true),
-                    rumbleRequest(),
-                    new LambdaRequest(() -> mIsHoldingNote = true),
-                    mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE)
-                ));
-                
-                break;
-            case READY:
-                if(mPrevGoalState == mGoalState && mPrevFerryVal == mIsFerry) break;
-                mPrevFerryVal = mIsFerry;
-
-                double fourbar_position;
-                double flywheel_rpm;
-
-                if (mIsFerry) {
-                    fourbar_position = SuperstructureConstants.kFourbarFerryState;
-                    flywheel_rpm = SuperstructureConstants.kFerryRPM;
-
-                } else {
-                    fourbar_position = SuperstructureConstants.kFourbarSubCloseState;
-                    flywheel_rpm = SuperstructureConstants.kNormalShotRPM;
-
-                }
-
-                request(new ParallelRequest(
-                    new LambdaRequest(() -> mDynamicSetpointsSet = false),
-                    mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE),
-                    mFourbarSubsystem.positionRequest(fourbar_position),
-                    mFlywheelSubsystem.rpmRequest(flywheel_rpm),
-                    new SequentialRequest(
-                        readyWait(),
-                        rumbleRequest()
-                    )
-                ));
-                
-                break;
-            case AMP:
-                if(mPrevGoalState == mGoalState) break;
-
-                request(new ParallelRequest(
-                    mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE),
-                    mFlywheelSubsystem.rpmRequest(SuperstructureConstants.kAmpTopRPM, SuperstructureConstants.kAmpBotRPM),
-                    mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarAmpState),
-                    new LambdaRequest(() -> mDriveSubsystem.setHeadingSetpoint(Rotation2d.fromDegrees(90.0))),
-                    new SequentialRequest(
-                        readyWait(),
-                        rumbleRequest()
-                    )
-                ));
-
-                break;
-            case SHOOT:
-                if(mPrevGoalState == mGoalState) break;
-
-                if(mPrevGoalState == GoalState.AMP) {
-                    request(new ParallelRequest(
-                        mIntakeSubsystem.stateRequest(IntakeSubsystem.State.AMP),
-                        new LambdaRequest(() -> mIsHoldingNote = false)
-                    ));
-
-                    break;
-                }
-
-                request(new ParallelRequest(
-                    mIntakeSubsystem.stateRequest(IntakeSubsystem.State.SHOOT),
-                    new LambdaRequest(() -> mIsHoldingNote = false)
-                ));
-                
-                break;
-            case EXHAUST:
-                if(mPrevGoalState == mGoalState) break;
-
-                request(new ParallelRequest(
-                    mFlywheelSubsystem.rpmRequest(SuperstructureConstants.kExhaustRPM),
-                    mIntakeSubsystem.stateRequest(IntakeSubsystem.State.EXHAUST),
-                    new LambdaRequest(() -> mIsHoldingNote = false)
-                ));
-                
-                break;
-            case POOP:
-                if(mPrevGoalState == mGoalState) break;
-
-                request(new ParallelRequest(
-                    mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarPoopState),
-                    mFlywheelSubsystem.rpmRequest(SuperstructureConstants.kPoopTopRPM, SuperstructureConstants.kPoopBotRPM)
-                    // ,
-                    // new LambdaRequest(() -> mDriveSubsystem.setHeadingSetpoint(
-                    //     AllianceChooser.getInstance().isAllianceRed() ? 
-                    //         Rotation2d.fromDegrees(30.0) : 
-                    //         Rotation2d.fromDegrees(150.0)))
-                ));
-                
-                break;
-
-            case CLIMB:
-                if(mPrevGoalState == mGoalState) break;
-
-                request(new ParallelRequest(
-                    mFlywheelSubsystem.rpmRequest(0.0),
-                    mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE),
-                    mFourbarSubsystem.positionRequest(SuperstructureConstants.kFourbarClimbState)
-
-                ));
-
-                break;
-        
-            default:
-                break;
-        }
-
-        mPrevGoalState = mGoalState;
+    private void updateNominal(double timestamp) {
+        mNominalStateMachine.update(
+                NominalStateMachine.event(mGoalState, mIsPrep, mForceDisablePrep, mIsFerry), timestamp);
     }
 
-    private ArrayList<Request> mQueuedRequests = new ArrayList<>();
-    private Request mActiveRequest = null;
-    private boolean mHasNewRequest = false;
-    private boolean mAllRequestsComplete = true;
+    private final RequestExecutor mRequestExecutor = new RequestExecutor("Superstructure Requests");
 
     private void updateRequests() {
-        if (mHasNewRequest && mActiveRequest != null) {
-            mActiveRequest.act();
-            mHasNewRequest = false;
-        }
-
-        if (mActiveRequest == null) {
-            if (mQueuedRequests.isEmpty()) {
-                mAllRequestsComplete = true;
-
-            } else {
-                mActiveRequest = mQueuedRequests.remove(0);
-
-            }
-        } else if (mActiveRequest.isFinished()) {
-            mActiveRequest = null;
-
-        }
+        mRequestExecutor.update();
     }
 
+    // Named after the goal state that asked for it, for the latency telemetry
     private void request(Request r){
-        setActiveRequest(r);
-        mQueuedRequests.clear();
-
-    }
-
-    private void setActiveRequest(Request r){
-        mActiveRequest = r;
-        mHasNewRequest = true;
-        mAllRequestsComplete = false;
+        mRequestExecutor.request(mGoalState.name(), r);
+        disarmBeamCallbacks();
 
     }
 
@@ -477,6 +385,19 @@ public class Superstructure extends Subsystem {
         );
     }
 
+    private Request readyRequest(double fourbar_position, double flywheel_rpm) {
+        return new ParallelRequest(
+            new LambdaRequest(() -> mDynamicSetpointsSet = false),
+            mIntakeSubsystem.stateRequest(IntakeSubsystem.State.IDLE),
+            mFourbarSubsystem.positionRequest(fourbar_position),
+            mFlywheelSubsystem.rpmRequest(flywheel_rpm),
+            new SequentialRequest(
+                readyWait(),
+                rumbleRequest()
+            )
+        );
+    }
+
     private Request rumbleRequest() {
         return new Request() {
             @Override
@@ -504,23 +425,45 @@ public class Superstructure extends Subsystem {
         };
     }
 
-    private Request breakWait(BeamBreak b, boolean targetState){
+    /**
+     * Waits for the beam to break, or a trip since it started that already cleared again, and cuts the intake from the {@code from} state to the {@code to}
+     * state from the beam break interrupt the moment it does, instead of a loop later. The sequence should still
+     * request {@code to} after this.
+     */
+    private Request tripWait(BeamBreak b, IntakeSubsystem.State from, IntakeSubsystem.State to){
+        Runnable cut = () -> mIntakeSubsystem.cutState(from, to);
+
         return new Request() {
+            private long mStartTrips;
+
             @Override
-            public void act() {}
+            public void act() {
+                mStartTrips = b.getTripCount();
+                b.armTripCallback(cut);
+            }
 
             @Override
             public boolean isFinished() {
-                return b.get() == targetState;
+                if (b.get() || b.getTripCount() != mStartTrips) {
+                    b.disarmTripCallback();
+                    return true;
+                }
+
+                return false;
             }
         };
     }
+
+    private void disarmBeamCallbacks() {
+        mFrontBeam.disarmTripCallback();
+        mBackBeam.disarmTripCallback();
+    }
     
     private void updateShootingSetpoints() {
         if ((mGoalState != GoalState.READY && mGoalState != GoalState.SHOOT && mGoalState != GoalState.STOW) || !mIsDymanic)
             return;
 
-        Pose2d robot_pose = RobotState.getInstance().getLatestFieldToVehicle();
+        AimingParameters params = RobotState.getInstance().getAimingParameters();
 
         double distance;
         double flywheel_setpoint;
@@ -528,19 +471,17 @@ public class Superstructure extends Subsystem {
         Rotation2d drive_heading_setpoint;
 
         if (mIsFerry) {
-            double[] params = FerryUtil.getFerryParams(robot_pose);
-            distance = params[0];
-            flywheel_setpoint = params[1];
-            fourbar_setpoint = params[2] + mFerryOffset;
-            drive_heading_setpoint = Rotation2d.fromRadians(params[3]);
+            distance = params.ferry_distance;
+            flywheel_setpoint = params.ferry_flywheel_rpm;
+            fourbar_setpoint = params.ferry_fourbar_angle + mFerryOffset;
+            drive_heading_setpoint = Rotation2d.fromRadians(params.ferry_heading_radians);
 
             mIsPrep = true;
         } else {
-            double[] params = ShootingUtil.getSpeakerShotParams(robot_pose);
-            distance = params[0];
-            flywheel_setpoint = params[1];
-            fourbar_setpoint = params[2] + mScoringOffset;
-            drive_heading_setpoint = Rotation2d.fromRadians(params[3]);
+            distance = params.speaker_distance;
+            flywheel_setpoint = params.speaker_flywheel_rpm;
+            fourbar_setpoint = params.speaker_fourbar_angle + mScoringOffset;
+            drive_heading_setpoint = Rotation2d.fromRadians(params.speaker_heading_radians);
 
             mIsPrep = mIsPrep ? distance < SuperstructureConstants.kSpinUpDistance + 1.0: distance < SuperstructureConstants.kSpinUpDistance;
         }
@@ -564,15 +505,15 @@ public class Superstructure extends Subsystem {
     }    
 
     private void updateTuning() {
-        Pose2d robot_pose = RobotState.getInstance().getLatestFieldToVehicle();
+        AimingParameters params = RobotState.getInstance().getAimingParameters();
 
         double distance;
 
         if (mIsFerry) {
-            distance = FerryUtil.getFerryParams(robot_pose)[0];
+            distance = params.ferry_distance;
 
         } else {
-            distance = ShootingUtil.getSpeakerShotParams(robot_pose)[0];
+            distance = params.speaker_distance;
 
         }
 
@@ -599,11 +540,18 @@ public class Superstructure extends Subsystem {
         SmartDashboard.putBoolean("Comp/Is Shot Doable", mIsShotDoable);
 
         SmartDashboard.putString("Comp/Superstructure Goal", mGoalState.name());
+        SmartDashboard.putString("Comp/Superstructure State", mNominalStateMachine.getState().name());
 
         SmartDashboard.putBoolean("Comp/Ready", isReady());
         
         SmartDashboard.putBoolean("Comp/Is Holding Note", mIsHoldingNote);
 
         if(Constants.disableExtraTelemetry) return;
+
+        mRequestExecutor.outputTelemetry();
+        SmartDashboard.putNumber("Debug/Superstructure/Transitions", mNominalStateMachine.getTransitionCount());
+        SmartDashboard.putString("Debug/Superstructure/Transition Log", mNominalStateMachine.getTransitionLog());
+        mFrontBeam.outputTelemetry("Front");
+        mBackBeam.outputTelemetry("Back");
     }
 }
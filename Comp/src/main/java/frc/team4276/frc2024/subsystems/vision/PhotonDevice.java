@@ -13,6 +13,7 @@ import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.team4276.frc2024.RobotState;
+import frc.team4276.frc2024.Constants.RobotStateConstants;
 import frc.team4276.frc2024.field.Field;
 import frc.team4276.lib.drivers.Subsystem;
 
@@ -104,7 +105,11 @@ public class PhotonDevice extends Subsystem {
                     .visionUpdate(new RobotState.VisionUpdate(estimatedRobotPose.get().timestampSeconds,
                             new Translation2d(estimatedRobotPose.get().estimatedPose.getX(),
                                     estimatedRobotPose.get().estimatedPose.getY()),
-                            distStDev));
+                            distStDev,
+                            estimatedRobotPose.get().estimatedPose.getRotation().getZ(),
+                            RobotStateConstants.kVisionFusesHeading
+                                    ? distStDev * RobotStateConstants.kVisionHeadingStdDevScale
+                                    : Double.POSITIVE_INFINITY));
 
             RobotState.getInstance()
                     .visionHeadingUpdate(estimatedRobotPose.get().estimatedPose.getRotation().getZ());
@@ -39,6 +39,7 @@ public class VisionDeviceManager extends Subsystem {
         return mIsDisabled;
     }
 
+    // Not read independent, the cameras hand their results to RobotState, which reads the drive speeds
     @Override
     public void readPeriodicInputs() {
         if(mIsDisabled) return;
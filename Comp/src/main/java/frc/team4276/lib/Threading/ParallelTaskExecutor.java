@@ -0,0 +1,134 @@
+package frc.team4276.lib.Threading;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a fixed set of tasks across a small pool of long lived worker threads. The task list and threads are created
+ * once, so a cycle of {@link #start()} and {@link #join()} does not allocate. The calling thread also drains tasks
+ * while it waits, so the phase takes roughly as long as the slowest task.
+ */
+public class ParallelTaskExecutor {
+    private final Runnable[] mTasks;
+    private final long[] mTaskNanos;
+    private final Thread[] mWorkers;
+
+    private final AtomicInteger mNextTask = new AtomicInteger();
+    private final AtomicInteger mRemaining = new AtomicInteger();
+    private final Object mLock = new Object();
+    private long mGeneration = 0;
+
+    private volatile Throwable mFailure = null;
+
+    /**
+     * @param name prefix for the worker thread names
+     * @param num_threads worker threads in addition to the calling thread
+     * @param tasks tasks run once per cycle, in no particular order
+     */
+    public ParallelTaskExecutor(String name, int num_threads, Runnable... tasks) {
+        mTasks = tasks;
+        mTaskNanos = new long[tasks.length];
+        mNextTask.set(tasks.length);
+        mWorkers = new Thread[num_threads];
+
+        for (int i = 0; i < num_threads; i++) {
+            mWorkers[i] = new Thread(this::runWorker, name + "-" + i);
+            mWorkers[i].setDaemon(true);
+            mWorkers[i].setPriority(Thread.MAX_PRIORITY);
+            mWorkers[i].start();
+        }
+    }
+
+    /**
+     * Wakes the workers on a new cycle of tasks. Must be followed by {@link #join()} before the next call.
+     */
+    public void start() {
+        mFailure = null;
+        // Remaining is set before the index is reset so a worker can never complete a task that isn't counted
+        mRemaining.set(mTasks.length);
+        mNextTask.set(0);
+
+        synchronized (mLock) {
+            mGeneration++;
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * Helps run any unclaimed tasks then blocks until every task of this cycle is done. Rethrows the first failure so
+     * errors surface on the calling thread the same way they would have when run serially.
+     */
+    public void join() {
+        drain();
+
+        synchronized (mLock) {
+            while (mRemaining.get() > 0) {
+                try {
+                    mLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        Throwable failure = mFailure;
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    public int getNumTasks() {
+        return mTasks.length;
+    }
+
+    /**
+     * @return how long the task at index took during the last completed cycle
+     */
+    public long getTaskNanos(int index) {
+        return mTaskNanos[index];
+    }
+
+    private void drain() {
+        int i;
+        while ((i = mNextTask.getAndIncrement()) < mTasks.length) {
+            long start = System.nanoTime();
+            try {
+                mTasks[i].run();
+            } catch (Throwable t) {
+                if (mFailure == null) {
+                    mFailure = t;
+                }
+            } finally {
+                mTaskNanos[i] = System.nanoTime() - start;
+                if (mRemaining.decrementAndGet() == 0) {
+                    synchronized (mLock) {
+                        mLock.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    private void runWorker() {
+        long seen_generation = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            synchronized (mLock) {
+                while (mGeneration == seen_generation) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                seen_generation = mGeneration;
+            }
+
+            drain();
+        }
+    }
+}
@@ -239,6 +239,11 @@ public abstract class ServoMotorSubsystem extends Subsystem {
         public double demand;
     }
 
+    @Override
+    public boolean isReadIndependent() {
+        return true;
+    }
+
     @Override
     public synchronized void readPeriodicInputs() {
         mPeriodicIO.meas_master_voltage = mMaster.getAppliedVoltage();
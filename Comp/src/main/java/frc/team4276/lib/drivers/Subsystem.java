@@ -24,6 +24,12 @@ public abstract class Subsystem {
     public void writePeriodicOutputs() {
     }
 
+    // Return true if readPeriodicInputs() only touches this subsystem's own devices and state, so it can run
+    // concurrently with the other independent reads. The rest run after them, one at a time.
+    public boolean isReadIndependent() {
+        return false;
+    }
+
     public void stop() { };
 
     public void zeroSensors() {
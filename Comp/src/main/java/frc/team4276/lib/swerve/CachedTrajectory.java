@@ -0,0 +1,240 @@
+package frc.team4276.lib.swerve;
+
+import java.util.List;
+
+import choreo.trajectory.SwerveSample;
+import choreo.trajectory.Trajectory;
+
+/**
+ * A Choreo swerve trajectory flattened into primitive arrays when it's loaded, so following it doesn't go through
+ * the sample list or allocate a SwerveSample every loop. Samples the same way as Trajectory.sampleAt: clamped to
+ * the ends, constant curvature pose interpolation and linear interpolation for the rest. Module forces are not
+ * kept.
+ */
+public class CachedTrajectory {
+    private static final double kEps = 1E-9;
+
+    /** Reusable result of a sample */
+    public static class State {
+        public double t;
+        public double x;
+        public double y;
+        public double heading;
+        public double vx;
+        public double vy;
+        public double omega;
+        public double ax;
+        public double ay;
+        public double alpha;
+    }
+
+    /**
+     * Cursor over the trajectory. Time normally only moves forward, so each sample starts where the last one
+     * stopped, which is O(1) amortized. Going back in time steps the cursor back.
+     */
+    public class Sampler {
+        private int mCursor = 0;
+
+        public void reset() {
+            mCursor = 0;
+        }
+
+        public CachedTrajectory getTrajectory() {
+            return CachedTrajectory.this;
+        }
+
+        /**
+         * @return false if the trajectory has no samples
+         */
+        public boolean sample(double time, State out) {
+            if (mLength == 0) {
+                return false;
+            }
+            if (time < mT[0]) {
+                copy(0, out);
+                return true;
+            }
+            if (time > mT[mLength - 1]) {
+                copy(mLength - 1, out);
+                return true;
+            }
+
+            // First sample at or after the time
+            while (mCursor > 0 && mT[mCursor - 1] >= time) {
+                mCursor--;
+            }
+            while (mCursor < mLength - 1 && mT[mCursor] < time) {
+                mCursor++;
+            }
+
+            if (mCursor == 0) {
+                copy(0, out);
+                return true;
+            }
+
+            int behind = mCursor - 1;
+            int ahead = mCursor;
+            if (mT[ahead] - mT[behind] < 1e-6) {
+                copy(ahead, out);
+                return true;
+            }
+
+            interpolate(behind, ahead, (time - mT[behind]) / (mT[ahead] - mT[behind]), out);
+            return true;
+        }
+    }
+
+    private final int mLength;
+    private final double[] mT;
+    private final double[] mX;
+    private final double[] mY;
+    private final double[] mHeading;
+    private final double[] mCos;
+    private final double[] mSin;
+    private final double[] mVx;
+    private final double[] mVy;
+    private final double[] mOmega;
+    private final double[] mAx;
+    private final double[] mAy;
+    private final double[] mAlpha;
+
+    public CachedTrajectory(Trajectory<SwerveSample> trajectory) {
+        List<SwerveSample> samples = trajectory.samples();
+
+        mLength = samples.size();
+        mT = new double[mLength];
+        mX = new double[mLength];
+        mY = new double[mLength];
+        mHeading = new double[mLength];
+        mCos = new double[mLength];
+        mSin = new double[mLength];
+        mVx = new double[mLength];
+        mVy = new double[mLength];
+        mOmega = new double[mLength];
+        mAx = new double[mLength];
+        mAy = new double[mLength];
+        mAlpha = new double[mLength];
+
+        for (int i = 0; i < mLength; i++) {
+            SwerveSample sample = samples.get(i);
+            mT[i] = sample.t;
+            mX[i] = sample.x;
+            mY[i] = sample.y;
+            mHeading[i] = sample.heading;
+            mCos[i] = Math.cos(sample.heading);
+            mSin[i] = Math.sin(sample.heading);
+            mVx[i] = sample.vx;
+            mVy[i] = sample.vy;
+            mOmega[i] = sample.omega;
+            mAx[i] = sample.ax;
+            mAy[i] = sample.ay;
+            mAlpha[i] = sample.alpha;
+        }
+    }
+
+    public Sampler sampler() {
+        return new Sampler();
+    }
+
+    public int size() {
+        return mLength;
+    }
+
+    public double getTotalTime() {
+        return mLength == 0 ? 0.0 : mT[mLength - 1];
+    }
+
+    /**
+     * @return false if the trajectory has no samples
+     */
+    public boolean getInitialState(State out) {
+        if (mLength == 0) {
+            return false;
+        }
+        copy(0, out);
+        return true;
+    }
+
+    private void copy(int i, State out) {
+        out.t = mT[i];
+        out.x = mX[i];
+        out.y = mY[i];
+        out.heading = mHeading[i];
+        out.vx = mVx[i];
+        out.vy = mVy[i];
+        out.omega = mOmega[i];
+        out.ax = mAx[i];
+        out.ay = mAy[i];
+        out.alpha = mAlpha[i];
+    }
+
+    private void interpolate(int a, int b, double scale, State out) {
+        out.t = lerp(mT[a], mT[b], scale);
+        out.vx = lerp(mVx[a], mVx[b], scale);
+        out.vy = lerp(mVy[a], mVy[b], scale);
+        out.omega = lerp(mOmega[a], mOmega[b], scale);
+        out.ax = lerp(mAx[a], mAx[b], scale);
+        out.ay = lerp(mAy[a], mAy[b], scale);
+        out.alpha = lerp(mAlpha[a], mAlpha[b], scale);
+
+        // Pose2d.interpolate: a * exp(log(a^-1 * b) * scale), or b itself at the end
+        if (scale >= 1.0) {
+            out.x = mX[b];
+            out.y = mY[b];
+            out.heading = mHeading[b];
+            return;
+        }
+
+        double x0 = mX[a];
+        double y0 = mY[a];
+        double cos0 = mCos[a];
+        double sin0 = mSin[a];
+        double cos1 = mCos[b];
+        double sin1 = mSin[b];
+
+        double dx = cos0 * (mX[b] - x0) + sin0 * (mY[b] - y0);
+        double dy = -sin0 * (mX[b] - x0) + cos0 * (mY[b] - y0);
+
+        // Relative rotation from the products like Rotation2d.minus, cos - 1 cancels badly for small angles and
+        // has to come from the same cos as WPILib's to agree with it
+        double rel_cos = cos1 * cos0 + sin1 * sin0;
+        double rel_sin = sin1 * cos0 - cos1 * sin0;
+        double magnitude = Math.hypot(rel_cos, rel_sin);
+        rel_cos /= magnitude;
+        rel_sin /= magnitude;
+        double dtheta = Math.atan2(rel_sin, rel_cos);
+
+        double half_dtheta = 0.5 * dtheta;
+        double cos_minus_one = rel_cos - 1.0;
+        double halftheta_by_tan_of_halfdtheta;
+        if (Math.abs(cos_minus_one) < kEps) {
+            halftheta_by_tan_of_halfdtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halftheta_by_tan_of_halfdtheta = -(half_dtheta * rel_sin) / cos_minus_one;
+        }
+        double twist_dx = (dx * halftheta_by_tan_of_halfdtheta + dy * half_dtheta) * scale;
+        double twist_dy = (-dx * half_dtheta + dy * halftheta_by_tan_of_halfdtheta) * scale;
+        double twist_dtheta = dtheta * scale;
+
+        double s, c;
+        if (Math.abs(twist_dtheta) < kEps) {
+            s = 1.0 - 1.0 / 6.0 * twist_dtheta * twist_dtheta;
+            c = .5 * twist_dtheta;
+        } else {
+            s = Math.sin(twist_dtheta) / twist_dtheta;
+            c = (1.0 - Math.cos(twist_dtheta)) / twist_dtheta;
+        }
+        double ex = twist_dx * s - twist_dy * c;
+        double ey = twist_dx * c + twist_dy * s;
+
+        out.x = x0 + cos0 * ex - sin0 * ey;
+        out.y = y0 + sin0 * ex + cos0 * ey;
+        out.heading = Math.atan2(sin0 * Math.cos(twist_dtheta) + cos0 * Math.sin(twist_dtheta),
+                cos0 * Math.cos(twist_dtheta) - sin0 * Math.sin(twist_dtheta));
+    }
+
+    // MathUtil.interpolate
+    private static double lerp(double start, double end, double t) {
+        return start + (end - start) * Math.max(0.0, Math.min(1.0, t));
+    }
+}
@@ -33,6 +33,9 @@ public class MAXSwerveModule extends Subsystem {
 
     private final MAXSwerveModuleConstants mConstants;
 
+    private double mLastStateAngle = Double.NaN;
+    private edu.wpi.first.math.geometry.Rotation2d mLastStateRotation = null;
+
     public static class MAXSwerveModuleConstants {
         public String kName = "ERROR_ASSIGN_A_NAME";
         public int kDriveId = -1;
@@ -119,6 +122,27 @@ public class MAXSwerveModule extends Subsystem {
                 mPeriodicIO.driveVelocity);
     }
 
+    /**
+     * Same as {@link #getState()} written into out. The angle object is only
+     * replaced when the module has turned since the last call.
+     *
+     * @return out
+     */
+    public ModuleState getState(ModuleState out) {
+        double angle = mPeriodicIO.turnPosition - mConstants.kOffset;
+        if (out.angle == null || angle != mLastStateAngle) {
+            // Same wrapping as Rotation2d.fromRadians(angle).toWPI()
+            mLastStateRotation = new edu.wpi.first.math.geometry.Rotation2d(
+                    Math.atan2(Math.sin(angle), Math.cos(angle)));
+            mLastStateAngle = angle;
+        }
+
+        out.distanceMeters = mPeriodicIO.drivePosition;
+        out.angle = mLastStateRotation;
+        out.speedMetersPerSecond = mPeriodicIO.driveVelocity;
+        return out;
+    }
+
     /** Zeroes SwerveModule drive encoder. */
     public void resetEncoders() {
         mDriveEncoder.setPosition(0);
@@ -1,18 +1,18 @@
 package frc.team4276.lib.swerve;
 
-import choreo.trajectory.SwerveSample;
-import choreo.trajectory.Trajectory;
 import edu.wpi.first.math.controller.PIDController;
 import frc.team4276.frc2024.Constants;
 import frc.team4276.frc2024.Constants.DriveConstants;
 import frc.team1678.lib.swerve.ChassisSpeeds;
 
-import frc.team254.lib.geometry.Pose2d;
+import frc.team254.lib.geometry.IPoseView;
+import frc.team254.lib.geometry.MutablePose2d;
 import frc.team254.lib.geometry.Rotation2d;
 import frc.team254.lib.geometry.Translation2d;
 
 public class MotionPlanner {
-    private Trajectory<SwerveSample> mTrajectory;
+    private CachedTrajectory.Sampler mSampler;
+    private final CachedTrajectory.State mTargetState = new CachedTrajectory.State();
 
     private double startTime = 0.0;
     private double timeOffset = 0.0;
@@ -20,10 +20,11 @@ public class MotionPlanner {
 
     private boolean mIsFinished = true;
 
-    private Translation2d mTranslationError = Translation2d.identity();
-    private Rotation2d mRotationError = Rotation2d.identity();
+    private double mTranslationErrorX = 0.0;
+    private double mTranslationErrorY = 0.0;
+    private double mRotationErrorRadians = 0.0;
 
-    private Pose2d mTargetPose = Pose2d.identity();
+    private final MutablePose2d mTargetPose = new MutablePose2d();
 
     private final PIDController xController;
     private final PIDController yController;
@@ -39,66 +40,67 @@ public class MotionPlanner {
         this.rotationController.enableContinuousInput(-3.141592653589793, Math.PI);
     }
 
-    public synchronized void setTrajectory(Trajectory<SwerveSample> traj, Pose2d currentPose,
+    public synchronized void setTrajectory(CachedTrajectory traj, IPoseView currentPose,
             ChassisSpeeds currentSpeeds, double timestamp) {
-        mTrajectory = traj;
+        mSampler = traj.sampler();
         mIsFinished = false;
         this.startTime = timestamp;
         timeOffset = 0.0;
         prevTime = timestamp;
     }
 
-    public synchronized ChassisSpeeds update(Pose2d currentPose, double timestamp) {
+    public synchronized ChassisSpeeds update(IPoseView currentPose, double timestamp) {
         return update(currentPose, timestamp, false);
     }
 
-    public synchronized ChassisSpeeds update(Pose2d currentPose, double timestamp, boolean isVirtual) {
-        if (mTrajectory == null)
+    public synchronized ChassisSpeeds update(IPoseView currentPose, double timestamp, boolean isVirtual) {
+        if (mSampler == null)
             return ChassisSpeeds.identity();
-        
-        SwerveSample targetState = mTrajectory.sampleAt(timestamp - startTime - timeOffset, false);
 
-        if (targetState == null) {
+        CachedTrajectory.State targetState = mTargetState;
+        if (!mSampler.sample(timestamp - startTime - timeOffset, targetState)) {
             return ChassisSpeeds.identity();
         }
 
-        if(targetState.getPose().getTranslation().getDistance(currentPose.getTranslation().toWPI()) > DriveConstants.kAutoMaxError && !isVirtual){
+        if (Math.hypot(targetState.x - currentPose.x(), targetState.y - currentPose.y()) > DriveConstants.kAutoMaxError
+                && !isVirtual) {
             double dt = timestamp - prevTime;
             timeOffset += dt;
 
-            double[] dummyForces = { 0.0, 0.0, 0.0, 0.0 };
-
-            targetState = mTrajectory.sampleAt(timestamp - startTime - timeOffset, false);
-            targetState = new SwerveSample(targetState.t,
-                    targetState.x, targetState.y, targetState.heading,
-                    0.0, 0.0, 0.0,
-                    0.0, 0.0, 0.0,
-                    dummyForces, dummyForces);
+            // Hold the pose we fell behind on, without feedforward
+            mSampler.sample(timestamp - startTime - timeOffset, targetState);
+            targetState.vx = 0.0;
+            targetState.vy = 0.0;
+            targetState.omega = 0.0;
+            targetState.ax = 0.0;
+            targetState.ay = 0.0;
+            targetState.alpha = 0.0;
         }
 
         prevTime = timestamp;
 
-        if (timestamp - startTime - timeOffset > mTrajectory.getTotalTime()) {
+        if (timestamp - startTime - timeOffset > mSampler.getTrajectory().getTotalTime()) {
             mIsFinished = true;
         }
 
-        mTargetPose = Pose2d.fromWPI(targetState.getPose());
+        mTargetPose.set(targetState.x, targetState.y, targetState.heading);
         
         double xFF = targetState.vx;
         double yFF = targetState.vy;
         double xFFAccel = targetState.ax * DriveConstants.kAutoTransAccelFF;
         double yFFAccel = targetState.ay * DriveConstants.kAutoTransAccelFF;
-        double xError = targetState.x - currentPose.getTranslation().x();
-        double yError = targetState.y - currentPose.getTranslation().y();
+        double xError = targetState.x - currentPose.x();
+        double yError = targetState.y - currentPose.y();
         double xFeedback = xController.calculate(0.0, isVirtual ? 0.0 : xError);
         double yFeedback = yController.calculate(0.0, isVirtual ? 0.0 : yError);
         double thetaFF = targetState.omega;
         double thetaFFAccel = targetState.alpha * DriveConstants.kAutoRotAccelFF;
-        double thetaError = targetState.heading - currentPose.getRotation().getRadians();
+        double thetaError = targetState.heading - currentPose.getRadians();
         double thetaFeedback = rotationController.calculate(0.0, isVirtual ? 0.0 : thetaError);
 
-        mTranslationError = new Translation2d(xError, yError);
-        mRotationError = Rotation2d.fromRadians(thetaError);
+        mTranslationErrorX = xError;
+        mTranslationErrorY = yError;
+        mRotationErrorRadians = thetaError;
 
         return new ChassisSpeeds(xFFAccel + xFF + xFeedback, yFFAccel + yFF + yFeedback,
                 thetaFFAccel + thetaFF + thetaFeedback);
@@ -108,15 +110,33 @@ public class MotionPlanner {
         return mIsFinished;
     }
 
+    /** Allocates, use {@link #getTranslationErrorX()} and {@link #getTranslationErrorY()} in the loop */
     public synchronized Translation2d getTranslationError() {
-        return mTranslationError;
+        return new Translation2d(mTranslationErrorX, mTranslationErrorY);
+    }
+
+    public synchronized double getTranslationErrorX() {
+        return mTranslationErrorX;
+    }
+
+    public synchronized double getTranslationErrorY() {
+        return mTranslationErrorY;
+    }
+
+    public synchronized double getTranslationErrorNorm() {
+        return Math.hypot(mTranslationErrorX, mTranslationErrorY);
     }
 
+    /** Allocates, use {@link #getRotationErrorRadians()} in the loop */
     public synchronized Rotation2d getRotationError() {
-        return mRotationError;
+        return Rotation2d.fromRadians(mRotationErrorRadians);
+    }
+
+    public synchronized double getRotationErrorRadians() {
+        return mRotationErrorRadians;
     }
 
-    public synchronized Pose2d getTargetPose() {
+    public synchronized IPoseView getTargetPose() {
         return mTargetPose;
     }
 }
\ No newline at end of file
@@ -0,0 +1,403 @@
+package frc.team4276.lib.util;
+
+/*
+ * Kalman filter over the full field to vehicle pose (x, y, theta).
+ *
+ * Odometry is applied as a robot relative delta every loop (predict), vision as an absolute pose with its own
+ * standard deviations (correct). Every step is kept in a fixed size ring (time, delta, state, covariance), and
+ * every accepted measurement in a second ring sorted by time, so a late vision measurement rewinds to the step it
+ * was taken at, corrects there, then re-applies the odometry deltas and the measurements already taken after it.
+ * Everything is on primitives, nothing allocates after construction.
+ */
+public class PoseEstimator {
+    private final int mCapacity;
+    private final double mHistorySeconds;
+
+    // Odometry delta that led into each step, in the robot frame of the previous step
+    private final double[] mT;
+    private final double[] mDx;
+    private final double[] mDy;
+    private final double[] mDtheta;
+
+    // State after each step
+    private final double[] mX;
+    private final double[] mY;
+    private final double[] mTheta;
+
+    // Covariance after each step (symmetric, upper triangle)
+    private final double[] mPxx;
+    private final double[] mPxy;
+    private final double[] mPxt;
+    private final double[] mPyy;
+    private final double[] mPyt;
+    private final double[] mPtt;
+
+    private int mOldest = 0;
+    private int mSize = 0;
+
+    // Accepted vision measurements, sorted by time
+    private final int mVisionCapacity;
+    private final double[] mVisionT;
+    private final double[] mVisionX;
+    private final double[] mVisionY;
+    private final double[] mVisionTheta;
+    private final double[] mVisionVarXY;
+    private final double[] mVisionVarTheta;
+    private int mVisionOldest = 0;
+    private int mVisionSize = 0;
+
+    private final double mOdomTranslationStdDevPerMeter;
+    private final double mOdomHeadingStdDevPerRadian;
+    private final double mOdomMinStdDev;
+
+    private final RollingStats mCorrectionNanos;
+    private int mLastReplaySteps = 0;
+
+    /**
+     * @param capacity steps kept for replay, the oldest is overwritten when full
+     * @param visionCapacity measurements kept for replay, the oldest is dropped when full
+     * @param historySeconds vision older than this (relative to the newest step) is rejected
+     * @param odomTranslationStdDevPerMeter translation process noise per meter driven
+     * @param odomHeadingStdDevPerRadian heading process noise per radian turned
+     * @param odomMinStdDev process noise added every step even when still, keeps the covariance from collapsing
+     */
+    public PoseEstimator(int capacity, int visionCapacity, double historySeconds,
+            double odomTranslationStdDevPerMeter, double odomHeadingStdDevPerRadian, double odomMinStdDev) {
+        mCapacity = capacity;
+        mVisionCapacity = visionCapacity;
+        mHistorySeconds = historySeconds;
+        mOdomTranslationStdDevPerMeter = odomTranslationStdDevPerMeter;
+        mOdomHeadingStdDevPerRadian = odomHeadingStdDevPerRadian;
+        mOdomMinStdDev = odomMinStdDev;
+
+        mT = new double[capacity];
+        mDx = new double[capacity];
+        mDy = new double[capacity];
+        mDtheta = new double[capacity];
+        mX = new double[capacity];
+        mY = new double[capacity];
+        mTheta = new double[capacity];
+        mPxx = new double[capacity];
+        mPxy = new double[capacity];
+        mPxt = new double[capacity];
+        mPyy = new double[capacity];
+        mPyt = new double[capacity];
+        mPtt = new double[capacity];
+
+        mVisionT = new double[visionCapacity];
+        mVisionX = new double[visionCapacity];
+        mVisionY = new double[visionCapacity];
+        mVisionTheta = new double[visionCapacity];
+        mVisionVarXY = new double[visionCapacity];
+        mVisionVarTheta = new double[visionCapacity];
+
+        mCorrectionNanos = new RollingStats(250);
+    }
+
+    /**
+     * Drops the history and starts again from a known pose.
+     *
+     * @param stdDevXY starting translation standard deviation
+     * @param stdDevTheta starting heading standard deviation
+     */
+    public void reset(double timestamp, double x, double y, double theta, double stdDevXY, double stdDevTheta) {
+        mOldest = 0;
+        mSize = 1;
+        mVisionOldest = 0;
+        mVisionSize = 0;
+
+        mT[0] = timestamp;
+        mDx[0] = 0.0;
+        mDy[0] = 0.0;
+        mDtheta[0] = 0.0;
+        mX[0] = x;
+        mY[0] = y;
+        mTheta[0] = theta;
+        mPxx[0] = stdDevXY * stdDevXY;
+        mPxy[0] = 0.0;
+        mPxt[0] = 0.0;
+        mPyy[0] = stdDevXY * stdDevXY;
+        mPyt[0] = 0.0;
+        mPtt[0] = stdDevTheta * stdDevTheta;
+    }
+
+    /**
+     * Predict step.
+     *
+     * @param dx odometry translation since the last call, in the robot frame at the last call
+     * @param dy
+     * @param dtheta odometry rotation since the last call
+     */
+    public void addOdometry(double timestamp, double dx, double dy, double dtheta) {
+        if (mSize == 0) {
+            reset(timestamp, 0.0, 0.0, 0.0, 0.0, 0.0);
+        }
+
+        int prev = index(mSize - 1);
+        int slot;
+        if (timestamp <= mT[prev]) {
+            // Same (or older) timestamp, fold it into the newest step instead of adding one out of order
+            if (mSize == 1) {
+                // Only the reset step, it's never replayed so move it in place
+                predict(prev, prev, dx, dy, dtheta);
+                return;
+            }
+
+            mDx[prev] += dx;
+            mDy[prev] += dy;
+            mDtheta[prev] += dtheta;
+            replay(mSize - 1);
+            return;
+        } else if (mSize == mCapacity) {
+            slot = mOldest;
+            mOldest = index(1);
+        } else {
+            slot = index(mSize);
+            mSize++;
+        }
+
+        mT[slot] = timestamp;
+        mDx[slot] = dx;
+        mDy[slot] = dy;
+        mDtheta[slot] = dtheta;
+        predict(prev, slot, dx, dy, dtheta);
+    }
+
+    /**
+     * Correct step, rewinding if the measurement is older than the newest odometry.
+     *
+     * @param stdDevXY translation standard deviation of this measurement
+     * @param stdDevTheta heading standard deviation of this measurement, infinite or NaN to ignore its heading
+     * @return false if the measurement is older than the history
+     */
+    public boolean addVisionMeasurement(double timestamp, double x, double y, double theta, double stdDevXY,
+            double stdDevTheta) {
+        if (mSize == 0 || timestamp < mT[mOldest] || timestamp < getNewestTimestamp() - mHistorySeconds) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+
+        // Last step at or before the measurement
+        int lo = 0;
+        int hi = mSize - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (mT[index(mid)] <= timestamp) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        double var_xy = stdDevXY * stdDevXY;
+        double var_theta = Double.isFinite(stdDevTheta) ? stdDevTheta * stdDevTheta : Double.NaN;
+        insertVision(timestamp, x, y, theta, var_xy, var_theta);
+
+        // Corrections at the same step commute, so this one goes on top of any already applied there
+        correct(index(lo), x, y, theta, var_xy, var_theta);
+
+        // Replay the odometry and vision recorded after the measurement on top of the corrected step
+        mLastReplaySteps = mSize - 1 - lo;
+        replay(lo + 1);
+
+        mCorrectionNanos.addValue(System.nanoTime() - start);
+        return true;
+    }
+
+    // Re-predicts every step from the i-th (counting from the oldest) on, applying the measurements taken at each
+    private void replay(int from) {
+        int v = 0;
+        while (v < mVisionSize && mVisionT[visionIndex(v)] < mT[index(from)]) {
+            v++;
+        }
+
+        for (int i = from; i < mSize; i++) {
+            int slot = index(i);
+            predict(index(i - 1), slot, mDx[slot], mDy[slot], mDtheta[slot]);
+
+            double next = i + 1 < mSize ? mT[index(i + 1)] : Double.POSITIVE_INFINITY;
+            for (; v < mVisionSize && mVisionT[visionIndex(v)] < next; v++) {
+                int m = visionIndex(v);
+                correct(slot, mVisionX[m], mVisionY[m], mVisionTheta[m], mVisionVarXY[m], mVisionVarTheta[m]);
+            }
+        }
+    }
+
+    private void insertVision(double timestamp, double x, double y, double theta, double var_xy,
+            double var_theta) {
+        // Measurements from before the oldest step can't be replayed any more
+        while (mVisionSize > 0 && mVisionT[mVisionOldest] < mT[mOldest]) {
+            dropOldestVision();
+        }
+        if (mVisionSize == mVisionCapacity) {
+            dropOldestVision();
+        }
+
+        // Usually the newest, shift up the few that are newer otherwise
+        int i = mVisionSize;
+        while (i > 0 && mVisionT[visionIndex(i - 1)] > timestamp) {
+            int from = visionIndex(i - 1);
+            int to = visionIndex(i);
+            mVisionT[to] = mVisionT[from];
+            mVisionX[to] = mVisionX[from];
+            mVisionY[to] = mVisionY[from];
+            mVisionTheta[to] = mVisionTheta[from];
+            mVisionVarXY[to] = mVisionVarXY[from];
+            mVisionVarTheta[to] = mVisionVarTheta[from];
+            i--;
+        }
+
+        int m = visionIndex(i);
+        mVisionT[m] = timestamp;
+        mVisionX[m] = x;
+        mVisionY[m] = y;
+        mVisionTheta[m] = theta;
+        mVisionVarXY[m] = var_xy;
+        mVisionVarTheta[m] = var_theta;
+        mVisionSize++;
+    }
+
+    private void dropOldestVision() {
+        mVisionOldest = visionIndex(1);
+        mVisionSize--;
+    }
+
+    // Safe in place (prev == slot)
+    private void predict(int prev, int slot, double dx, double dy, double dtheta) {
+        double c = Math.cos(mTheta[prev]);
+        double s = Math.sin(mTheta[prev]);
+
+        mX[slot] = mX[prev] + c * dx - s * dy;
+        mY[slot] = mY[prev] + s * dx + c * dy;
+        mTheta[slot] = Math.IEEEremainder(mTheta[prev] + dtheta, 2.0 * Math.PI);
+
+        // P = F P F^T + Q, F = [1 0 a; 0 1 b; 0 0 1]
+        double a = -s * dx - c * dy;
+        double b = c * dx - s * dy;
+
+        double pxx = mPxx[prev], pxy = mPxy[prev], pxt = mPxt[prev];
+        double pyy = mPyy[prev], pyt = mPyt[prev], ptt = mPtt[prev];
+
+        double r0x = pxx + a * pxt, r0y = pxy + a * pyt, r0t = pxt + a * ptt;
+        double r1y = pyy + b * pyt, r1t = pyt + b * ptt;
+
+        double q_xy = mOdomMinStdDev + mOdomTranslationStdDevPerMeter * Math.hypot(dx, dy);
+        double q_t = mOdomMinStdDev + mOdomHeadingStdDevPerRadian * Math.abs(dtheta);
+
+        mPxx[slot] = r0x + a * r0t + q_xy * q_xy;
+        mPxy[slot] = r0y + b * r0t;
+        mPxt[slot] = r0t;
+        mPyy[slot] = r1y + b * r1t + q_xy * q_xy;
+        mPyt[slot] = r1t;
+        mPtt[slot] = ptt + q_t * q_t;
+    }
+
+    /**
+     * @param var_theta NaN to leave the heading alone
+     */
+    private void correct(int k, double x, double y, double theta, double var_xy, double var_theta) {
+        correct(k, 0, x, var_xy);
+        correct(k, 1, y, var_xy);
+        if (!Double.isNaN(var_theta)) {
+            correct(k, 2, theta, var_theta);
+        }
+    }
+
+    // Scalar Kalman update of one state (0 x, 1 y, 2 theta) at step k. Applying x, y and theta one after another
+    // is the same as the batched update since the measurement noise is diagonal.
+    private void correct(int k, int state, double measurement, double variance) {
+        double p0, p1, p2; // column of P for this state
+        double innovation;
+        switch (state) {
+            case 0:
+                p0 = mPxx[k]; p1 = mPxy[k]; p2 = mPxt[k];
+                innovation = measurement - mX[k];
+                break;
+            case 1:
+                p0 = mPxy[k]; p1 = mPyy[k]; p2 = mPyt[k];
+                innovation = measurement - mY[k];
+                break;
+            default:
+                p0 = mPxt[k]; p1 = mPyt[k]; p2 = mPtt[k];
+                innovation = Math.IEEEremainder(measurement - mTheta[k], 2.0 * Math.PI);
+                break;
+        }
+
+        double innovation_variance = (state == 0 ? p0 : state == 1 ? p1 : p2) + variance;
+        if (!(innovation_variance > 0.0)) {
+            return;
+        }
+
+        double k0 = p0 / innovation_variance;
+        double k1 = p1 / innovation_variance;
+        double k2 = p2 / innovation_variance;
+
+        mX[k] += k0 * innovation;
+        mY[k] += k1 * innovation;
+        mTheta[k] = Math.IEEEremainder(mTheta[k] + k2 * innovation, 2.0 * Math.PI);
+
+        // P -= K * P[state, :]
+        mPxx[k] -= k0 * p0;
+        mPxy[k] -= k0 * p1;
+        mPxt[k] -= k0 * p2;
+        mPyy[k] -= k1 * p1;
+        mPyt[k] -= k1 * p2;
+        mPtt[k] -= k2 * p2;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public double getNewestTimestamp() {
+        return mSize == 0 ? Double.NaN : mT[index(mSize - 1)];
+    }
+
+    public double getX() {
+        return mSize == 0 ? 0.0 : mX[index(mSize - 1)];
+    }
+
+    public double getY() {
+        return mSize == 0 ? 0.0 : mY[index(mSize - 1)];
+    }
+
+    public double getTheta() {
+        return mSize == 0 ? 0.0 : mTheta[index(mSize - 1)];
+    }
+
+    public double getStdDevX() {
+        return mSize == 0 ? 0.0 : Math.sqrt(mPxx[index(mSize - 1)]);
+    }
+
+    public double getStdDevY() {
+        return mSize == 0 ? 0.0 : Math.sqrt(mPyy[index(mSize - 1)]);
+    }
+
+    public double getStdDevTheta() {
+        return mSize == 0 ? 0.0 : Math.sqrt(mPtt[index(mSize - 1)]);
+    }
+
+    /**
+     * Time spent per vision correction including the replay, in nanoseconds.
+     */
+    public RollingStats getCorrectionNanos() {
+        return mCorrectionNanos;
+    }
+
+    public int getLastReplaySteps() {
+        return mLastReplaySteps;
+    }
+
+    // i-th step counting from the oldest
+    private int index(int i) {
+        int j = mOldest + i;
+        return j >= mCapacity ? j - mCapacity : j;
+    }
+
+    // i-th measurement counting from the oldest
+    private int visionIndex(int i) {
+        int j = mVisionOldest + i;
+        return j >= mVisionCapacity ? j - mVisionCapacity : j;
+    }
+}
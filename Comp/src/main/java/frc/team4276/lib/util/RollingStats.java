@@ -0,0 +1,102 @@
+package frc.team4276.lib.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size window of samples backed by preallocated primitive arrays. Adding a sample never allocates, percentiles
+ * are computed on demand from a scratch copy so they should only be queried at a low rate (telemetry).
+ */
+public class RollingStats {
+    private final double[] mSamples;
+    private final double[] mScratch;
+
+    private int mNextIndex = 0;
+    private int mSize = 0;
+    private double mSum = 0.0;
+    private long mTotalCount = 0;
+
+    public RollingStats(int window_size) {
+        mSamples = new double[window_size];
+        mScratch = new double[window_size];
+    }
+
+    public synchronized void addValue(double val) {
+        if (mSize == mSamples.length) {
+            mSum -= mSamples[mNextIndex];
+        } else {
+            mSize++;
+        }
+
+        mSamples[mNextIndex] = val;
+        mSum += val;
+        mNextIndex = (mNextIndex + 1) % mSamples.length;
+        mTotalCount++;
+    }
+
+    public synchronized void clear() {
+        mNextIndex = 0;
+        mSize = 0;
+        mSum = 0.0;
+        mTotalCount = 0;
+    }
+
+    public synchronized int getNumValues() {
+        return mSize;
+    }
+
+    /**
+     * @return number of samples added since construction or the last clear, including ones that have left the window
+     */
+    public synchronized long getTotalCount() {
+        return mTotalCount;
+    }
+
+    /**
+     * @return most recently added sample, 0.0 if empty
+     */
+    public synchronized double getLatest() {
+        if (mSize == 0) return 0.0;
+
+        return mSamples[(mNextIndex - 1 + mSamples.length) % mSamples.length];
+    }
+
+    public synchronized double getMean() {
+        if (mSize == 0) return 0.0;
+
+        return mSum / mSize;
+    }
+
+    public synchronized double getMin() {
+        if (mSize == 0) return 0.0;
+
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < mSize; i++) {
+            min = Math.min(min, mSamples[i]);
+        }
+        return min;
+    }
+
+    public synchronized double getMax() {
+        if (mSize == 0) return 0.0;
+
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < mSize; i++) {
+            max = Math.max(max, mSamples[i]);
+        }
+        return max;
+    }
+
+    /**
+     * @param percentile 0.0 - 1.0
+     * @return nearest rank percentile of the samples in the window, 0.0 if empty
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (mSize == 0) return 0.0;
+
+        System.arraycopy(mSamples, 0, mScratch, 0, mSize);
+        Arrays.sort(mScratch, 0, mSize);
+
+        int rank = (int) Math.ceil(percentile * mSize) - 1;
+        return mScratch[Math.max(0, Math.min(mSize - 1, rank))];
+    }
+}
@@ -0,0 +1,168 @@
+package frc.team4276.lib.util;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A state machine compiled into a table indexed by (state, event) when it's built, so an update is one array read
+ * however many states and rules there are.
+ *
+ * <p>
+ * Each state handles one event, it stays in the state while that event keeps coming. The first state registered for
+ * an event is where every other state goes on it. Variants handle an event without being the default target for it,
+ * they're only entered through transition rules (e.g. from AMP, SHOOT goes to AMP_SHOOT instead of SHOOT). A state's
+ * entry action runs every time it's entered, unless its guard says no.
+ *
+ * <p>
+ * Keeps a log of the last transitions with their timestamps.
+ */
+public class StateMachine<S extends Enum<S>, E extends Enum<E>> {
+    private static final int kLogCapacity = 32;
+    private static final int kStay = -1;
+
+    public static class Builder<S extends Enum<S>, E extends Enum<E>> {
+        private final S[] mStates;
+        private final E[] mEvents;
+
+        private final int[] mStateEvents;
+        private final int[] mEventTargets;
+        private final int[] mRules;
+        private final Runnable[] mEntryActions;
+        private final BooleanSupplier[] mGuards;
+
+        public Builder(Class<S> states, Class<E> events) {
+            mStates = states.getEnumConstants();
+            mEvents = events.getEnumConstants();
+
+            mStateEvents = new int[mStates.length];
+            mEventTargets = new int[mEvents.length];
+            mRules = new int[mStates.length * mEvents.length];
+            mEntryActions = new Runnable[mStates.length];
+            mGuards = new BooleanSupplier[mStates.length];
+
+            Arrays.fill(mStateEvents, kStay);
+            Arrays.fill(mEventTargets, kStay);
+            Arrays.fill(mRules, kStay);
+        }
+
+        /** The state for the event, entered on it from any state without a rule saying otherwise */
+        public Builder<S, E> state(S state, E event, Runnable entry) {
+            variant(state, event, entry);
+            if (mEventTargets[event.ordinal()] == kStay) {
+                mEventTargets[event.ordinal()] = state.ordinal();
+            }
+            return this;
+        }
+
+        /** Also handles the event, but is only entered through {@link #transition}. The entry action can be null. */
+        public Builder<S, E> variant(S state, E event, Runnable entry) {
+            if (mStateEvents[state.ordinal()] != kStay) {
+                throw new IllegalStateException(state + " is already registered");
+            }
+
+            mStateEvents[state.ordinal()] = event.ordinal();
+            mEntryActions[state.ordinal()] = entry;
+            return this;
+        }
+
+        /** The entry action is skipped when this is false, the state is still entered */
+        public Builder<S, E> guard(S state, BooleanSupplier guard) {
+            mGuards[state.ordinal()] = guard;
+            return this;
+        }
+
+        /** Goes to {@code to} instead of the event's state when the event comes in {@code from} */
+        public Builder<S, E> transition(S from, E event, S to) {
+            mRules[from.ordinal() * mEvents.length + event.ordinal()] = to.ordinal();
+            return this;
+        }
+
+        public StateMachine<S, E> build(S initial) {
+            int[] table = new int[mStates.length * mEvents.length];
+            for (int s = 0; s < mStates.length; s++) {
+                if (mStateEvents[s] == kStay) {
+                    throw new IllegalStateException(mStates[s] + " isn't registered");
+                }
+
+                for (int e = 0; e < mEvents.length; e++) {
+                    int i = s * mEvents.length + e;
+                    if (mRules[i] != kStay) {
+                        table[i] = mRules[i] == s ? kStay : mRules[i];
+                    } else if (mStateEvents[s] == e) {
+                        table[i] = kStay;
+                    } else {
+                        table[i] = mEventTargets[e];
+                    }
+                }
+            }
+
+            return new StateMachine<>(mStates, mEvents.length, table, mEntryActions.clone(), mGuards.clone(),
+                    initial);
+        }
+    }
+
+    private final S[] mStates;
+    private final int mEventCount;
+    private final int[] mTable;
+    private final Runnable[] mEntryActions;
+    private final BooleanSupplier[] mGuards;
+
+    private int mState;
+
+    private final double[] mLogTimestamps = new double[kLogCapacity];
+    private final int[] mLogFrom = new int[kLogCapacity];
+    private final int[] mLogTo = new int[kLogCapacity];
+    private long mTransitionCount = 0;
+
+    private StateMachine(S[] states, int event_count, int[] table, Runnable[] entry_actions, BooleanSupplier[] guards,
+            S initial) {
+        mStates = states;
+        mEventCount = event_count;
+        mTable = table;
+        mEntryActions = entry_actions;
+        mGuards = guards;
+        mState = initial.ordinal();
+    }
+
+    /**
+     * @return whether it changed state
+     */
+    public boolean update(E event, double timestamp) {
+        int next = mTable[mState * mEventCount + event.ordinal()];
+        if (next == kStay) {
+            return false;
+        }
+
+        int log = (int) (mTransitionCount % kLogCapacity);
+        mLogTimestamps[log] = timestamp;
+        mLogFrom[log] = mState;
+        mLogTo[log] = next;
+        mTransitionCount++;
+
+        mState = next;
+        if (mEntryActions[next] != null && (mGuards[next] == null || mGuards[next].getAsBoolean())) {
+            mEntryActions[next].run();
+        }
+        return true;
+    }
+
+    public S getState() {
+        return mStates[mState];
+    }
+
+    public long getTransitionCount() {
+        return mTransitionCount;
+    }
+
+    /** Oldest first, one "timestamp: FROM -> TO" per line. Allocates, for telemetry and debugging. */
+    public String getTransitionLog() {
+        StringBuilder builder = new StringBuilder();
+        long first = Math.max(mTransitionCount - kLogCapacity, 0);
+        for (long n = first; n < mTransitionCount; n++) {
+            int i = (int) (n % kLogCapacity);
+            builder.append(String.format("%.3f: %s -> %s%n", mLogTimestamps[i], mStates[mLogFrom[i]],
+                    mStates[mLogTo[i]]));
+        }
+        return builder.toString();
+    }
+}
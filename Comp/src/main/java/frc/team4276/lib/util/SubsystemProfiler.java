@@ -0,0 +1,122 @@
+package frc.team4276.lib.util;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Records how long each subsystem spends in each phase of the control loop. All storage is allocated up front so
+ * recording is safe to call every cycle; stats are only published every few cycles.
+ */
+public class SubsystemProfiler {
+    public enum Phase {
+        READ,
+        LOOP,
+        WRITE,
+        TELEMETRY
+    }
+
+    private static final Phase[] kPhases = Phase.values();
+    private static final int kPublishDivider = 25;
+    private static final double kNanosToMillis = 1e-6;
+
+    private final String[] mNames;
+    private final RollingStats[][] mPhaseStats;
+    private final RollingStats[] mTotalStats;
+    private final long[] mCycleNanos;
+    private final long kBudgetNanos;
+
+    private long mCycleStart = 0;
+    private long mOverBudgetCount = 0;
+    private String mLastOffender = "None";
+    private double mLastOverBudgetMs = 0.0;
+    private int mPublishCounter = 0;
+
+    /**
+     * @param names display name of every profiled slot
+     * @param window_size number of cycles kept for each stat
+     * @param budget_seconds cycle time that counts as an overrun
+     */
+    public SubsystemProfiler(String[] names, int window_size, double budget_seconds) {
+        mNames = names;
+        mPhaseStats = new RollingStats[names.length][kPhases.length];
+        mTotalStats = new RollingStats[names.length];
+        mCycleNanos = new long[names.length];
+        kBudgetNanos = (long) (budget_seconds * 1e9);
+
+        for (int i = 0; i < names.length; i++) {
+            mTotalStats[i] = new RollingStats(window_size);
+            for (int j = 0; j < kPhases.length; j++) {
+                mPhaseStats[i][j] = new RollingStats(window_size);
+            }
+        }
+    }
+
+    public void startCycle() {
+        mCycleStart = System.nanoTime();
+        for (int i = 0; i < mCycleNanos.length; i++) {
+            mCycleNanos[i] = 0;
+        }
+    }
+
+    /**
+     * Each call is its own sample; calls within a cycle are summed towards the subsystem's cycle total
+     */
+    public void record(int index, Phase phase, long duration_nanos) {
+        mCycleNanos[index] += duration_nanos;
+        mPhaseStats[index][phase.ordinal()].addValue(duration_nanos);
+    }
+
+    public void endCycle() {
+        long cycle_nanos = System.nanoTime() - mCycleStart;
+
+        int worst = 0;
+        for (int i = 0; i < mCycleNanos.length; i++) {
+            if (mCycleNanos[i] > 0) {
+                mTotalStats[i].addValue(mCycleNanos[i]);
+            }
+
+            if (mCycleNanos[i] > mCycleNanos[worst]) {
+                worst = i;
+            }
+        }
+
+        if (cycle_nanos > kBudgetNanos) {
+            mOverBudgetCount++;
+            mLastOffender = mNames[worst];
+            mLastOverBudgetMs = cycle_nanos * kNanosToMillis;
+        }
+    }
+
+    public long getOverBudgetCount() {
+        return mOverBudgetCount;
+    }
+
+    public String getLastOffender() {
+        return mLastOffender;
+    }
+
+    public void outputTelemetry() {
+        if (++mPublishCounter < kPublishDivider) return;
+        mPublishCounter = 0;
+
+        SmartDashboard.putNumber("Debug/Profiler/Over Budget Count", mOverBudgetCount);
+        SmartDashboard.putString("Debug/Profiler/Last Offender", mLastOffender);
+        SmartDashboard.putNumber("Debug/Profiler/Last Over Budget (ms)", mLastOverBudgetMs);
+
+        for (int i = 0; i < mNames.length; i++) {
+            if (mTotalStats[i].getNumValues() == 0) continue;
+
+            String prefix = "Debug/Profiler/" + mNames[i] + "/";
+            SmartDashboard.putNumber(prefix + "Total Mean (ms)", mTotalStats[i].getMean() * kNanosToMillis);
+            SmartDashboard.putNumber(prefix + "Total p99 (ms)", mTotalStats[i].getPercentile(0.99) * kNanosToMillis);
+
+            for (Phase phase : kPhases) {
+                RollingStats stats = mPhaseStats[i][phase.ordinal()];
+                if (stats.getNumValues() == 0) continue;
+
+                SmartDashboard.putNumber(prefix + phase.name() + " Min (ms)", stats.getMin() * kNanosToMillis);
+                SmartDashboard.putNumber(prefix + phase.name() + " Mean (ms)", stats.getMean() * kNanosToMillis);
+                SmartDashboard.putNumber(prefix + phase.name() + " p99 (ms)", stats.getPercentile(0.99) * kNanosToMillis);
+            }
+        }
+    }
+}
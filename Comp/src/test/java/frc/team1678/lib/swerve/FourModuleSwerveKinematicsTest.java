@@ -0,0 +1,102 @@
+package frc.team1678.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.util.Units;
+
+/**
+ * FourModuleSwerveKinematics has to give bit for bit the same results as SwerveDriveKinematics, over seeded random
+ * inputs mixed with zeros, signed zeros, tiny and huge values and NaN.
+ */
+public class FourModuleSwerveKinematicsTest {
+    private static final double kHalf = Units.inchesToMeters(23.5) / 2;
+    private static final double[] kSpecial = {
+            0.0, -0.0, 1e-300, -1e-300, 1e-9, 5.0, -5.0, 1e300, Double.NaN };
+    private static final int kCases = 200_000;
+
+    private final Translation2d[] mWheels = {
+            new Translation2d(kHalf, kHalf),
+            new Translation2d(kHalf, -kHalf),
+            new Translation2d(-kHalf, kHalf),
+            new Translation2d(-kHalf, -kHalf) };
+    private final SwerveDriveKinematics mReference = new SwerveDriveKinematics(mWheels);
+    private final FourModuleSwerveKinematics mFast = new FourModuleSwerveKinematics(mWheels);
+
+    private final ModuleState[] mOut = new ModuleState[] {
+            ModuleState.identity(), ModuleState.identity(), ModuleState.identity(), ModuleState.identity() };
+    private final ChassisSpeeds mSpeedsOut = new ChassisSpeeds();
+    private final Twist2d mTwistOut = new Twist2d();
+
+    @Test
+    public void toModuleStatesMatchesOnEveryEdgeCase() {
+        // Same sequence into both, so the angles held on zero speeds are compared as well
+        for (double vx : kSpecial) {
+            for (double vy : kSpecial) {
+                for (double omega : kSpecial) {
+                    checkModuleStates(vx + ", " + vy + ", " + omega, new ChassisSpeeds(vx, vy, omega));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesOnRandomInputs() {
+        Random random = new Random(4276);
+        for (int n = 0; n < kCases; n++) {
+            String name = "case " + n;
+            checkModuleStates(name, new ChassisSpeeds(value(random), value(random), value(random)));
+
+            ModuleState[] states = new ModuleState[4];
+            SwerveModulePosition[] deltas = new SwerveModulePosition[4];
+            for (int i = 0; i < 4; i++) {
+                Rotation2d angle = new Rotation2d(value(random), value(random));
+                states[i] = ModuleState.fromSpeeds(angle, value(random));
+                deltas[i] = new SwerveModulePosition(value(random), angle);
+            }
+
+            ChassisSpeeds expected_speeds = mReference.toChassisSpeeds(states);
+            mFast.toChassisSpeeds(states, mSpeedsOut);
+            same(name, "vx", expected_speeds.vxMetersPerSecond, mSpeedsOut.vxMetersPerSecond);
+            same(name, "vy", expected_speeds.vyMetersPerSecond, mSpeedsOut.vyMetersPerSecond);
+            same(name, "omega", expected_speeds.omegaRadiansPerSecond, mSpeedsOut.omegaRadiansPerSecond);
+
+            Twist2d expected_twist = mReference.toTwist2d(deltas);
+            mFast.toTwist2d(deltas, mTwistOut);
+            same(name, "dx", expected_twist.dx, mTwistOut.dx);
+            same(name, "dy", expected_twist.dy, mTwistOut.dy);
+            same(name, "dtheta", expected_twist.dtheta, mTwistOut.dtheta);
+        }
+    }
+
+    private void checkModuleStates(String name, ChassisSpeeds speeds) {
+        ModuleState[] expected = mReference.toModuleStates(speeds);
+        mFast.toModuleStates(speeds, mOut);
+        for (int i = 0; i < 4; i++) {
+            same(name, "speed " + i, expected[i].speedMetersPerSecond, mOut[i].speedMetersPerSecond);
+            same(name, "cos " + i, expected[i].angle.getCos(), mOut[i].angle.getCos());
+            same(name, "sin " + i, expected[i].angle.getSin(), mOut[i].angle.getSin());
+            same(name, "radians " + i, expected[i].angle.getRadians(), mOut[i].angle.getRadians());
+        }
+    }
+
+    // Mostly ordinary robot values, sometimes one of the edge cases
+    private static double value(Random random) {
+        if (random.nextInt(8) == 0) {
+            return kSpecial[random.nextInt(kSpecial.length)];
+        }
+        return (random.nextDouble() * 2.0 - 1.0) * 6.0;
+    }
+
+    private static void same(String name, String what, double expected, double actual) {
+        assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual),
+                () -> name + " " + what + ": expected " + expected + " got " + actual);
+    }
+}
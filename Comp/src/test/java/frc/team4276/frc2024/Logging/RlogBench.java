@@ -0,0 +1,67 @@
+package frc.team4276.frc2024.Logging;
+
+import java.io.File;
+import java.io.IOException;
+
+import frc.team4276.frc2024.Logging.LoggableRobotFile.DebugLevel;
+import frc.team4276.frc2024.Logging.RlogFormat.PayloadType;
+
+/*
+ * Desktop tool writing the same records with each log writer and comparing size and speed:
+ *
+ *   gradlew runBench -Pbench=frc.team4276.frc2024.Logging.RlogBench -PbenchArgs="<dir> [records]"
+ */
+public class RlogBench {
+    private static final int kBatchSize = 512;
+
+    public static void main(String[] args) throws IOException {
+        String dir = args.length >= 1 ? args[0] : "bench_logs";
+        int records = args.length >= 2 ? Integer.parseInt(args[1]) : 100000;
+
+        new File(dir).mkdirs();
+
+        System.out.println("writer                      records/sec      bytes   bytes/record");
+        runBench("text, flush every record", new TextLogWriter(dir + "/bench_text_legacy.rlog", 0, false, true), records);
+        runBench("text, batched", new TextLogWriter(dir + "/bench_text_batched.rlog", 0, false, false), records);
+        runBench("binary, batched", new BinaryLogWriter(dir + "/bench_binary.rlog", 0, false, 64 * 1024, 50), records);
+    }
+
+    private static void runBench(String name, ILogWriter writer, int records) throws IOException {
+        long start = System.nanoTime();
+
+        try (ILogWriter w = writer) {
+            for (int i = 0; i < records; i++) {
+                double timestamp = i * 0.02;
+
+                // Mix roughly matching the control loop: mostly numeric telemetry, some messages
+                switch (i % 4) {
+                    case 0:
+                        w.write(timestamp, DebugLevel.INFO, RlogFormat.kMessageKey, PayloadType.STRING, 0,
+                                "Superstructure goal READY");
+                        break;
+                    case 1:
+                        w.write(timestamp, DebugLevel.DEBUG, "Drive/X", PayloadType.DOUBLE,
+                                Double.doubleToRawLongBits(i * 0.001), null);
+                        break;
+                    case 2:
+                        w.write(timestamp, DebugLevel.DEBUG, "Drive/Y", PayloadType.DOUBLE,
+                                Double.doubleToRawLongBits(i * 0.002), null);
+                        break;
+                    default:
+                        w.write(timestamp, DebugLevel.DEBUG, "Superstructure/Holding Note", PayloadType.BOOLEAN,
+                                i % 8 == 3 ? 1 : 0, null);
+                        break;
+                }
+
+                if (i % kBatchSize == kBatchSize - 1) {
+                    w.flush();
+                }
+            }
+            w.flush();
+        }
+
+        double seconds = (System.nanoTime() - start) * 1e-9;
+        long bytes = writer.getBytesWritten();
+        System.out.printf("%-26s %12.0f %10d %14.1f%n", name, records / seconds, bytes, (double) bytes / records);
+    }
+}
@@ -0,0 +1,110 @@
+package frc.team4276.frc2024;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import frc.team4276.lib.util.Bench;
+
+/*
+ * Desktop tool measuring how much RobotState readers get in each other's and the odometry writer's way. Needs
+ * wpilib on the classpath:
+ *
+ *   RobotStateContentionBench [readers] [seconds]
+ *
+ * One thread writes odometry and velocity as fast as it can, the readers (4 by default, like the auto, main,
+ * dashboard and vision threads) read pose, velocity and POIs in a loop. Run once with every read wrapped in the
+ * RobotState monitor, which is what the synchronized getters did, and once through the snapshot. Prints reads/s,
+ * and the time and number of times the readers were blocked on the monitor.
+ */
+public class RobotStateContentionBench {
+    private static double sink = 0.0;
+
+    private interface Reader {
+        void read(RobotState state);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int readers = args.length >= 1 ? Integer.parseInt(args[0]) : 4;
+        double seconds = args.length >= 2 ? Double.parseDouble(args[1]) : 2.0;
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean.isThreadContentionMonitoringSupported()) {
+            bean.setThreadContentionMonitoringEnabled(true);
+        }
+
+        System.out.println("mode          reads/s   writes/s  blocked (ms)  blocked count");
+        for (int pass = 0; pass < 2; pass++) {
+            run("locked", readers, seconds, pass == 1, bean, state -> {
+                synchronized (state) {
+                    read(state);
+                }
+            });
+            run("snapshot", readers, seconds, pass == 1, bean, RobotStateContentionBench::read);
+        }
+
+        Bench.consume(sink);
+    }
+
+    private static void read(RobotState state) {
+        RobotState.Snapshot snapshot = state.getSnapshot();
+        sink += snapshot.x() + snapshot.y() + snapshot.pois.kSpeakerCenter.x() + snapshot.field_vx;
+    }
+
+    private static void run(String name, int readers, double seconds, boolean print, ThreadMXBean bean,
+            Reader reader) throws InterruptedException {
+        RobotState state = RobotState.getInstance();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(readers + 1);
+        long[] reads = new long[readers];
+        long[] writes = new long[1];
+
+        Thread writer = RobotStateWriter.thread(state, running, started, writes);
+
+        Thread[] threads = new Thread[readers];
+        for (int i = 0; i < readers; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                started.countDown();
+                long n = 0;
+                while (running.get()) {
+                    reader.read(state);
+                    n++;
+                }
+                reads[index] = n;
+            }, "Reader " + i);
+        }
+
+        writer.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        started.await();
+        Thread.sleep((long) (seconds * 1000));
+
+        // Sampled before the threads exit, their info is gone after
+        long blocked_ms = 0;
+        long blocked_count = 0;
+        for (Thread thread : threads) {
+            java.lang.management.ThreadInfo info = bean.getThreadInfo(thread.getId());
+            if (info != null) {
+                blocked_ms += Math.max(info.getBlockedTime(), 0);
+                blocked_count += info.getBlockedCount();
+            }
+        }
+
+        running.set(false);
+        writer.join();
+        long total_reads = 0;
+        for (int i = 0; i < readers; i++) {
+            threads[i].join();
+            total_reads += reads[i];
+        }
+
+        if (print) {
+            System.out.printf("%-10s %10.3e %10.3e %13d %14d%n", name, total_reads / seconds, writes[0] / seconds,
+                    blocked_ms, blocked_count);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package frc.team4276.frc2024;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import frc.team254.lib.geometry.MutablePose2d;
+import frc.team254.lib.geometry.Pose2d;
+import frc.team4276.frc2024.shooting.AimingParameters;
+
+/**
+ * Readers of the published RobotState snapshot must never go back to an older snapshot while the odometry writer
+ * keeps publishing, and aiming is computed once per published snapshot.
+ */
+public class RobotStateTest {
+    private static final int kReaders = 3;
+    private static final long kRunMillis = 500;
+
+    @Test
+    public void snapshotsNeverGoBack() throws InterruptedException {
+        RobotState state = RobotState.getInstance();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(kReaders + 1);
+        long[] reads = new long[kReaders];
+
+        Thread writer = RobotStateWriter.thread(state, running, started, new long[1]);
+
+        Thread[] threads = new Thread[kReaders];
+        for (int i = 0; i < kReaders; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                started.countDown();
+                long last_epoch = Long.MIN_VALUE;
+                while (running.get()) {
+                    RobotState.Snapshot snapshot = state.getSnapshot();
+                    if (snapshot.epoch < last_epoch) {
+                        failure.compareAndSet(null, "epoch went from " + last_epoch + " to " + snapshot.epoch);
+                    }
+                    last_epoch = snapshot.epoch;
+                    reads[index]++;
+                }
+            }, "Reader " + i);
+        }
+
+        writer.start();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        started.await();
+        Thread.sleep(kRunMillis);
+        running.set(false);
+
+        writer.join();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get(), failure.get());
+        for (long n : reads) {
+            assertTrue(n > 0);
+        }
+    }
+
+    @Test
+    public void aimingIsComputedOncePerPublish() {
+        RobotState state = RobotState.getInstance();
+        MutablePose2d odom = new MutablePose2d();
+        state.reset(0.0, Pose2d.identity());
+        RobotStateWriter.write(state, odom, 0);
+
+        AimingParameters first = state.getAimingParameters();
+        assertEquals(state.getSnapshot().epoch, first.epoch);
+        assertSame(first, state.getAimingParameters());
+
+        // The odometry alone doesn't publish, aiming stays with the snapshot it was computed from
+        state.addOdomObservations(0.02, odom.set(1.0, 0.0, 0.0));
+        assertSame(first, state.getAimingParameters());
+
+        state.addVelocityObservations(0.02, 1.0, 2.0, 0.0);
+        AimingParameters second = state.getAimingParameters();
+        assertFalse(first == second);
+        assertEquals(state.getSnapshot().epoch, second.epoch);
+        assertSame(second, state.getAimingParameters());
+    }
+}
@@ -0,0 +1,39 @@
+package frc.team4276.frc2024;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import frc.team254.lib.geometry.MutablePose2d;
+
+/**
+ * The odometry thread for RobotStateTest and RobotStateContentionBench. Always drives with vy = 2 vx at a heading of
+ * zero, each update publishes once.
+ */
+final class RobotStateWriter {
+    private RobotStateWriter() {}
+
+    /** The nth update, the odometry then the velocity like the drive does */
+    static void write(RobotState state, MutablePose2d odom, long n) {
+        double t = n * 0.02;
+        double v = 1.0 + (n & 7);
+        odom.set(n * 1e-3, 0.0, 0.0);
+        state.addOdomObservations(t, odom);
+        state.addVelocityObservations(t, v, 2.0 * v, 0.0);
+    }
+
+    /**
+     * Not started. Counts down {@code started} then writes as fast as it can until {@code running} is false, leaving
+     * the number of updates in {@code writes[0]}.
+     */
+    static Thread thread(RobotState state, AtomicBoolean running, CountDownLatch started, long[] writes) {
+        return new Thread(() -> {
+            MutablePose2d odom = new MutablePose2d();
+            started.countDown();
+            long n = 0;
+            while (running.get()) {
+                write(state, odom, n++);
+            }
+            writes[0] = n;
+        }, "Writer");
+    }
+}
@@ -0,0 +1,55 @@
+package frc.team4276.frc2024.subsystems;
+
+import java.util.Random;
+
+import frc.team4276.frc2024.subsystems.NominalStateMachine.NominalEvent;
+import frc.team4276.frc2024.subsystems.NominalStateMachine.NominalState;
+import frc.team4276.lib.util.Bench;
+import frc.team4276.lib.util.StateMachine;
+
+/*
+ * Desktop tool comparing StateMachine with the switch Superstructure.updateNominal used to be, over a generated
+ * SuperstructureMatch:
+ *
+ *   StateMachineBench [matches]
+ *
+ * Prints ns and bytes per cycle. StateMachineTest checks the two request the same things on the same cycles.
+ */
+public class StateMachineBench {
+    public static void main(String[] args) {
+        int matches = args.length >= 1 ? Integer.parseInt(args[0]) : 2000;
+
+        SuperstructureMatch match = new SuperstructureMatch(new Random(4276));
+
+        Bench.printHeader("cycle");
+        for (int pass = 0; pass < 2; pass++) {
+            bench(match, matches, pass == 1);
+        }
+
+        Bench.consume(match.getRequestSum());
+    }
+
+    private static void bench(SuperstructureMatch match, int matches, boolean print) {
+        long cycles = (long) matches * SuperstructureMatch.kCycles;
+
+        long[] stats = Bench.start();
+        for (int m = 0; m < matches; m++) {
+            SuperstructureMatch.Switch reference = match.new Switch();
+            for (int i = 0; i < SuperstructureMatch.kCycles; i++) {
+                match.setCycle(i);
+                reference.update(i);
+            }
+        }
+        Bench.report("switch", stats, cycles, print);
+
+        stats = Bench.start();
+        for (int m = 0; m < matches; m++) {
+            StateMachine<NominalState, NominalEvent> machine = match.build();
+            for (int i = 0; i < SuperstructureMatch.kCycles; i++) {
+                match.setCycle(i);
+                machine.update(match.event(i), i * 0.02);
+            }
+        }
+        Bench.report("state machine (incl. build)", stats, cycles, print);
+    }
+}
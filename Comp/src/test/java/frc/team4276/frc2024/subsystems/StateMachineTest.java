@@ -0,0 +1,85 @@
+package frc.team4276.frc2024.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import frc.team4276.frc2024.subsystems.NominalStateMachine.NominalEvent;
+import frc.team4276.frc2024.subsystems.NominalStateMachine.NominalState;
+import frc.team4276.frc2024.subsystems.Superstructure.GoalState;
+import frc.team4276.lib.util.StateMachine;
+
+/**
+ * The StateMachine Superstructure builds has to request the same things on the same cycles as the switch
+ * updateNominal used to be, over generated matches.
+ */
+public class StateMachineTest {
+    private static final int kMatches = 50;
+
+    @Test
+    public void matchesSwitchOverGeneratedMatches() {
+        for (int seed = 0; seed < kMatches; seed++) {
+            SuperstructureMatch match = new SuperstructureMatch(new Random(4276 + seed));
+            SuperstructureMatch.Switch reference = match.new Switch();
+            StateMachine<NominalState, NominalEvent> machine = match.build();
+
+            int requests = 0;
+            int active = NominalState.IDLE.ordinal();
+            for (int i = 0; i < SuperstructureMatch.kCycles; i++) {
+                match.setCycle(i);
+                reference.update(i);
+                int switch_request = match.getRequested();
+
+                // Toggling force disable prep while it's off made the switch restart the request it was running,
+                // the state machine stays in the state instead
+                int expected = switch_request == active ? -1 : switch_request;
+                if (expected >= 0) {
+                    active = expected;
+                }
+
+                match.setCycle(i);
+                machine.update(match.event(i), i * 0.02);
+                int actual = match.getRequested();
+
+                int cycle = i;
+                int match_seed = seed;
+                assertEquals(expected, actual, () -> "seed " + match_seed + " cycle " + cycle + " ("
+                        + match.getGoal(cycle) + "): switch requested " + SuperstructureMatch.name(expected)
+                        + ", state machine requested " + SuperstructureMatch.name(actual));
+                if (expected >= 0) {
+                    requests++;
+                }
+            }
+            assertTrue(requests > 100, "seed " + seed + " only made " + requests + " requests");
+        }
+    }
+
+    @Test
+    public void forceDisablePrepStowsWithoutPrep() {
+        StateMachine<NominalState, NominalEvent> machine = NominalStateMachine.build(state -> {}, () -> true);
+
+        machine.update(NominalStateMachine.event(GoalState.STOW, true, false, false), 0.0);
+        assertEquals(NominalState.STOW_PREP, machine.getState());
+
+        machine.update(NominalStateMachine.event(GoalState.STOW, true, true, false), 0.02);
+        assertEquals(NominalState.STOW, machine.getState());
+
+        machine.update(NominalStateMachine.event(GoalState.STOW, true, false, false), 0.04);
+        assertEquals(NominalState.STOW_PREP, machine.getState());
+
+        // Only stow is prepped
+        machine.update(NominalStateMachine.event(GoalState.READY, true, true, false), 0.06);
+        assertEquals(NominalState.READY, machine.getState());
+    }
+
+    @Test
+    public void unregisteredStateFailsToBuild() {
+        StateMachine.Builder<NominalState, NominalEvent> builder = new StateMachine.Builder<>(NominalState.class,
+                NominalEvent.class).state(NominalState.IDLE, NominalEvent.IDLE, null);
+        assertThrows(IllegalStateException.class, () -> builder.build(NominalState.IDLE));
+    }
+}
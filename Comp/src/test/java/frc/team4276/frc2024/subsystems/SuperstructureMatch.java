@@ -0,0 +1,202 @@
+package frc.team4276.frc2024.subsystems;
+
+import java.util.Random;
+
+import frc.team4276.frc2024.subsystems.NominalStateMachine.NominalEvent;
+import frc.team4276.frc2024.subsystems.NominalStateMachine.NominalState;
+import frc.team4276.frc2024.subsystems.Superstructure.GoalState;
+import frc.team4276.lib.util.StateMachine;
+
+/**
+ * A generated match of Superstructure goal changes (150 s at 50 Hz: intake, stow with and without prep, ready and
+ * ferry ready, amp, shoot, exhaust, poop, skim, climb at the end), with the StateMachine Superstructure builds and the
+ * switch updateNominal used to be, both recording what they request.
+ */
+final class SuperstructureMatch {
+    static final int kCycles = 150 * 50;
+
+    private static final GoalState[] kGoals = GoalState.values();
+    private static final NominalState[] kStates = NominalState.values();
+
+    // Recorded inputs, one per cycle
+    private final int[] mGoal = new int[kCycles];
+    private final boolean[] mPrep = new boolean[kCycles];
+    private final boolean[] mForceDisablePrep = new boolean[kCycles];
+    private final boolean[] mFerry = new boolean[kCycles];
+    private final boolean[] mHolding = new boolean[kCycles];
+
+    private int mRequested = -1;
+    private boolean mHoldingNote = false;
+    private long mRequestSum = 0;
+
+    SuperstructureMatch(Random random) {
+        recordMatch(random);
+    }
+
+    /** Sets the inputs for the cycle and clears the last request, call before updating either */
+    void setCycle(int i) {
+        mHoldingNote = mHolding[i];
+        mRequested = -1;
+    }
+
+    /** @return the ordinal of the NominalState requested since {@link #setCycle}, -1 if none */
+    int getRequested() {
+        return mRequested;
+    }
+
+    /** Keeps the requests alive in the benches */
+    long getRequestSum() {
+        return mRequestSum;
+    }
+
+    GoalState getGoal(int i) {
+        return kGoals[mGoal[i]];
+    }
+
+    static String name(int state) {
+        return state < 0 ? "nothing" : kStates[state].name();
+    }
+
+    private void request(NominalState state) {
+        mRequested = state.ordinal();
+        mRequestSum += state.ordinal();
+    }
+
+    private void recordMatch(Random random) {
+        int i = 0;
+        boolean holding = false;
+        boolean prep = false;
+        boolean force = false;
+        boolean ferry = false;
+
+        i = fill(i, 150, GoalState.IDLE, prep, force, ferry, holding);
+        while (i < kCycles - 500) {
+            // Drive to a note and pick it up
+            i = fill(i, 25 + random.nextInt(75), GoalState.INTAKE, prep, force, ferry, holding);
+            holding = true;
+            i = fill(i, 5 + random.nextInt(20), GoalState.INTAKE, prep, force, ferry, holding);
+
+            // Drive back, prep turned on and off by the driver and sometimes force disabled
+            prep = random.nextBoolean();
+            force = random.nextInt(4) == 0;
+            i = fill(i, 25 + random.nextInt(50), GoalState.STOW, prep, force, ferry, holding);
+            prep = !prep;
+            i = fill(i, 10 + random.nextInt(30), GoalState.STOW, prep, force, ferry, holding);
+            if (random.nextInt(3) == 0) {
+                force = !force;
+                i = fill(i, 10 + random.nextInt(30), GoalState.STOW, prep, force, ferry, holding);
+            }
+
+            int kind = random.nextInt(10);
+            if (kind < 2) {
+                i = fill(i, 30 + random.nextInt(40), GoalState.AMP, prep, force, ferry, holding);
+            } else if (kind < 3) {
+                i = fill(i, 40, GoalState.POOP, prep, force, ferry, holding);
+            } else {
+                ferry = kind < 5;
+                i = fill(i, 10 + random.nextInt(40), GoalState.READY, prep, force, ferry, holding);
+                if (random.nextInt(4) == 0) {
+                    ferry = !ferry;
+                    i = fill(i, 10 + random.nextInt(20), GoalState.READY, prep, force, ferry, holding);
+                }
+            }
+
+            if (random.nextInt(20) == 0) {
+                i = fill(i, 25, GoalState.EXHAUST, prep, force, ferry, holding);
+            } else {
+                i = fill(i, 15, GoalState.SHOOT, prep, force, ferry, holding);
+            }
+            holding = false;
+
+            if (random.nextInt(5) == 0) {
+                i = fill(i, 20 + random.nextInt(40), GoalState.SKIM, prep, force, ferry, holding);
+            }
+            i = fill(i, 5 + random.nextInt(20), GoalState.STOW, prep, force, ferry, holding);
+        }
+        fill(i, kCycles - i, GoalState.CLIMB, prep, force, ferry, holding);
+    }
+
+    private int fill(int start, int cycles, GoalState goal, boolean prep, boolean force, boolean ferry,
+            boolean holding) {
+        int end = Math.min(start + cycles, kCycles);
+        for (int i = start; i < end; i++) {
+            mGoal[i] = goal.ordinal();
+            mPrep[i] = prep;
+            mForceDisablePrep[i] = force;
+            mFerry[i] = ferry;
+            mHolding[i] = holding;
+        }
+        return end;
+    }
+
+    /** The machine Superstructure builds, requesting the state it enters */
+    StateMachine<NominalState, NominalEvent> build() {
+        return NominalStateMachine.build(this::request, () -> !mHoldingNote);
+    }
+
+    NominalEvent event(int i) {
+        return NominalStateMachine.event(kGoals[mGoal[i]], mPrep[i], mForceDisablePrep[i], mFerry[i]);
+    }
+
+    // The old updateNominal
+    class Switch {
+        private GoalState mPrevGoalState = GoalState.IDLE;
+        private boolean mPrevPrepVal = false;
+        private boolean mPrevForcePrepVal = false;
+        private boolean mPrevFerryVal = false;
+
+        void update(int i) {
+            GoalState goal = kGoals[mGoal[i]];
+            switch (goal) {
+                case IDLE:
+                    if (mPrevGoalState == goal) break;
+                    request(NominalState.IDLE);
+                    break;
+                case STOW:
+                    if (mPrevGoalState == goal && mPrep[i] == mPrevPrepVal
+                            && mPrevForcePrepVal == mForceDisablePrep[i]) break;
+                    mPrevPrepVal = mPrep[i];
+                    mPrevForcePrepVal = mForceDisablePrep[i];
+                    request(mPrep[i] && !mForceDisablePrep[i] ? NominalState.STOW_PREP : NominalState.STOW);
+                    break;
+                case SKIM:
+                    if (mPrevGoalState == goal) break;
+                    request(NominalState.SKIM);
+                    break;
+                case INTAKE:
+                    if (mPrevGoalState == goal || mHoldingNote) break;
+                    request(NominalState.INTAKE);
+                    break;
+                case READY:
+                    if (mPrevGoalState == goal && mPrevFerryVal == mFerry[i]) break;
+                    mPrevFerryVal = mFerry[i];
+                    request(mFerry[i] ? NominalState.FERRY_READY : NominalState.READY);
+                    break;
+                case AMP:
+                    if (mPrevGoalState == goal) break;
+                    request(NominalState.AMP);
+                    break;
+                case SHOOT:
+                    if (mPrevGoalState == goal) break;
+                    request(mPrevGoalState == GoalState.AMP ? NominalState.AMP_SHOOT : NominalState.SHOOT);
+                    break;
+                case EXHAUST:
+                    if (mPrevGoalState == goal) break;
+                    request(NominalState.EXHAUST);
+                    break;
+                case POOP:
+                    if (mPrevGoalState == goal) break;
+                    request(NominalState.POOP);
+                    break;
+                case CLIMB:
+                    if (mPrevGoalState == goal) break;
+                    request(NominalState.CLIMB);
+                    break;
+                default:
+                    break;
+            }
+
+            mPrevGoalState = goal;
+        }
+    }
+}
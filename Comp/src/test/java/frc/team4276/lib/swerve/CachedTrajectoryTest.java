@@ -0,0 +1,89 @@
+package frc.team4276.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import choreo.Choreo;
+import choreo.trajectory.SwerveSample;
+import choreo.trajectory.Trajectory;
+
+/**
+ * CachedTrajectory has to sample every split of the deployed trajectories the same as Trajectory.sampleAt, at the
+ * loop rate from before the start to past the end the way MotionPlanner does, and stepping back in time off the loop
+ * rate. Run from the Comp directory so the deploy directory is found.
+ */
+public class CachedTrajectoryTest {
+    private static final double kDt = 0.02;
+    private static final double kEpsilon = 1e-9;
+
+    /** Every split of the trajectory, or the whole thing if it isn't split */
+    @SuppressWarnings("unchecked")
+    static List<Trajectory<SwerveSample>> loadSplits(String name) {
+        var loaded = Choreo.loadTrajectory(name);
+        assertTrue(loaded.isPresent(), "couldn't load " + name);
+
+        List<Trajectory<SwerveSample>> splits = new ArrayList<>();
+        for (int i = 0;; i++) {
+            var split = loaded.get().getSplit(i);
+            if (split.isEmpty()) {
+                break;
+            }
+            splits.add((Trajectory<SwerveSample>) split.get());
+        }
+        if (splits.isEmpty()) {
+            splits.add((Trajectory<SwerveSample>) loaded.get());
+        }
+        return splits;
+    }
+
+    @Test
+    public void matchesSampleAtOnDeployedTrajectories() {
+        File[] files = new File("src/main/deploy/choreo").listFiles((dir, file) -> file.endsWith(".traj"));
+        assertTrue(files != null && files.length > 0, "no trajectories in src/main/deploy/choreo");
+
+        for (File file : files) {
+            String name = file.getName().substring(0, file.getName().length() - ".traj".length());
+            for (Trajectory<SwerveSample> split : loadSplits(name)) {
+                check(name, split);
+            }
+        }
+    }
+
+    private static void check(String name, Trajectory<SwerveSample> trajectory) {
+        CachedTrajectory cached = new CachedTrajectory(trajectory);
+        CachedTrajectory.Sampler sampler = cached.sampler();
+        CachedTrajectory.State state = new CachedTrajectory.State();
+
+        double end = trajectory.getTotalTime() + 0.5;
+        for (double t = -0.5; t <= end; t += kDt) {
+            compare(name, t, trajectory.sampleAt(t, false), sampler, state);
+        }
+        // Time going backwards, and off the loop rate so it lands between samples
+        for (double t = end; t >= -0.5; t -= kDt * 1.37) {
+            compare(name, t, trajectory.sampleAt(t, false), sampler, state);
+        }
+    }
+
+    private static void compare(String name, double t, SwerveSample expected, CachedTrajectory.Sampler sampler,
+            CachedTrajectory.State state) {
+        sampler.sample(t, state);
+        String at = name + " at " + t + ": ";
+        assertEquals(expected.t, state.t, kEpsilon, at + "t");
+        assertEquals(expected.x, state.x, kEpsilon, at + "x");
+        assertEquals(expected.y, state.y, kEpsilon, at + "y");
+        assertEquals(0.0, Math.IEEEremainder(expected.heading - state.heading, 2.0 * Math.PI), kEpsilon,
+                at + "heading");
+        assertEquals(expected.vx, state.vx, kEpsilon, at + "vx");
+        assertEquals(expected.vy, state.vy, kEpsilon, at + "vy");
+        assertEquals(expected.omega, state.omega, kEpsilon, at + "omega");
+        assertEquals(expected.ax, state.ax, kEpsilon, at + "ax");
+        assertEquals(expected.ay, state.ay, kEpsilon, at + "ay");
+        assertEquals(expected.alpha, state.alpha, kEpsilon, at + "alpha");
+    }
+}
@@ -0,0 +1,63 @@
+package frc.team4276.lib.swerve;
+
+import java.util.List;
+
+import choreo.trajectory.SwerveSample;
+import choreo.trajectory.Trajectory;
+import frc.team4276.lib.util.Bench;
+
+/*
+ * Desktop tool comparing CachedTrajectory with Trajectory.sampleAt on the real auto trajectories. Needs wpimath,
+ * wpilibj and ChoreoLib on the classpath and has to be run from the Comp directory so the deploy directory is
+ * found:
+ *
+ *   TrajectorySamplerBench [trajectory] [iterations]
+ *
+ * Prints ns/op and bytes/op for one sample per loop on the longest split of the trajectory (default
+ * Close_4Note_Fast). CachedTrajectoryTest checks the samples.
+ */
+public class TrajectorySamplerBench {
+    private static final double kDt = 0.02;
+
+    private static double sink = 0.0;
+
+    public static void main(String[] args) {
+        String name = args.length >= 1 ? args[0] : "Close_4Note_Fast";
+        int iterations = args.length >= 2 ? Integer.parseInt(args[1]) : 5_000_000;
+
+        List<Trajectory<SwerveSample>> splits = CachedTrajectoryTest.loadSplits(name);
+        Trajectory<SwerveSample> longest = splits.get(0);
+        for (Trajectory<SwerveSample> split : splits) {
+            if (split.getTotalTime() > longest.getTotalTime()) {
+                longest = split;
+            }
+        }
+
+        Bench.printHeader("op");
+        for (int pass = 0; pass < 2; pass++) {
+            bench(longest, iterations, pass == 1);
+        }
+
+        Bench.consume(sink);
+    }
+
+    private static void bench(Trajectory<SwerveSample> trajectory, int iterations, boolean print) {
+        CachedTrajectory cached = new CachedTrajectory(trajectory);
+        CachedTrajectory.Sampler sampler = cached.sampler();
+        CachedTrajectory.State state = new CachedTrajectory.State();
+        int loops = (int) (trajectory.getTotalTime() / kDt) + 1;
+
+        long[] stats = Bench.start();
+        for (int i = 0; i < iterations; i++) {
+            sink += trajectory.sampleAt((i % loops) * kDt, false).x;
+        }
+        Bench.report("sampleAt", stats, iterations, print);
+
+        stats = Bench.start();
+        for (int i = 0; i < iterations; i++) {
+            sampler.sample((i % loops) * kDt, state);
+            sink += state.x;
+        }
+        Bench.report("CachedTrajectory.Sampler", stats, iterations, print);
+    }
+}
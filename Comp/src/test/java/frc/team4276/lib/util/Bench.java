@@ -0,0 +1,74 @@
+package frc.team4276.lib.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Timing and allocation helpers shared by the desktop benches. Bytes come from the JVM's per thread allocation
+ * counter, so only allocations on the calling thread are counted.
+ *
+ * <pre>
+ *   long[] stats = Bench.start();
+ *   ... iterations ...
+ *   Bench.report("name", stats, iterations, print);
+ * </pre>
+ *
+ * Run a bench the way the robot code is run to get roboRIO-like numbers, or from the Comp directory with
+ * {@code gradlew runBench -Pbench=<class> -PbenchArgs="<args>"}.
+ */
+public final class Bench {
+    private static double sink = 0.0;
+
+    private Bench() {}
+
+    /** @param unit what one iteration is, "op" or "cycle" */
+    public static void printHeader(String unit) {
+        System.out.printf("%-34s %9s %11s%n", "op", "ns/" + unit, "bytes/" + unit);
+    }
+
+    /** @return the allocation counter and time to pass to {@link #report} */
+    public static long[] start() {
+        return new long[] { allocatedBytes(), System.nanoTime() };
+    }
+
+    /**
+     * Prints ns and bytes per iteration since {@link #start}. Benches run everything twice and only print the
+     * second pass, so the JIT has compiled (and escape analysed) the code by then.
+     */
+    public static void report(String name, long[] start, long iterations, boolean print) {
+        long nanos = System.nanoTime() - start[1];
+        long bytes = allocatedBytes() - start[0];
+        if (print) {
+            System.out.printf("%-34s %9.2f %11.2f%n", name, (double) nanos / iterations, (double) bytes / iterations);
+        }
+    }
+
+    /** Runs op once to warm up, then again measured, and prints the second run */
+    public static void run(String name, int iterations, IntToDoubleFunction op) {
+        for (int pass = 0; pass < 2; pass++) {
+            long[] stats = start();
+            double sum = 0.0;
+            for (int i = 0; i < iterations; i++) {
+                sum += op.applyAsDouble(i);
+            }
+            report(name, stats, iterations, pass == 1);
+            consume(sum);
+        }
+    }
+
+    /** Keeps results alive so the JIT can't drop the work that made them */
+    public static void consume(double value) {
+        sink += value;
+        if (sink == 42.4276) {
+            System.out.println();
+        }
+    }
+
+    public static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
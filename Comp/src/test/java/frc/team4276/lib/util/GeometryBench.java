@@ -0,0 +1,56 @@
+package frc.team4276.lib.util;
+
+import frc.team254.lib.geometry.MutablePose2d;
+import frc.team254.lib.geometry.MutableTwist2d;
+import frc.team254.lib.geometry.Pose2d;
+import frc.team254.lib.geometry.Rotation2d;
+import frc.team254.lib.geometry.Twist2d;
+
+/*
+ * Desktop tool comparing the allocating team254 geometry calls with the MutablePose2d ones used in the loop.
+ * Prints ns/op and bytes/op after a warmup pass:
+ *
+ *   GeometryBench [iterations]
+ */
+public class GeometryBench {
+    private static final double kDt = 0.02;
+
+    public static void main(String[] args) {
+        int iterations = args.length >= 1 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        final Pose2d field_to_robot = new Pose2d(3.0, 2.0, Rotation2d.fromDegrees(30.0));
+        final MutablePose2d m_field_to_robot = new MutablePose2d(field_to_robot);
+        final MutablePose2d m_pose = new MutablePose2d();
+        final MutableTwist2d m_twist = new MutableTwist2d();
+
+        Bench.printHeader("op");
+
+        // The setpoint twist from DriveSubsystem.updateSetpoint
+        Bench.run("log, allocating", iterations, i -> {
+            Pose2d robot_pose_vel = new Pose2d(1.5 * kDt, 0.5 * kDt, Rotation2d.fromRadians(i * 1e-6 * kDt));
+            return Pose2d.log(robot_pose_vel).scaled(1.0 / kDt).dx;
+        });
+        Bench.run("log, into", iterations, i -> {
+            double dtheta = i * 1e-6 * kDt;
+            return MutablePose2d.logInto(1.5 * kDt, 0.5 * kDt, Math.cos(dtheta), Math.sin(dtheta), m_twist)
+                    .scale(1.0 / kDt).dx;
+        });
+
+        Bench.run("exp + transformBy, allocating", iterations, i -> {
+            Pose2d delta = Pose2d.exp(new Twist2d(0.03, 0.01, i * 1e-6));
+            return field_to_robot.transformBy(delta).getTranslation().x();
+        });
+        Bench.run("exp + transformBy, into", iterations, i -> {
+            MutablePose2d.expInto(0.03, 0.01, i * 1e-6, m_pose);
+            return MutablePose2d.transformByInto(m_field_to_robot, m_pose, m_pose).x();
+        });
+
+        Bench.run("inverse + transformBy, allocating", iterations, i -> {
+            return field_to_robot.inverse().transformBy(field_to_robot).getTranslation().y();
+        });
+        Bench.run("inverse + transformBy, into", iterations, i -> {
+            MutablePose2d.inverseInto(m_field_to_robot, m_pose);
+            return MutablePose2d.transformByInto(m_pose, m_field_to_robot, m_pose).y();
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package frc.team4276.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.interpolation.InterpolatingDoubleTreeMap;
+
+/**
+ * Linear tables have to match InterpolatingDoubleTreeMap, past both ends as well. Monotone cubic ones have to go
+ * through the points and stay between neighbouring points.
+ */
+public class InterpolatingLookupTableTest {
+    private static final double kEpsilon = 1e-9;
+    private static final int kSweepPoints = 1_000_000;
+
+    // Same points as RegressionMaps
+    static final double[][] kSpeakerFourbarAngles = {
+            { 1.0, 135.0 }, { 1.5, 130.0 }, { 2.0, 120.0 }, { 2.25, 125.0 }, { 2.5, 110.0 }, { 3.0, 106.5 },
+            { 3.5, 105.0 }, { 4.0, 104.0 }, { 4.5, 103.0 }, { 5.0, 102.0 }, { 5.5, 101.0 }, { 6.0, 100.0 },
+            { 6.5, 95.0 }, { 7.0, 90.0 } };
+    static final double[][] kSpeakerFlywheelRPMs = {
+            { 1.0, 3500.0 }, { 1.5, 4000.0 }, { 2.0, 4000.0 }, { 2.5, 4500.0 }, { 3.0, 5000.0 }, { 3.5, 5000.0 },
+            { 4.0, 5000.0 }, { 4.5, 5000.0 }, { 5.0, 5000.0 }, { 5.5, 5000.0 }, { 6.0, 5000.0 }, { 6.5, 5000.0 },
+            { 7.0, 5000.0 } };
+    static final double[][] kFerryFourbarAngles = {
+            { 5.3, 130.0 }, { 7.9, 130.0 }, { 9.3, 130.0 }, { 12.3, 135.0 } };
+    static final double[][] kFerryFlywheelRPMs = {
+            { 5.3, 3500.0 }, { 7.9, 4000.0 }, { 9.3, 4500.0 }, { 12.3, 5000.0 } };
+
+    private static final double[][][] kTables = {
+            kSpeakerFourbarAngles, kSpeakerFlywheelRPMs, kFerryFourbarAngles, kFerryFlywheelRPMs };
+
+    static InterpolatingDoubleTreeMap treeMap(double[][] points) {
+        InterpolatingDoubleTreeMap map = new InterpolatingDoubleTreeMap();
+        for (double[] point : points) {
+            map.put(point[0], point[1]);
+        }
+        return map;
+    }
+
+    static InterpolatingLookupTable table(double[][] points, InterpolatingLookupTable.Mode mode) {
+        InterpolatingLookupTable.Builder builder = new InterpolatingLookupTable.Builder();
+        for (double[] point : points) {
+            builder.put(point[0], point[1]);
+        }
+        return builder.build(mode);
+    }
+
+    @Test
+    public void linearMatchesTreeMap() {
+        for (double[][] points : kTables) {
+            InterpolatingDoubleTreeMap map = treeMap(points);
+            InterpolatingLookupTable linear = table(points, InterpolatingLookupTable.Mode.LINEAR);
+
+            double min = points[0][0] - 1.0;
+            double max = points[points.length - 1][0] + 1.0;
+            for (int i = 0; i <= kSweepPoints; i++) {
+                double key = min + (max - min) * i / kSweepPoints;
+                assertEquals(map.get(key), linear.get(key), kEpsilon, "at " + key);
+            }
+        }
+    }
+
+    @Test
+    public void monotoneCubicGoesThroughPointsWithoutOvershoot() {
+        for (double[][] points : kTables) {
+            InterpolatingLookupTable cubic = table(points, InterpolatingLookupTable.Mode.MONOTONE_CUBIC);
+
+            for (double[] point : points) {
+                assertEquals(point[1], cubic.get(point[0]), kEpsilon, "at " + point[0]);
+            }
+
+            for (int p = 0; p + 1 < points.length; p++) {
+                double low = Math.min(points[p][1], points[p + 1][1]);
+                double high = Math.max(points[p][1], points[p + 1][1]);
+                for (int i = 0; i <= 1000; i++) {
+                    double key = points[p][0] + (points[p + 1][0] - points[p][0]) * i / 1000;
+                    double value = cubic.get(key);
+                    assertTrue(value >= low - kEpsilon && value <= high + kEpsilon, "at " + key + ": " + value);
+                }
+            }
+
+            assertEquals(points[0][1], cubic.get(points[0][0] - 1.0), kEpsilon);
+            assertEquals(points[points.length - 1][1], cubic.get(points[points.length - 1][0] + 1.0), kEpsilon);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package frc.team4276.lib.util;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.util.Units;
+import frc.team1678.lib.swerve.ChassisSpeeds;
+import frc.team1678.lib.swerve.FourModuleSwerveKinematics;
+import frc.team1678.lib.swerve.ModuleState;
+import frc.team1678.lib.swerve.SwerveDriveKinematics;
+
+/*
+ * Desktop tool for FourModuleSwerveKinematics. Needs wpimath and EJML on the classpath, run it with the same JVM
+ * flags the robot is deployed with to get roboRIO-like numbers:
+ *
+ *   KinematicsBench [iterations]
+ *
+ * Prints ns/op and bytes/op for the calls DriveSubsystem makes every loop. FourModuleSwerveKinematicsTest checks the
+ * results are the same as SwerveDriveKinematics.
+ */
+public class KinematicsBench {
+    private static final double kHalf = Units.inchesToMeters(23.5) / 2;
+
+    private static double sink = 0.0;
+
+    public static void main(String[] args) {
+        int iterations = args.length >= 1 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        Translation2d[] wheels = {
+                new Translation2d(kHalf, kHalf),
+                new Translation2d(kHalf, -kHalf),
+                new Translation2d(-kHalf, kHalf),
+                new Translation2d(-kHalf, -kHalf) };
+        SwerveDriveKinematics reference = new SwerveDriveKinematics(wheels);
+        FourModuleSwerveKinematics fast = new FourModuleSwerveKinematics(wheels);
+
+        Bench.printHeader("op");
+        for (int pass = 0; pass < 2; pass++) {
+            bench(reference, fast, iterations, pass == 1);
+        }
+
+        Bench.consume(sink);
+    }
+
+    private static void bench(SwerveDriveKinematics reference, FourModuleSwerveKinematics fast, int iterations,
+            boolean print) {
+        ChassisSpeeds speeds = new ChassisSpeeds();
+        ChassisSpeeds speeds_out = new ChassisSpeeds();
+        ModuleState[] out = new ModuleState[] {
+                new ModuleState(), new ModuleState(), new ModuleState(), new ModuleState() };
+        ModuleState[] measured = new ModuleState[] {
+                ModuleState.fromSpeeds(Rotation2d.fromDegrees(10.0), 3.0),
+                ModuleState.fromSpeeds(Rotation2d.fromDegrees(20.0), 3.1),
+                ModuleState.fromSpeeds(Rotation2d.fromDegrees(30.0), 3.2),
+                ModuleState.fromSpeeds(Rotation2d.fromDegrees(40.0), 3.3) };
+
+        long[] stats = Bench.start();
+        for (int i = 0; i < iterations; i++) {
+            speeds.vxMetersPerSecond = 3.0;
+            speeds.vyMetersPerSecond = 1.0;
+            speeds.omegaRadiansPerSecond = 1e-6 * i;
+            sink += reference.toModuleStates(speeds)[0].speedMetersPerSecond;
+        }
+        Bench.report("toModuleStates, SimpleMatrix", stats, iterations, print);
+
+        stats = Bench.start();
+        for (int i = 0; i < iterations; i++) {
+            speeds.vxMetersPerSecond = 3.0;
+            speeds.vyMetersPerSecond = 1.0;
+            speeds.omegaRadiansPerSecond = 1e-6 * i;
+            sink += fast.toModuleStates(speeds, out)[0].speedMetersPerSecond;
+        }
+        Bench.report("toModuleStates, four module", stats, iterations, print);
+
+        stats = Bench.start();
+        for (int i = 0; i < iterations; i++) {
+            measured[0].speedMetersPerSecond = 1e-6 * i;
+            sink += reference.toChassisSpeeds(measured).vxMetersPerSecond;
+        }
+        Bench.report("toChassisSpeeds, SimpleMatrix", stats, iterations, print);
+
+        stats = Bench.start();
+        for (int i = 0; i < iterations; i++) {
+            measured[0].speedMetersPerSecond = 1e-6 * i;
+            sink += fast.toChassisSpeeds(measured, speeds_out).vxMetersPerSecond;
+        }
+        Bench.report("toChassisSpeeds, four module", stats, iterations, print);
+    }
+}
@@ -0,0 +1,53 @@
+package frc.team4276.lib.util;
+
+import edu.wpi.first.math.interpolation.InterpolatingDoubleTreeMap;
+
+/*
+ * Desktop tool comparing InterpolatingLookupTable with InterpolatingDoubleTreeMap on the speaker fourbar table.
+ * Needs wpimath on the classpath:
+ *
+ *   LookupTableBench [iterations]
+ *
+ * Prints ns/op and bytes/op for a lookup. InterpolatingLookupTableTest checks the results.
+ */
+public class LookupTableBench {
+    private static double sink = 0.0;
+
+    public static void main(String[] args) {
+        int iterations = args.length >= 1 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        Bench.printHeader("op");
+        for (int pass = 0; pass < 2; pass++) {
+            bench(iterations, pass == 1);
+        }
+
+        Bench.consume(sink);
+    }
+
+    private static void bench(int iterations, boolean print) {
+        double[][] points = InterpolatingLookupTableTest.kSpeakerFourbarAngles;
+        InterpolatingDoubleTreeMap map = InterpolatingLookupTableTest.treeMap(points);
+        InterpolatingLookupTable linear = InterpolatingLookupTableTest.table(points,
+                InterpolatingLookupTable.Mode.LINEAR);
+        InterpolatingLookupTable cubic = InterpolatingLookupTableTest.table(points,
+                InterpolatingLookupTable.Mode.MONOTONE_CUBIC);
+
+        long[] stats = Bench.start();
+        for (int i = 0; i < iterations; i++) {
+            sink += map.get(0.5 + (i & 1023) * 0.007);
+        }
+        Bench.report("InterpolatingDoubleTreeMap", stats, iterations, print);
+
+        stats = Bench.start();
+        for (int i = 0; i < iterations; i++) {
+            sink += linear.get(0.5 + (i & 1023) * 0.007);
+        }
+        Bench.report("lookup table, linear", stats, iterations, print);
+
+        stats = Bench.start();
+        for (int i = 0; i < iterations; i++) {
+            sink += cubic.get(0.5 + (i & 1023) * 0.007);
+        }
+        Bench.report("lookup table, monotone cubic", stats, iterations, print);
+    }
+}
@@ -0,0 +1,131 @@
+package frc.team4276.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Late vision has to end up where it would have if it had come in on time, whatever order the measurements arrive
+ * in, and odometry folded into the newest step can't undo a correction already applied there.
+ */
+public class PoseEstimatorTest {
+    private static final double kEpsilon = 1e-9;
+    private static final double kDt = 0.02;
+    private static final int kSteps = 40;
+
+    // timestamp, x, y, theta, std dev xy, std dev theta
+    private static final double[][] kMeasurements = {
+            { 0.105, 0.40, 0.05, 0.10, 0.2, 0.5 },
+            { 0.305, 1.10, 0.30, 0.25, 0.1, Double.POSITIVE_INFINITY },
+            { 0.310, 1.00, 0.20, 0.30, 0.3, 0.4 },
+            { 0.555, 1.90, 0.70, 0.45, 0.2, 0.6 } };
+
+    private static PoseEstimator estimator() {
+        PoseEstimator estimator = new PoseEstimator(100, 16, 1.0, 0.05, 0.01, 0.001);
+        estimator.reset(0.0, 0.0, 0.0, 0.0, 0.1, 0.05);
+        return estimator;
+    }
+
+    private static double time(int step) {
+        return (step + 1) * kDt;
+    }
+
+    private static void addOdometry(PoseEstimator estimator, int step) {
+        estimator.addOdometry(time(step), 0.07, 0.01 * Math.sin(step), 0.015);
+    }
+
+    private static void addVision(PoseEstimator estimator, double[] m) {
+        assertTrue(estimator.addVisionMeasurement(m[0], m[1], m[2], m[3], m[4], m[5]));
+    }
+
+    /** Each measurement added as soon as the odometry has passed its timestamp, no replay involved */
+    private static PoseEstimator onTime() {
+        PoseEstimator estimator = estimator();
+        int next = 0;
+        for (int step = 0; step < kSteps; step++) {
+            addOdometry(estimator, step);
+            while (next < kMeasurements.length && kMeasurements[next][0] < time(step) + kDt) {
+                addVision(estimator, kMeasurements[next++]);
+            }
+        }
+        return estimator;
+    }
+
+    /** All odometry first, then the measurements in the given order */
+    private static PoseEstimator late(int... order) {
+        PoseEstimator estimator = estimator();
+        for (int step = 0; step < kSteps; step++) {
+            addOdometry(estimator, step);
+        }
+        for (int i : order) {
+            addVision(estimator, kMeasurements[i]);
+        }
+        return estimator;
+    }
+
+    private static void assertSameEstimate(PoseEstimator expected, PoseEstimator actual) {
+        assertEquals(expected.getX(), actual.getX(), kEpsilon);
+        assertEquals(expected.getY(), actual.getY(), kEpsilon);
+        assertEquals(expected.getTheta(), actual.getTheta(), kEpsilon);
+        assertEquals(expected.getStdDevX(), actual.getStdDevX(), kEpsilon);
+        assertEquals(expected.getStdDevY(), actual.getStdDevY(), kEpsilon);
+        assertEquals(expected.getStdDevTheta(), actual.getStdDevTheta(), kEpsilon);
+    }
+
+    @Test
+    public void lateVisionMatchesOnTimeVision() {
+        assertSameEstimate(onTime(), late(0, 1, 2, 3));
+    }
+
+    @Test
+    public void outOfOrderVisionMatchesOnTimeVision() {
+        PoseEstimator expected = onTime();
+        assertSameEstimate(expected, late(3, 2, 1, 0));
+        assertSameEstimate(expected, late(2, 0, 3, 1));
+        assertSameEstimate(expected, late(1, 3, 0, 2));
+    }
+
+    @Test
+    public void foldedOdometryKeepsCorrection() {
+        // Vision on the newest step, then more odometry for the same timestamp
+        PoseEstimator folded = estimator();
+        for (int step = 0; step < 10; step++) {
+            addOdometry(folded, step);
+        }
+        addVision(folded, new double[] { time(9), 0.9, 0.1, 0.2, 0.1, 0.3 });
+        folded.addOdometry(time(9), 0.03, 0.0, 0.005);
+
+        // Same odometry as one step, then the vision
+        PoseEstimator expected = estimator();
+        for (int step = 0; step < 9; step++) {
+            addOdometry(expected, step);
+        }
+        expected.addOdometry(time(9), 0.07 + 0.03, 0.01 * Math.sin(9), 0.015 + 0.005);
+        addVision(expected, new double[] { time(9), 0.9, 0.1, 0.2, 0.1, 0.3 });
+
+        assertSameEstimate(expected, folded);
+    }
+
+    @Test
+    public void odometryAtResetTimeIsApplied() {
+        PoseEstimator estimator = estimator();
+        estimator.addOdometry(0.0, 0.5, 0.0, 0.0);
+        assertEquals(0.5, estimator.getX(), kEpsilon);
+
+        // Driving adds process noise
+        assertTrue(estimator.getStdDevX() > estimator().getStdDevX());
+    }
+
+    @Test
+    public void visionOlderThanHistoryIsRejected() {
+        PoseEstimator estimator = estimator();
+        for (int step = 0; step < 100; step++) {
+            addOdometry(estimator, step);
+        }
+        double x = estimator.getX();
+        assertFalse(estimator.addVisionMeasurement(time(100) - 1.5, 0.0, 0.0, 0.0, 0.01, 0.01));
+        assertEquals(x, estimator.getX(), 0.0);
+    }
+}